@@ -0,0 +1,38 @@
+package citadels;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Shared fixtures for the benchmarks.
+ */
+final class BenchmarkSupport {
+    private static PrintStream originalOut;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Save and load still report to the console; keep that out of the JMH report.
+     */
+    static synchronized void muteConsole() {
+        if (originalOut == null) {
+            originalOut = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    static synchronized void restoreConsole() {
+        if (originalOut != null) {
+            System.setOut(originalOut);
+            originalOut = null;
+        }
+    }
+
+    static Game headlessGame(int numPlayers, long seed) {
+        Game game = new Game(seed);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(numPlayers);
+        return game;
+    }
+}
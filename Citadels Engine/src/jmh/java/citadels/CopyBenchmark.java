@@ -0,0 +1,50 @@
+package citadels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of branching a mid-game state, as search AIs do for every playout:
+ * Game.copy() against a round trip through the binary snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CopyBenchmark {
+    private Game midGame;
+
+    @Setup
+    public void setup() {
+        midGame = BenchmarkSupport.headlessGame(5, 1L);
+        midGame.setMaxRounds(4);
+        midGame.play();
+    }
+
+    @Benchmark
+    public Game copy() {
+        return midGame.copy();
+    }
+
+    @Benchmark
+    public Game snapshotRoundTrip() throws IOException {
+        ByteBuffer buf = GameSnapshot.encode(midGame);
+        Game game = new Game(1L);
+        GameSnapshot.decode(buf, game);
+        return game;
+    }
+}
@@ -0,0 +1,52 @@
+package citadels;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * District deck construction and the draw/return/shuffle operations used by
+ * card income and the Magician.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckBenchmark {
+    private CardsAndDecks.DistrictDeck deck;
+
+    @Setup
+    public void setup() {
+        deck = new CardsAndDecks.DistrictDeck();
+        deck.shuffle();
+    }
+
+    @Benchmark
+    public CardsAndDecks.DistrictDeck construct() {
+        return new CardsAndDecks.DistrictDeck();
+    }
+
+    @Benchmark
+    public int drawAndReturn() {
+        CardsAndDecks.DistrictCard card = deck.draw();
+        deck.returnCard(card);
+        return deck.size();
+    }
+
+    @Benchmark
+    public int shuffle() {
+        deck.shuffle();
+        return deck.size();
+    }
+}
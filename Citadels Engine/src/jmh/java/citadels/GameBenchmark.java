@@ -0,0 +1,81 @@
+package citadels;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole-game operations: scoring, save/load and a complete AI-only game.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    // "json" for the debugging export, anything else for the binary snapshot
+    @Param({"json", "sav"})
+    public String format;
+
+    private Game finished;
+    private String saveFile;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkSupport.muteConsole();
+        finished = BenchmarkSupport.headlessGame(5, 1L);
+        finished.setMaxRounds(100);
+        finished.play();
+
+        File f = File.createTempFile("citadels-bench", "." + format);
+        f.deleteOnExit();
+        saveFile = f.getPath();
+        finished.saveGame(saveFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.restoreConsole();
+        new File(saveFile).delete();
+    }
+
+    @Benchmark
+    public int[] finalizeScores() {
+        finished.finalizeScores();
+        return finished.getFinalScores();
+    }
+
+    @Benchmark
+    public Game saveGame() {
+        finished.saveGame(saveFile);
+        return finished;
+    }
+
+    @Benchmark
+    public Game loadGame() {
+        Game game = new Game(1L);
+        game.loadGame(saveFile);
+        return game;
+    }
+
+    @Benchmark
+    public Simulator.GameResult fullAIGame() {
+        return Simulator.playOne(5, seed++, 100);
+    }
+}
@@ -0,0 +1,92 @@
+package citadels;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Character selection and a single AI turn on a five-player headless table.
+ *
+ * A turn takes a few microseconds and spends the player's gold and cards,
+ * so turns are timed in batches: each invocation plays one turn on each of
+ * BATCH freshly dealt tables, which keeps the per-invocation setup and its
+ * timestamps out of the per-turn figure.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TurnBenchmark {
+    static final int BATCH = 256;
+
+    private Game game;
+
+    /**
+     * BATCH copies of a table that has just picked its characters.
+     */
+    @State(Scope.Thread)
+    public static class Tables {
+        private Game dealt;
+        final Game[] games = new Game[BATCH];
+
+        @Setup(Level.Trial)
+        public void deal() {
+            dealt = BenchmarkSupport.headlessGame(5, 1L);
+            dealt.getTurnManager().runSelectionPhase();
+        }
+
+        @Setup(Level.Invocation)
+        public void refill() {
+            for (int i = 0; i < BATCH; i++) {
+                games[i] = dealt.copy();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void mute() {
+        BenchmarkSupport.muteConsole();
+    }
+
+    @TearDown(Level.Trial)
+    public void unmute() {
+        BenchmarkSupport.restoreConsole();
+    }
+
+    // selection starts every round afresh, so one table serves a whole iteration
+    @Setup(Level.Iteration)
+    public void deal() {
+        game = BenchmarkSupport.headlessGame(5, 1L);
+    }
+
+    @Benchmark
+    public Game runSelectionPhase() {
+        game.getTurnManager().runSelectionPhase();
+        return game;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void aiTakeTurn(Tables tables, Blackhole bh) {
+        for (Game g : tables.games) {
+            Player ai = g.getPlayers().get(0);
+            ai.takeTurn(g.getTurnManager());
+            bh.consume(ai);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The built-in computer player. Every random choice comes from the game's
+ * generator, so a seeded game makes the same choices every time.
+ */
+public class AIDecisions implements DecisionProvider {
+
+    @Override
+    public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+        if (available.isEmpty()) return null;
+        return available.get(game.getRandom().nextInt(available.size()));
+    }
+
+    // Draw when the hand is nearly empty, otherwise take gold
+    @Override
+    public Income chooseIncome(Game game, Player player) {
+        return player.getHand().size() <= 1 ? Income.CARDS : Income.GOLD;
+    }
+
+    @Override
+    public int chooseDiscard(Game game, Player player) {
+        int n = player.getHand().size();
+        return n > 1 ? game.getRandom().nextInt(n) : -1;
+    }
+
+    // The most expensive district it can afford and has not built yet
+    @Override
+    public int chooseBuild(Game game, Player player) {
+        CardsAndDecks.CardList hand = player.getHand();
+        int best = -1;
+        for (int i = 0; i < hand.size(); i++) {
+            CardsAndDecks.DistrictCard card = hand.get(i);
+            if (card.getCost() <= player.getGold() && !player.getCity().hasDistrict(card)) {
+                if (best < 0 || card.getCost() > hand.get(best).getCost()) {
+                    best = i;
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+        return game.getRandom().nextInt(minRank, maxRank + 1);
+    }
+
+    // Either redraw the whole hand or swap with a random other player
+    @Override
+    public MagicianMove chooseMagicianMove(Game game, Player player) {
+        if (game.getRandom().nextBoolean()) {
+            List<Integer> all = new ArrayList<>();
+            for (int i = 0; i < player.getHand().size(); i++) {
+                all.add(i);
+            }
+            return MagicianMove.redraw(all);
+        }
+        List<Player> others = new ArrayList<>();
+        for (Player p : game.getPlayers()) {
+            if (p != player) {
+                others.add(p);
+            }
+        }
+        if (others.isEmpty()) return null;
+        return MagicianMove.swap(others.get(game.getRandom().nextInt(others.size())));
+    }
+
+    // The most expensive district it can pay to destroy
+    @Override
+    public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+        DistrictTarget best = null;
+        int bestCost = -1;
+        for (int t = 0; t < targets.size(); t++) {
+            City city = targets.get(t).getCity();
+            for (int d = 0; d < city.size(); d++) {
+                int cost = city.get(d).getCost();
+                if (cost - 1 <= warlord.getGold() && cost > bestCost) {
+                    best = new DistrictTarget(t, d);
+                    bestCost = cost;
+                }
+            }
+        }
+        return best;
+    }
+}
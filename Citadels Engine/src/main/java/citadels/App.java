@@ -1,12 +1,116 @@
 package citadels;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 public class App {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        EngineMetrics.registerMBean();
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("simulate")) {
+            Simulator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("tournament")) {
+            Tournament.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("server")) {
+            SessionManager.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--journal")) {
+            Game game = new Game();
+            try {
+                GameJournal journal = GameJournal.create(Paths.get(args[1]), game);
+                try {
+                    game.setup();
+                    game.play();
+                } finally {
+                    journal.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to use journal " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--pacing")) {
+            Game game = new Game();
+            try {
+                long delay = args.length > 3 && args[2].equals("--delay") ? Long.parseLong(args[3]) : 500;
+                game.setPacing(TurnManager.Pacing.parse(args[1]), delay);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Usage: --pacing prompt|instant|delay|until-human [--delay MS]");
+                return;
+            }
+            game.setup();
+            game.play();
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--autosave")) {
+            Game game = new Game();
+            try {
+                Autosaver autosaver = Autosaver.attach(game, Paths.get(args[1]));
+                try {
+                    game.setup();
+                    game.play();
+                } finally {
+                    autosaver.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to autosave to " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--ponder")) {
+            int iterations;
+            try {
+                iterations = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Usage: --ponder ITERATIONS");
+                return;
+            }
+            Game game = new Game();
+            game.setup();
+            for (Player p : game.getPlayers()) {
+                if (!(p instanceof HumanPlayer)) p.setDecisions(MctsDecisions.iterations(iterations));
+            }
+            Ponderer ponderer = Ponderer.attach(game, Runtime.getRuntime().availableProcessors());
+            try {
+                game.play();
+            } finally {
+                ponderer.close();
+            }
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("--recover")) {
+            System.out.println("Recovering game from " + args[1] + "...");
+            try {
+                GameJournal.Recovery r = GameJournal.recover(Paths.get(args[1]));
+                try {
+                    r.play();
+                } finally {
+                    r.journal.close();
+                }
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("Failed to recover from " + args[1] + ": " + e.getMessage());
+            }
+            return;
+        }
+
         Game game = new Game();
         game.setup();
         game.play();
-        
+
     }
 
 }
@@ -0,0 +1,178 @@
+package citadels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a game in the background at the end of every round, so the turn
+ * loop never waits for the disk.
+ *
+ * At a round boundary the game thread only takes a copy (Game.copy is a
+ * handful of array copies) and drops it into a single pending slot. A
+ * writer thread encodes the pending copy as a binary snapshot, writes it
+ * to a temporary file next to the target and renames it into place, so
+ * the save file is always either the previous save or the new one, never
+ * half written. If rounds end faster than the disk keeps up, a newer copy
+ * simply replaces the one still waiting and only the latest is written.
+ */
+public final class Autosaver implements Closeable {
+    private final Path file;
+    private final Path temp;
+    private final Thread writer;
+
+    // the copy waiting to be written; guarded by this
+    private Game pending;
+    private boolean closed;
+    private long offered;
+    private long written;
+    private long saves;
+    private long coalesced;
+    private IOException failure;
+
+    public Autosaver(Path file) {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        writer = new Thread(this::writeLoop, "citadels-autosave");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * An autosaver for file that game offers its state to after every round.
+     */
+    public static Autosaver attach(Game game, Path file) {
+        Autosaver autosaver = new Autosaver(file);
+        game.setAutosaver(autosaver);
+        return autosaver;
+    }
+
+    /**
+     * Queues the current state of game to be saved. Returns as soon as the
+     * copy is taken; a save still waiting is replaced by this one.
+     */
+    public void offer(Game game) {
+        Game snapshot = game.copy();
+        synchronized (this) {
+            if (closed) return;
+            if (pending != null) coalesced++;
+            pending = snapshot;
+            offered++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks until everything offered so far has been written (or replaced
+     * by a later offer that has been), and throws the error of the last
+     * save if it failed.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = offered;
+            while (written < target) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for autosave", e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    /**
+     * Snapshots written to disk so far.
+     */
+    public synchronized long saves() {
+        return saves;
+    }
+
+    /**
+     * Snapshots that were replaced by a newer one before being written.
+     */
+    public synchronized long coalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Writes whatever is pending and stops the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        sync();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Game game;
+            long upTo;
+            synchronized (this) {
+                while (pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending == null) return;
+                game = pending;
+                pending = null;
+                upTo = offered;
+            }
+
+            IOException error = null;
+            try {
+                write(GameSnapshot.encode(game));
+            } catch (IOException e) {
+                error = e;
+                System.err.println("Autosave to " + file + " failed: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // a state the snapshot cannot encode; the writer carries on so sync() still returns
+                error = new IOException("Could not encode the game", e);
+                System.err.println("Autosave to " + file + " failed: " + e);
+            }
+            synchronized (this) {
+                written = upTo;
+                failure = error;
+                if (error == null) saves++;
+                notifyAll();
+            }
+        }
+    }
+
+    private void write(ByteBuffer buf) throws IOException {
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+            ch.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // the rename is only durable once the directory entry is on disk too
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+                ch.force(true);
+            } catch (IOException e) {
+                // some platforms (Windows) cannot open a directory; the move has still happened
+            }
+        }
+    }
+}
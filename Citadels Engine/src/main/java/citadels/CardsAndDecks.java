@@ -4,10 +4,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
 
 public class CardsAndDecks{
     public enum DistrictColor{
@@ -31,12 +35,18 @@ public class CardsAndDecks{
 
 
     public static class DistrictCard{
+        private final int id;
         private final String name;
         private final int cost;
         private final DistrictColor colour;
         private final String text;
 
         public DistrictCard(String name, int cost, DistrictColor colour, String text){
+            this(CardCatalog.get().idOf(name), name, cost, colour, text);
+        }
+
+        DistrictCard(int id, String name, int cost, DistrictColor colour, String text){
+            this.id = id;
             this.name = name;
             this.cost = cost;
             this.colour = colour;
@@ -44,6 +54,14 @@ public class CardsAndDecks{
         }
 
         //Getters for District Card:
+
+        /**
+         * Catalog ID of this district, or -1 if its name is not in cards.tsv.
+         */
+        public int getId(){
+            return id;
+        }
+
         public String getName(){
             return name;
         }
@@ -66,13 +84,47 @@ public class CardsAndDecks{
         }
     }
 
-    public static class DistrictDeck {
-        private List<DistrictCard> cards = new ArrayList<>();
-        private Random rng = new Random();
+    /**
+     * Every distinct district in cards.tsv, parsed once per JVM. Each district
+     * has a single shared DistrictCard whose ID is its row in the file, so
+     * decks and saves can refer to cards by ID instead of re-reading the file.
+     */
+    public static final class CardCatalog {
+        private static final CardCatalog INSTANCE = load("/citadels/cards.tsv");
+
+        private final DistrictCard[] cards;
+        private final int[] quantities;
+        private final int deckSize;
+        private final Map<String, Integer> idsByName;
+
+        private CardCatalog(List<DistrictCard> cards, List<Integer> quantities) {
+            this.cards = cards.toArray(new DistrictCard[0]);
+            this.quantities = new int[quantities.size()];
+            this.idsByName = new HashMap<>();
+            int total = 0;
+            for (int i = 0; i < this.quantities.length; i++) {
+                this.quantities[i] = quantities.get(i);
+                total += this.quantities[i];
+                idsByName.put(this.cards[i].getName().toLowerCase(Locale.ROOT), i);
+            }
+            this.deckSize = total;
+        }
 
-        public DistrictDeck() {
-            try (InputStream in = getClass().getResourceAsStream("/citadels/cards.tsv");
-                BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+        public static CardCatalog get() {
+            return INSTANCE;
+        }
+
+        private static CardCatalog load(String resource) {
+            List<DistrictCard> cards = new ArrayList<>();
+            List<Integer> quantities = new ArrayList<>();
+
+            InputStream in = CardCatalog.class.getResourceAsStream(resource);
+            if (in == null) {
+                System.err.println("Failed to load cards.tsv: resource not found");
+                return new CardCatalog(cards, quantities);
+            }
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
                 String line;
 
                 boolean isFirstLine = true;
@@ -91,41 +143,347 @@ public class CardsAndDecks{
                     int cost = Integer.parseInt(parts[3]);
                     String text = parts.length > 4 ? parts[4] : "";
 
-                    for (int i = 0; i < quantity; i++) {
-                        cards.add(new DistrictCard(name, cost, color, text));
-                    }
+                    cards.add(new DistrictCard(cards.size(), name, cost, color, text));
+                    quantities.add(quantity);
                 }
             } catch (IOException e) {
                 System.err.println("Failed to load cards.tsv: " + e.getMessage());
             }
+            return new CardCatalog(cards, quantities);
+        }
+
+        /**
+         * Number of distinct districts.
+         */
+        public int size() {
+            return cards.length;
+        }
+
+        /**
+         * Number of cards in a full district deck.
+         */
+        public int deckSize() {
+            return deckSize;
+        }
+
+        public DistrictCard card(int id) {
+            return cards[id];
+        }
+
+        public int quantity(int id) {
+            return quantities[id];
         }
 
+        /**
+         * ID of the district with this name (case-insensitive), or -1 if none.
+         */
+        public int idOf(String name) {
+            Integer id = idsByName.get(name.toLowerCase(Locale.ROOT));
+            return id == null ? -1 : id;
+        }
+    }
+
+    /**
+     * A list of district cards stored as catalog IDs in an int array, used for
+     * hands and cities. Cards that are not the catalog's own instances (e.g.
+     * built by hand in tests) are kept aside so get() still returns the exact
+     * object that was added.
+     */
+    public static final class CardList extends AbstractList<DistrictCard> implements RandomAccess {
+        private final CardCatalog catalog = CardCatalog.get();
+        // a catalog ID, or -1 - i for extras.get(i)
+        private int[] slots = new int[8];
+        private int size;
+        private List<DistrictCard> extras;
+        // sum of the Zobrist keys of the cards held
+        private long hash;
+
+        public CardList() {
+        }
+
+        /**
+         * A copy of other; cards are immutable, so only the slots are copied.
+         */
+        CardList(CardList other) {
+            slots = Arrays.copyOf(other.slots, Math.max(8, other.size));
+            size = other.size;
+            extras = other.extras == null ? null : new ArrayList<>(other.extras);
+            hash = other.hash;
+        }
+
+        /**
+         * Hash of the cards held, ignoring their order; kept up to date on every change.
+         */
+        public long contentHash() {
+            return hash;
+        }
+
+        @Override
+        public DistrictCard get(int index) {
+            checkIndex(index, size);
+            int slot = slots[index];
+            return slot >= 0 ? catalog.card(slot) : extras.get(-1 - slot);
+        }
+
+        /**
+         * Catalog ID of the card at index, or -1 if its name is not in the catalog.
+         */
+        public int idAt(int index) {
+            checkIndex(index, size);
+            int slot = slots[index];
+            return slot >= 0 ? slot : extras.get(-1 - slot).getId();
+        }
+
+        /**
+         * Index of the first card with this catalog ID, or -1.
+         */
+        public int indexOfId(int id) {
+            if (id < 0) return -1;
+            for (int i = 0; i < size; i++) {
+                if (idAt(i) == id) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void add(int index, DistrictCard card) {
+            checkIndex(index, size + 1);
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            slots[index] = slotOf(card);
+            size++;
+            modCount++;
+            hash += Zobrist.card(card);
+        }
+
+        @Override
+        public DistrictCard set(int index, DistrictCard card) {
+            DistrictCard old = get(index);
+            slots[index] = slotOf(card);
+            hash += Zobrist.card(card) - Zobrist.card(old);
+            return old;
+        }
+
+        @Override
+        public DistrictCard remove(int index) {
+            DistrictCard old = get(index);
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+            modCount++;
+            hash -= Zobrist.card(old);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            size = 0;
+            extras = null;
+            modCount++;
+            hash = 0;
+        }
+
+        private int slotOf(DistrictCard card) {
+            int id = card.getId();
+            if (id >= 0 && catalog.card(id) == card) return id;
+            if (extras == null) extras = new ArrayList<>();
+            return extraSlot(extras, card);
+        }
+
+        // Cards kept aside from the catalog, for tests
+        int extraCount() {
+            return extras == null ? 0 : extras.size();
+        }
+
+        private void checkIndex(int index, int bound) {
+            if (index < 0 || index >= bound) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+    }
+
+    /**
+     * The district draw pile, held as catalog IDs in a flat int array. Cards
+     * are drawn from a random position in the remaining pile (one step of a
+     * Fisher-Yates shuffle per draw), so returning a card is a plain append and
+     * never needs a reshuffle.
+     */
+    public static class DistrictDeck {
+        private final CardCatalog catalog = CardCatalog.get();
+        // slots[0..size) are the cards still in the deck: a catalog ID, or -1 - i for extras.get(i)
+        private int[] slots;
+        private int size;
+        // returned cards that are not the catalog's own instances (e.g. built by name in tests)
+        private List<DistrictCard> extras;
+        // how many catalog instances of each ID are in the pile, for findByName
+        private final int[] remaining;
+        private final GameRandom rng;
+        // sum of the Zobrist keys of the cards in the pile
+        private long hash;
+
+        public DistrictDeck() {
+            this(new GameRandom());
+        }
+
+        public DistrictDeck(GameRandom rng) {
+            this.rng = rng;
+            slots = new int[catalog.deckSize()];
+            remaining = new int[catalog.size()];
+            for (int id = 0; id < catalog.size(); id++) {
+                remaining[id] = catalog.quantity(id);
+                for (int i = 0; i < catalog.quantity(id); i++) {
+                    slots[size++] = id;
+                    hash += Zobrist.card(id);
+                }
+            }
+        }
+
+        /**
+         * A copy of other that draws with rng.
+         */
+        DistrictDeck(DistrictDeck other, GameRandom rng) {
+            this.rng = rng;
+            slots = Arrays.copyOf(other.slots, Math.max(8, other.size));
+            size = other.size;
+            extras = other.extras == null ? null : new ArrayList<>(other.extras);
+            remaining = other.remaining.clone();
+            hash = other.hash;
+        }
+
+        /**
+         * A deck holding exactly these cards in this order, e.g. from a save.
+         */
+        DistrictDeck(GameRandom rng, List<DistrictCard> cards) {
+            this.rng = rng;
+            slots = new int[Math.max(8, cards.size())];
+            remaining = new int[catalog.size()];
+            for (DistrictCard card : cards) {
+                returnCard(card);
+            }
+        }
+
+        /**
+         * A full deck less taken[id] copies of each district, e.g. the cards
+         * a save puts in hands and cities. Copies beyond the deck's own
+         * quantity are ignored.
+         */
+        DistrictDeck(GameRandom rng, int[] taken) {
+            this.rng = rng;
+            slots = new int[catalog.deckSize()];
+            remaining = new int[catalog.size()];
+            for (int id = 0; id < catalog.size(); id++) {
+                int left = Math.max(0, catalog.quantity(id) - (id < taken.length ? taken[id] : 0));
+                remaining[id] = left;
+                for (int i = 0; i < left; i++) {
+                    slots[size++] = id;
+                    hash += Zobrist.card(id);
+                }
+            }
+        }
+
+        /**
+         * Shuffles the whole pile. Draws are already random, so this is only
+         * needed to reorder the pile up front.
+         */
         public void shuffle() {
-            Collections.shuffle(cards, rng);
+            for (int i = size - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int tmp = slots[i];
+                slots[i] = slots[j];
+                slots[j] = tmp;
+            }
         }
 
         public DistrictCard draw() {
-            return cards.isEmpty() ? null : cards.remove(0);
+            if (size == 0) return null;
+            int j = rng.nextInt(size);
+            int slot = slots[j];
+            slots[j] = slots[--size];
+            if (slot >= 0) remaining[slot]--;
+            DistrictCard card = cardAt(slot);
+            hash -= Zobrist.card(card);
+            return card;
         }
 
         public void returnCard(DistrictCard card) {
-            cards.add(card);
-            shuffle();
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(8, size * 2));
+            }
+            int slot = slotOf(card);
+            if (slot >= 0) remaining[slot]++;
+            slots[size++] = slot;
+            hash += Zobrist.card(card);
         }
 
         public int size() {
-            return cards.size();
+            return size;
         }
 
+        /**
+         * Hash of the cards in the pile, ignoring their order; kept up to date on every draw and return.
+         */
+        public long contentHash() {
+            return hash;
+        }
+
+        /**
+         * A card with this name (case-insensitive) that is still in the pile,
+         * or null. The card stays in the pile.
+         */
         public DistrictCard findByName(String name) {
-            for (DistrictCard c : cards) {
-                if (c.getName().equals(name)) return new DistrictCard(c.getName(), c.getCost(), c.getColour(), c.getText());
+            int id = catalog.idOf(name);
+            if (id >= 0 && remaining[id] > 0) return catalog.card(id);
+            if (extras == null) return null;
+            for (int i = 0; i < size; i++) {
+                if (slots[i] >= 0) continue;
+                DistrictCard c = cardAt(slots[i]);
+                if (c.getName().equalsIgnoreCase(name)) return c; // cards are immutable, no need to copy
             }
             return null;
         }
+
+        /**
+         * The card at position index of the pile, for saving it in order.
+         */
+        DistrictCard cardAtIndex(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return cardAt(slots[index]);
+        }
+
+        private DistrictCard cardAt(int slot) {
+            return slot >= 0 ? catalog.card(slot) : extras.get(-1 - slot);
+        }
+
+        private int slotOf(DistrictCard card) {
+            int id = card.getId();
+            if (id >= 0 && catalog.card(id) == card) return id;
+            if (extras == null) extras = new ArrayList<>();
+            return extraSlot(extras, card);
+        }
+
+        // Cards kept aside from the catalog, for tests
+        int extraCount() {
+            return extras == null ? 0 : extras.size();
+        }
     }
 
 
+    // The slot of a non-catalog card among extras; an instance already there
+    // keeps its entry, so cards that come and go do not grow the list
+    private static int extraSlot(List<DistrictCard> extras, DistrictCard card) {
+        for (int i = 0; i < extras.size(); i++) {
+            if (extras.get(i) == card) return -1 - i;
+        }
+        extras.add(card);
+        return -extras.size();
+    }
+
     public static class CharacterCard{
         private final String name;
         private final int rank;
@@ -156,70 +514,160 @@ public class CardsAndDecks{
 
     }
 
+    /**
+     * The eight characters, held as a bit mask of the ranks still in the
+     * deck (bit r for rank r). Cards are immutable and shared by every deck,
+     * so resetting, drawing and picking allocate nothing, and available()
+     * is a live view of the mask rather than a copy.
+     */
     public static class CharacterDeck{
-        private final List<CharacterCard> cards = new ArrayList<>();
+        private static final CharacterCard[] BY_RANK = {
+            null,
+            new CharacterCard("Assassin",    1, Ability.ASSASSIN),
+            new CharacterCard("Thief",       2, Ability.THIEF),
+            new CharacterCard("Magician",    3, Ability.MAGICIAN),
+            new CharacterCard("King",        4, Ability.KING),
+            new CharacterCard("Bishop",      5, Ability.BISHOP),
+            new CharacterCard("Merchant",    6, Ability.MERCHANT),
+            new CharacterCard("Architect",   7, Ability.ARCHITECT),
+            new CharacterCard("Warlord",     8, Ability.WARLORD),
+        };
+        private static final int ALL = 0x1FE;
+
+        private final GameRandom rng;
+        private int mask = ALL;
+        private final Available view = new Available();
+
+        // read-only: AbstractList rejects add, set and remove
+        private final class Available extends AbstractList<CharacterCard> implements RandomAccess {
+            @Override
+            public CharacterCard get(int index) {
+                if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                return BY_RANK[nthRank(index)];
+            }
+
+            @Override
+            public int size() {
+                return Integer.bitCount(mask);
+            }
+        }
 
         public CharacterDeck() {
-            cards.add(new CharacterCard("Assassin",    1, Ability.ASSASSIN));
-            cards.add(new CharacterCard("Thief",       2, Ability.THIEF));
-            cards.add(new CharacterCard("Magician",    3, Ability.MAGICIAN));
-            cards.add(new CharacterCard("King",        4, Ability.KING));
-            cards.add(new CharacterCard("Bishop",      5, Ability.BISHOP));
-            cards.add(new CharacterCard("Merchant",    6, Ability.MERCHANT));
-            cards.add(new CharacterCard("Architect",   7, Ability.ARCHITECT));
-            cards.add(new CharacterCard("Warlord",     8, Ability.WARLORD));
+            this(new GameRandom());
+        }
+
+        public CharacterDeck(GameRandom rng) {
+            this.rng = rng;
+        }
+
+        /**
+         * A copy of other that draws with rng.
+         */
+        CharacterDeck(CharacterDeck other, GameRandom rng) {
+            this.rng = rng;
+            this.mask = other.mask;
+        }
+
+        /**
+         * A deck holding exactly these characters, e.g. from a save.
+         */
+        CharacterDeck(GameRandom rng, List<CharacterCard> cards) {
+            this.rng = rng;
+            setAvailableCards(cards);
+        }
 
-            Collections.shuffle(cards);
+        /**
+         * The character of this rank (1 to 8), or null.
+         */
+        public static CharacterCard byRank(int rank) {
+            return rank >= 1 && rank <= 8 ? BY_RANK[rank] : null;
         }
 
-        //draws a card after shuffling 
+        /**
+         * Puts all eight characters back.
+         */
+        public void reset() {
+            mask = ALL;
+        }
+
+        //draws a random card, so returned cards need no reshuffle
         public CharacterCard drawForSelection(){
-            if(cards.isEmpty()){
+            if(mask == 0){
                 System.err.println("Character deck is empty - cannot draw.");
                 return null;
             }
-            return cards.remove(0);
+            int rank = nthRank(rng.nextInt(Integer.bitCount(mask)));
+            mask &= ~(1 << rank);
+            return BY_RANK[rank];
         }
 
         //checks how many characters are left
         public int size(){
-            return cards.size();
+            return Integer.bitCount(mask);
         }
 
+        // draws are uniformly random already, so there is no order to shuffle
         public void shuffle() {
-            Collections.shuffle(cards);
         }
 
-
         public void returnCardToDeck(CharacterCard c) {
-            cards.add(c);
-            Collections.shuffle(cards);
+            mask |= 1 << c.getRank();
+        }
+
+        /**
+         * Characters still in the deck, in rank order. A live, read-only view.
+         */
+        public List<CharacterCard> available() {
+            return view;
+        }
+
+        /**
+         * Bit r is set while the character of rank r is in the deck.
+         */
+        public int availableMask() {
+            return mask;
         }
 
+        public boolean isAvailable(int rank) {
+            return (mask & (1 << rank)) != 0;
+        }
+
+        /**
+         * A copy of the characters still in the deck, in rank order.
+         */
         public List<CardsAndDecks.CharacterCard> getAvailableCards() {
-            return new ArrayList<>(cards);  // Assuming `available` is your pool
+            return new ArrayList<>(view);
         }
 
         public CardsAndDecks.CharacterCard drawAt(int index) {
-            return cards.remove(index);
+            CharacterCard c = view.get(index);
+            mask &= ~(1 << c.getRank());
+            return c;
         }
 
         public void removeCard(CardsAndDecks.CharacterCard card) {
-            cards.remove(card);
+            mask &= ~(1 << card.getRank());
         }
 
         public String getNameByRank(int rank) {
-            for (CharacterCard c : cards) {
-                if (c.getRank() == rank) {
-                    return c.getName();
-                }
-            }
-            return "Unknown";
+            CharacterCard c = byRank(rank);
+            return c != null ? c.getName() : "Unknown";
         }
 
         public void setAvailableCards(List<CardsAndDecks.CharacterCard> newList) {
-            cards.clear();               // remove old content
-            cards.addAll(newList);       // add updated list
+            mask = 0;
+            for (CharacterCard c : newList) {
+                mask |= 1 << c.getRank();
+            }
+        }
+
+        // rank of the index-th character still in the deck
+        private int nthRank(int index) {
+            int m = mask;
+            for (int i = 0; i < index; i++) {
+                m &= m - 1;
+            }
+            return Integer.numberOfTrailingZeros(m);
         }
     }
 
@@ -0,0 +1,177 @@
+package citadels;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The districts a player has built, in build order, together with running
+ * totals that are updated on every add and remove: districts per colour, a
+ * colour bitmask, a bitset of catalog IDs and the summed district cost.
+ * Income, duplicate checks and scoring read these instead of scanning the
+ * city or comparing names.
+ *
+ * It is a normal List, so existing code that adds to or removes from a
+ * player's city keeps the totals correct.
+ */
+public class City extends AbstractList<CardsAndDecks.DistrictCard> implements RandomAccess {
+    public static final int ALL_COLOURS = (1 << CardsAndDecks.DistrictColor.values().length) - 1;
+
+    private final CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+    private final CardsAndDecks.CardList districts;
+    private final int[] colourCounts;
+    private final long[] idBits;
+    private final int[] idCounts;
+    // districts whose names are not in the catalog, by lower-case name
+    private Map<String, Integer> otherNames;
+    private int colourMask;
+    private int baseScore;
+
+    public City() {
+        districts = new CardsAndDecks.CardList();
+        colourCounts = new int[CardsAndDecks.DistrictColor.values().length];
+        idBits = new long[(catalog.size() + 63) >>> 6];
+        idCounts = new int[catalog.size()];
+    }
+
+    /**
+     * A copy of other, totals included.
+     */
+    City(City other) {
+        districts = new CardsAndDecks.CardList(other.districts);
+        colourCounts = other.colourCounts.clone();
+        idBits = other.idBits.clone();
+        idCounts = other.idCounts.clone();
+        otherNames = other.otherNames == null ? null : new HashMap<>(other.otherNames);
+        colourMask = other.colourMask;
+        baseScore = other.baseScore;
+    }
+
+    @Override
+    public CardsAndDecks.DistrictCard get(int index) {
+        return districts.get(index);
+    }
+
+    @Override
+    public int size() {
+        return districts.size();
+    }
+
+    @Override
+    public void add(int index, CardsAndDecks.DistrictCard district) {
+        districts.add(index, district);
+        modCount++;
+        track(district, 1);
+    }
+
+    @Override
+    public CardsAndDecks.DistrictCard remove(int index) {
+        CardsAndDecks.DistrictCard removed = districts.remove(index);
+        modCount++;
+        track(removed, -1);
+        return removed;
+    }
+
+    @Override
+    public CardsAndDecks.DistrictCard set(int index, CardsAndDecks.DistrictCard district) {
+        CardsAndDecks.DistrictCard old = districts.set(index, district);
+        track(old, -1);
+        track(district, 1);
+        return old;
+    }
+
+    private void track(CardsAndDecks.DistrictCard d, int delta) {
+        int colour = d.getColour().ordinal();
+        colourCounts[colour] += delta;
+        if (colourCounts[colour] > 0) colourMask |= 1 << colour;
+        else colourMask &= ~(1 << colour);
+        baseScore += delta * d.getCost();
+
+        int id = d.getId();
+        if (id >= 0) {
+            idCounts[id] += delta;
+            if (idCounts[id] > 0) idBits[id >>> 6] |= 1L << id;
+            else idBits[id >>> 6] &= ~(1L << id);
+        } else {
+            if (otherNames == null) otherNames = new HashMap<>();
+            otherNames.merge(d.getName().toLowerCase(Locale.ROOT), delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    public int colourCount(CardsAndDecks.DistrictColor colour) {
+        return colourCounts[colour.ordinal()];
+    }
+
+    /**
+     * Bit (1 << colour.ordinal()) is set for every colour with at least one district.
+     */
+    public int colourMask() {
+        return colourMask;
+    }
+
+    /**
+     * True if a district with this catalog ID is built.
+     */
+    public boolean has(int id) {
+        return id >= 0 && id < idCounts.length && (idBits[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * True if a district with the same name as this card is built.
+     */
+    public boolean hasDistrict(CardsAndDecks.DistrictCard card) {
+        return card.getId() >= 0 ? has(card.getId()) : countOther(card.getName()) > 0;
+    }
+
+    /**
+     * True if a district with this name (case-insensitive) is built.
+     */
+    public boolean containsName(String name) {
+        return count(name) > 0;
+    }
+
+    /**
+     * How many built districts have this catalog ID.
+     */
+    public int count(int id) {
+        return id >= 0 && id < idCounts.length ? idCounts[id] : 0;
+    }
+
+    /**
+     * How many built districts have this name.
+     */
+    public int count(String name) {
+        int id = catalog.idOf(name);
+        return id >= 0 ? idCounts[id] : countOther(name);
+    }
+
+    private int countOther(String name) {
+        if (otherNames == null) return 0;
+        Integer n = otherNames.get(name.toLowerCase(Locale.ROOT));
+        return n == null ? 0 : n;
+    }
+
+    /**
+     * The catalog IDs of the built districts.
+     */
+    public BitSet ids() {
+        return BitSet.valueOf(idBits);
+    }
+
+    /**
+     * Hash of the built districts, ignoring build order (see Game.stateHash).
+     */
+    public long contentHash() {
+        return districts.contentHash();
+    }
+
+    /**
+     * Sum of the costs of all built districts.
+     */
+    public int baseScore() {
+        return baseScore;
+    }
+}
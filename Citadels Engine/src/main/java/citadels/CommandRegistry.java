@@ -0,0 +1,261 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses console commands into Command objects and keeps a latency
+ * histogram per verb.
+ *
+ * Parsing walks the input CharSequence once without regexes, and verbs are
+ * looked up case-insensitively in a small hash table built once. Commands
+ * without arguments ("hand", "gold", ...) are shared instances, so typing
+ * them allocates nothing. A message may carry several commands separated by
+ * ';' or newlines.
+ */
+public final class CommandRegistry {
+
+    public enum Verb {
+        TURN("t"),
+        HAND("hand"),
+        GOLD("gold"),
+        CARDS("cards"),
+        BUILD("build"),
+        CITY("city", "citadel"),
+        INFO("info"),
+        ACTION("action"),
+        END("end"),
+        ALL("all"),
+        SAVE("save"),
+        LOAD("load"),
+        HELP("help"),
+        DEBUG("debug"),
+        STATS("stats"),
+        UNKNOWN();
+
+        private final String[] names;
+
+        Verb(String... names) {
+            this.names = names;
+        }
+    }
+
+    /**
+     * One parsed command: the verb and whatever followed it on the line.
+     */
+    public static final class Command {
+        private static final Command[] BARE = new Command[Verb.values().length];
+
+        static {
+            for (Verb v : Verb.values()) {
+                BARE[v.ordinal()] = new Command(v, null, false, 0, null);
+            }
+        }
+
+        public final Verb verb;
+        // everything after the verb, trimmed; null if nothing followed it
+        public final String argument;
+        public final boolean hasNumber;
+        // the first argument, if it is a whole number
+        public final int number;
+        // the whole command split on whitespace, verb first; only kept for "action"
+        private final String[] tokens;
+
+        private Command(Verb verb, String argument, boolean hasNumber, int number, String[] tokens) {
+            this.verb = verb;
+            this.argument = argument;
+            this.hasNumber = hasNumber;
+            this.number = number;
+            this.tokens = tokens;
+        }
+
+        public boolean hasArgument() {
+            return argument != null;
+        }
+
+        /**
+         * The first word of the argument, or null.
+         */
+        public String firstWord() {
+            if (argument == null) return null;
+            int end = 0;
+            while (end < argument.length() && !Character.isWhitespace(argument.charAt(end))) end++;
+            return argument.substring(0, end);
+        }
+
+        /**
+         * The command split on whitespace, verb first, as the ability handler expects.
+         */
+        public String[] tokens() {
+            return tokens != null ? tokens : new String[] { verb.names.length > 0 ? verb.names[0] : "" };
+        }
+    }
+
+    private static final CommandRegistry STANDARD = new CommandRegistry();
+
+    // open addressing: slot -> verb, keyed by case-folded name
+    private final String[] names = new String[64];
+    private final Verb[] verbs = new Verb[64];
+    private final EngineMetrics.Histogram[] latency = new EngineMetrics.Histogram[Verb.values().length];
+
+    public CommandRegistry() {
+        for (Verb v : Verb.values()) {
+            for (String name : v.names) {
+                int slot = hash(name, 0, name.length()) & (names.length - 1);
+                while (names[slot] != null) slot = (slot + 1) & (names.length - 1);
+                names[slot] = name;
+                verbs[slot] = v;
+            }
+            latency[v.ordinal()] = new EngineMetrics.Histogram();
+        }
+    }
+
+    /**
+     * The registry games use unless given another, so counters cover every game in the JVM.
+     */
+    public static CommandRegistry standard() {
+        return STANDARD;
+    }
+
+    public Command parse(CharSequence line) {
+        return parse(line, 0, line.length());
+    }
+
+    /**
+     * Parses line[start, end). A blank range parses as UNKNOWN.
+     */
+    public Command parse(CharSequence line, int start, int end) {
+        while (start < end && Character.isWhitespace(line.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) end--;
+
+        int verbEnd = start;
+        while (verbEnd < end && !Character.isWhitespace(line.charAt(verbEnd))) verbEnd++;
+        Verb verb = lookup(line, start, verbEnd);
+
+        int argStart = verbEnd;
+        while (argStart < end && Character.isWhitespace(line.charAt(argStart))) argStart++;
+        if (argStart == end) return Command.BARE[verb.ordinal()];
+
+        int numEnd = argStart;
+        while (numEnd < end && !Character.isWhitespace(line.charAt(numEnd))) numEnd++;
+        long number = parseInt(line, argStart, numEnd);
+        boolean hasNumber = number != Long.MIN_VALUE;
+
+        String argument = line.subSequence(argStart, end).toString();
+        String[] tokens = verb == Verb.ACTION ? split(line, start, end) : null;
+        return new Command(verb, argument, hasNumber, hasNumber ? (int) number : 0, tokens);
+    }
+
+    /**
+     * Parses every command in a message; commands are separated by ';' or
+     * line breaks and blank ones are skipped.
+     */
+    public List<Command> parseBatch(CharSequence message) {
+        List<Command> commands = new ArrayList<>();
+        int start = 0;
+        int n = message.length();
+        for (int i = 0; i <= n; i++) {
+            if (i == n || isSeparator(message.charAt(i))) {
+                if (!isBlank(message, start, i)) commands.add(parse(message, start, i));
+                start = i + 1;
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Adds one execution of verb that took the given time.
+     */
+    public void record(Verb verb, long elapsedNanos) {
+        latency[verb.ordinal()].record(elapsedNanos);
+    }
+
+    public long count(Verb verb) {
+        return latency[verb.ordinal()].count();
+    }
+
+    public long totalNanos(Verb verb) {
+        return latency[verb.ordinal()].totalNanos();
+    }
+
+    public EngineMetrics.Histogram histogram(Verb verb) {
+        return latency[verb.ordinal()];
+    }
+
+    /**
+     * One line per verb that has run: count and latency.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Verb v : Verb.values()) {
+            if (count(v) == 0) continue;
+            sb.append(latency[v.ordinal()].line(v.name().toLowerCase()));
+        }
+        return sb.toString();
+    }
+
+    private Verb lookup(CharSequence s, int start, int end) {
+        int slot = hash(s, start, end) & (names.length - 1);
+        while (names[slot] != null) {
+            if (equalsIgnoreCase(names[slot], s, start, end)) return verbs[slot];
+            slot = (slot + 1) & (names.length - 1);
+        }
+        return Verb.UNKNOWN;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + Character.toLowerCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence s, int start, int end) {
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != Character.toLowerCase(s.charAt(start + i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The decimal integer in s[start, end), or Long.MIN_VALUE if it is not one.
+     */
+    static long parseInt(CharSequence s, int start, int end) {
+        boolean negative = start < end && s.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 9) return Long.MIN_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return Long.MIN_VALUE;
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static String[] split(CharSequence s, int start, int end) {
+        List<String> tokens = new ArrayList<>();
+        int i = start;
+        while (i < end) {
+            while (i < end && Character.isWhitespace(s.charAt(i))) i++;
+            int j = i;
+            while (j < end && !Character.isWhitespace(s.charAt(j))) j++;
+            if (j > i) tokens.add(s.subSequence(i, j).toString());
+            i = j;
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isBlank(CharSequence s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(s.charAt(i))) return false;
+        }
+        return true;
+    }
+}
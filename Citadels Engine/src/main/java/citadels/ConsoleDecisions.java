@@ -0,0 +1,127 @@
+package citadels;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Asks a human at the game's console.
+ */
+public class ConsoleDecisions implements DecisionProvider {
+
+    @Override
+    public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+        PrintStream out = game.out();
+        out.println("Choose your character. Available characters:");
+        for (CardsAndDecks.CharacterCard c : available) {
+            out.println(" - " + c.getName());
+        }
+
+        while (true) {
+            String input = game.getConsole().nextLine().trim();
+            for (CardsAndDecks.CharacterCard c : available) {
+                if (c.getName().equalsIgnoreCase(input)) {
+                    return c;
+                }
+            }
+            out.print("> ");
+        }
+    }
+
+    @Override
+    public Income chooseIncome(Game game, Player player) {
+        game.out().println("Do you want to take 2 gold or draw 2 cards? (gold/cards)");
+        String choice = game.getConsole().nextLine().trim().toLowerCase();
+        if (choice.equals("gold")) return Income.GOLD;
+        if (choice.equals("cards")) return Income.CARDS;
+        game.out().println("Invalid input. You receive 2 gold by default.");
+        return Income.GOLD;
+    }
+
+    @Override
+    public int chooseDiscard(Game game, Player player) {
+        PrintStream out = game.out();
+        out.println("You drew 2 cards:");
+        player.showHand(out);
+
+        out.println("Enter the index of the card you want to discard:");
+        while (true) {
+            try {
+                int index = Integer.parseInt(game.getConsole().nextLine().trim());
+                if (index >= 0 && index < player.getHand().size()) return index;
+            } catch (NumberFormatException ignored) {}
+            out.println("Invalid input. Please enter a valid card index:");
+        }
+    }
+
+    // Humans build with the "build" command during their turn
+    @Override
+    public int chooseBuild(Game game, Player player) {
+        return -1;
+    }
+
+    @Override
+    public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+        game.out().println("Enter character number (" + minRank + "-" + maxRank + "): ");
+        try {
+            return game.getConsole().nextInt();
+        } catch (Exception e) {
+            game.out().println("Invalid input.");
+            return -1;
+        }
+    }
+
+    @Override
+    public MagicianMove chooseMagicianMove(Game game, Player player) {
+        Scanner console = game.getConsole();
+        game.out().println("Choose: 1. Swap hands  2. Redraw");
+        int choice = console.nextInt();
+        console.nextLine();
+        if (choice == 1) {
+            game.out().println("Enter player number to swap with:");
+            int swapPlayer = console.nextInt();
+            if (swapPlayer < 1 || swapPlayer > game.getPlayers().size()) return null;
+            return MagicianMove.swap(game.getPlayers().get(swapPlayer - 1));
+        }
+
+        game.out().println("Enter indexes to discard (comma-separated):");
+        List<Integer> indexes = new ArrayList<>();
+        for (String s : console.nextLine().split(",")) {
+            try {
+                indexes.add(Integer.parseInt(s.trim()));
+            } catch (NumberFormatException e) {
+                game.out().println("Invalid index: " + s);
+            }
+        }
+        return MagicianMove.redraw(indexes);
+    }
+
+    @Override
+    public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+        PrintStream out = game.out();
+        out.println("Choose a player to destroy a district from:");
+        for (int i = 0; i < targets.size(); i++) {
+            out.println(i + ": " + targets.get(i).getName());
+        }
+
+        int targetIndex = game.getConsole().nextInt();
+        if (targetIndex < 0 || targetIndex >= targets.size()) return null;
+
+        City city = targets.get(targetIndex).getCity();
+        out.println("Choose a district to destroy:");
+        for (int i = 0; i < city.size(); i++) {
+            CardsAndDecks.DistrictCard d = city.get(i);
+            out.println(i + ": " + d.getName() + " (Cost " + d.getCost() + ")");
+        }
+
+        int districtIndex = game.getConsole().nextInt();
+        if (districtIndex < 0 || districtIndex >= city.size()) return null;
+        return new DistrictTarget(targetIndex, districtIndex);
+    }
+
+    @Override
+    public String nextCommand(Game game, Player player) {
+        return game.getConsole().nextLine();
+    }
+}
@@ -0,0 +1,210 @@
+package citadels;
+
+import java.io.PrintStream;
+import java.util.function.Supplier;
+
+/**
+ * Renders game events as console text. This is the output a player sees in
+ * an interactive game.
+ */
+public class ConsoleRenderer implements GameListener {
+    private final Supplier<PrintStream> out;
+    // face-down discards so far this selection phase; the second is the final one
+    private int hiddenDiscards;
+
+    public ConsoleRenderer() {
+        this(() -> System.out);
+    }
+
+    /**
+     * Renders to whatever stream out supplies at the time of each event.
+     */
+    public ConsoleRenderer(Supplier<PrintStream> out) {
+        this.out = out;
+    }
+
+    // Looked up on every print so output follows System.setOut
+    protected PrintStream out() {
+        return out.get();
+    }
+
+    private static String describe(CardsAndDecks.DistrictCard d) {
+        return d.getName() + " [" + d.getColour().name().toLowerCase() + d.getCost() + "]";
+    }
+
+    @Override
+    public void selectionPhaseStarted() {
+        out().println("\n================================");
+        out().println("SELECTION PHASE");
+        out().println("================================");
+        hiddenDiscards = 0;
+    }
+
+    @Override
+    public void characterDiscarded(CardsAndDecks.CharacterCard character, boolean faceUp) {
+        if (faceUp) {
+            out().println(character.getName() + " was removed and placed face-up.");
+        } else if (hiddenDiscards++ == 0) {
+            out().println("A mystery character was removed.");
+        } else {
+            out().println("One final character was discarded face-down.");
+        }
+    }
+
+    @Override
+    public void characterChosen(Player player, CardsAndDecks.CharacterCard character) {
+        out().println(player.getName() + " chose a character.");
+    }
+
+    @Override
+    public void turnPhaseStarted() {
+        out().println("\n================================");
+        out().println("TURN PHASE");
+        out().println("================================");
+    }
+
+    @Override
+    public void turnStarted(Player player, CardsAndDecks.CharacterCard character) {
+        out().println(character.getRank() + ": " + character.getName());
+        out().println(player.getName() + " is the " + character.getName());
+    }
+
+    @Override
+    public void turnSkipped(Player player) {
+        out().println(player.getName() + " was assassinated. Skipping turn.");
+    }
+
+    @Override
+    public void turnEnded(Player player) {
+        out().println();
+    }
+
+    @Override
+    public void assassinated(Player assassin, int rank, String characterName) {
+        out().println(assassin.getName() + " assassinated the " + characterName + ".");
+    }
+
+    @Override
+    public void robbed(Player thief, int rank, String characterName) {
+        out().println(thief.getName() + " robbed the " + characterName + ".");
+    }
+
+    @Override
+    public void goldStolen(Player thief, Player victim, int amount) {
+        out().println(victim.getName() + " has been robbed.");
+    }
+
+    @Override
+    public void handsSwapped(Player player, Player other) {
+        if (player instanceof HumanPlayer) {
+            out().println("You swapped hands with " + other.getName());
+        } else {
+            out().println(player.getName() + " (AI) swaps hands with " + other.getName());
+        }
+    }
+
+    @Override
+    public void cardsRedrawn(Player player, int count) {
+        if (player instanceof HumanPlayer) {
+            out().println("You redrew some cards.");
+        } else {
+            out().println(player.getName() + " (AI) redraws their hand.");
+        }
+    }
+
+    @Override
+    public void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {
+        out().println("Destroyed " + district.getName() + " for " + paid + " gold.");
+    }
+
+    @Override
+    public void goldGained(Player player, int amount, GoldSource source, CardsAndDecks.DistrictColor colour) {
+        switch (source) {
+            case INCOME:
+                if (player instanceof HumanPlayer) {
+                    out().println("You collected " + amount + " gold.");
+                } else {
+                    out().println(player.getName() + " (AI) collected " + amount + " gold.");
+                }
+                break;
+            case DISTRICTS:
+                out().println(player.getName() + " gains " + amount + " gold from " + colour + " districts.");
+                break;
+            case MERCHANT:
+                out().println(player.getName() + " receives +" + amount + " gold from Merchant ability.");
+                break;
+        }
+    }
+
+    @Override
+    public void cardsDrawn(Player player, int count, CardsAndDecks.DistrictCard discarded) {
+        if (player instanceof HumanPlayer) {
+            if (discarded != null) out().println("You discarded: " + discarded.getName());
+        } else if (discarded != null) {
+            out().println(player.getName() + " (AI) drew cards and discarded: " + discarded.getName());
+        } else {
+            out().println(player.getName() + " (AI) drew cards but had nothing to discard.");
+        }
+    }
+
+    @Override
+    public void districtBuilt(Player player, CardsAndDecks.DistrictCard district) {
+        out().println("You built " + describe(district));
+    }
+
+    @Override
+    public void buildSkipped(Player player) {
+        out().println(player.getName() + " (AI) could not build any districts.");
+    }
+
+    @Override
+    public void extraCardsDrawn(Player player, int count) {
+        out().println(player.getName() + " draws " + count + " extra cards and may build up to 3 districts.");
+    }
+
+    @Override
+    public void scoringStarted() {
+        out().println("\n==========================");
+        out().println("        GAME OVER");
+        out().println("==========================");
+        out().println("\n--- FINAL SCORES ---");
+    }
+
+    @Override
+    public void scoringPlayer(Player player) {
+        out().println("\n--- Scoring for " + player.getName() + " ---");
+    }
+
+    @Override
+    public void colourFilled(Player player, CardsAndDecks.DistrictCard district, CardsAndDecks.DistrictColor colour) {
+        out().println(player.getName() + " uses " + district.getName() + " to fill missing color: " + colour);
+    }
+
+    @Override
+    public void scoreBonus(Player player, ScoreBonus bonus, int points) {
+        switch (bonus) {
+            case DRAGON_GATE:
+                out().println(player.getName() + " has Dragon Gate (+" + points + " points)");
+                break;
+            case ALL_COLOURS:
+                out().println(player.getName() + " has all 5 district types (+" + points + " points)");
+                break;
+            case FIRST_FINISHER:
+                out().println(player.getName() + " finished first (+" + points + " points)");
+                break;
+            case COMPLETED_CITY:
+                out().println(player.getName() + " completed city (+" + points + " points)");
+                break;
+        }
+    }
+
+    @Override
+    public void scoreComputed(Player player, int score) {
+        out().println(player.getName() + " final score: " + score);
+    }
+
+    @Override
+    public void winnerDeclared(Player winner, int score) {
+        out().println("\n Winner: " + winner.getName() + " with " + score + " points!");
+    }
+}
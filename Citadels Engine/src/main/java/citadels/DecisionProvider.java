@@ -0,0 +1,91 @@
+package citadels;
+
+import java.util.List;
+
+/**
+ * Makes a player's choices. The engine asks the player's provider whenever
+ * the rules need a decision and never reads the console itself:
+ * ConsoleDecisions prompts a human, AIDecisions decides on the spot from the
+ * game's random generator, and ScriptedDecisions plays back a fixed list of
+ * answers.
+ */
+public interface DecisionProvider {
+
+    enum Income {
+        GOLD,
+        CARDS
+    }
+
+    /**
+     * Picks one of the available characters, or null if none can be picked.
+     */
+    CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available);
+
+    Income chooseIncome(Game game, Player player);
+
+    /**
+     * After drawing for income: index of the hand card to put back, or -1 to keep all.
+     */
+    int chooseDiscard(Game game, Player player);
+
+    /**
+     * Index of the hand card to build next, or -1 to stop building.
+     */
+    int chooseBuild(Game game, Player player);
+
+    /**
+     * Rank of the character to assassinate or rob, in [minRank, maxRank], or -1 for none.
+     */
+    int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank);
+
+    /**
+     * The Magician's move, or null to do nothing.
+     */
+    MagicianMove chooseMagicianMove(Game game, Player player);
+
+    /**
+     * The district the Warlord destroys, or null to destroy nothing.
+     */
+    DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets);
+
+    /**
+     * Next command typed during an interactive turn; "end" ends the turn.
+     */
+    default String nextCommand(Game game, Player player) {
+        return "end";
+    }
+
+    /**
+     * Swap hands with a player, or put back the given hand cards and draw as many.
+     */
+    final class MagicianMove {
+        public final Player swapWith;
+        public final List<Integer> redraw;
+
+        private MagicianMove(Player swapWith, List<Integer> redraw) {
+            this.swapWith = swapWith;
+            this.redraw = redraw;
+        }
+
+        public static MagicianMove swap(Player other) {
+            return new MagicianMove(other, null);
+        }
+
+        public static MagicianMove redraw(List<Integer> handIndexes) {
+            return new MagicianMove(null, handIndexes);
+        }
+    }
+
+    /**
+     * A district to destroy: index into the targets list, then into that player's city.
+     */
+    final class DistrictTarget {
+        public final int player;
+        public final int district;
+
+        public DistrictTarget(int player, int district) {
+            this.player = player;
+            this.district = district;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package citadels;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import citadels.CardsAndDecks.Ability;
+import citadels.CommandRegistry.Verb;
+
+/**
+ * Where the engine spends its time: a latency histogram per game phase and
+ * per character ability, next to the per-command histograms kept by
+ * CommandRegistry.
+ *
+ * Recording is a few LongAdder increments with no locks and no allocation,
+ * so it stays on in production. While a Flight Recorder recording has the
+ * citadels.Timing event enabled, every recorded span is also committed as
+ * an event. The global instance is published over JMX by registerMBean and
+ * printed by the 'stats' command; copied games record into NONE.
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    public enum Phase {
+        SELECTION, TURNS, TAKE_TURN, SAVE, LOAD, AUTOSAVE
+    }
+
+    /**
+     * Latency histogram with power-of-two buckets: bucket b counts spans of
+     * [2^b, 2^(b+1)) nanoseconds.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 48;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        public Histogram() {
+            for (int b = 0; b < BUCKETS; b++) {
+                buckets[b] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            buckets[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1))].increment();
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long totalNanos() {
+            return total.sum();
+        }
+
+        public long maxNanos() {
+            return max.get();
+        }
+
+        /**
+         * Upper bound of the bucket holding quantile q (0 to 1), within a factor of two.
+         */
+        public long percentileNanos(double q) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets[b].sum();
+                if (seen >= rank) return Math.min(1L << (b + 1), maxNanos());
+            }
+            return maxNanos();
+        }
+
+        public void reset() {
+            count.reset();
+            total.reset();
+            max.reset();
+            for (LongAdder b : buckets) b.reset();
+        }
+
+        // one report line: name, count, mean, p50, p99 and max
+        String line(String name) {
+            long n = count();
+            return String.format("%-16s %8d  mean %8.1f us  p50 %8.1f  p99 %8.1f  max %8.1f%n",
+                    name, n, totalNanos() / 1000.0 / n, percentileNanos(0.5) / 1000.0,
+                    percentileNanos(0.99) / 1000.0, maxNanos() / 1000.0);
+        }
+    }
+
+    @Name("citadels.Timing")
+    @Label("Citadels Timing")
+    @Category("Citadels")
+    static final class TimingEvent extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Name")
+        String name;
+        @Label("Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+    }
+
+    private static final EngineMetrics GLOBAL = new EngineMetrics(true);
+
+    /** Records nothing; used by copied games so search playouts stay out of the numbers. */
+    public static final EngineMetrics NONE = new EngineMetrics(false);
+
+    private static final EventType TIMING = EventType.getEventType(TimingEvent.class);
+    private static final String[] PHASE_NAMES = names(Phase.values());
+    private static final String[] ABILITY_NAMES = names(Ability.values());
+
+    private final boolean enabled;
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Histogram[] abilities = new Histogram[Ability.values().length];
+
+    public EngineMetrics() {
+        this(true);
+    }
+
+    private EngineMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < phases.length; i++) phases[i] = new Histogram();
+        for (int i = 0; i < abilities.length; i++) abilities[i] = new Histogram();
+    }
+
+    /**
+     * The instance games record into unless given another.
+     */
+    public static EngineMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Publishes the global metrics as citadels:type=EngineMetrics on the
+     * platform MBean server. Safe to call more than once.
+     */
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("citadels:type=EngineMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not register engine metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a phase that began at startNanos (a System.nanoTime value).
+     */
+    public void record(Phase phase, long startNanos) {
+        if (!enabled) return;
+        long nanos = System.nanoTime() - startNanos;
+        phases[phase.ordinal()].record(nanos);
+        if (TIMING.isEnabled()) commit("phase", PHASE_NAMES[phase.ordinal()], nanos);
+    }
+
+    /**
+     * Records a special action of the given ability that began at startNanos.
+     */
+    public void record(Ability ability, long startNanos) {
+        if (!enabled) return;
+        long nanos = System.nanoTime() - startNanos;
+        abilities[ability.ordinal()].record(nanos);
+        if (TIMING.isEnabled()) commit("ability", ABILITY_NAMES[ability.ordinal()], nanos);
+    }
+
+    private static void commit(String kind, String name, long nanos) {
+        TimingEvent e = new TimingEvent();
+        e.kind = kind;
+        e.name = name;
+        e.nanos = nanos;
+        e.commit();
+    }
+
+    public Histogram phase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public Histogram ability(Ability ability) {
+        return abilities[ability.ordinal()];
+    }
+
+    /**
+     * One line per phase and ability that has been recorded.
+     */
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Phase p : Phase.values()) {
+            if (phase(p).count() > 0) sb.append(phase(p).line(PHASE_NAMES[p.ordinal()]));
+        }
+        for (Ability a : Ability.values()) {
+            if (ability(a).count() > 0) sb.append(ability(a).line(ABILITY_NAMES[a.ordinal()]));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        forEach((name, h) -> counts.put(name, h.count()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        forEach((name, h) -> means.put(name, h.count() == 0 ? 0 : h.totalNanos() / 1000.0 / h.count()));
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        Map<String, Double> p99 = new LinkedHashMap<>();
+        forEach((name, h) -> p99.put(name, h.percentileNanos(0.99) / 1000.0));
+        return p99;
+    }
+
+    @Override
+    public void reset() {
+        forEach((name, h) -> h.reset());
+    }
+
+    // every histogram by dotted name; the global instance adds the standard registry's commands
+    private void forEach(BiConsumer<String, Histogram> action) {
+        for (Phase p : Phase.values()) action.accept("phase." + PHASE_NAMES[p.ordinal()], phase(p));
+        for (Ability a : Ability.values()) action.accept("ability." + ABILITY_NAMES[a.ordinal()], ability(a));
+        if (this != GLOBAL) return;
+        CommandRegistry standard = CommandRegistry.standard();
+        for (Verb v : Verb.values()) action.accept("command." + v.name().toLowerCase(), standard.histogram(v));
+    }
+
+    private static String[] names(Enum<?>[] values) {
+        String[] names = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().toLowerCase();
+        }
+        return names;
+    }
+}
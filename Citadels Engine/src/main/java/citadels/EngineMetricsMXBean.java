@@ -0,0 +1,16 @@
+package citadels;
+
+import java.util.Map;
+
+/**
+ * Management view of EngineMetrics, seen in JConsole / VisualVM under
+ * citadels:type=EngineMetrics. Keys are "phase.selection",
+ * "ability.assassin", "command.build" and so on.
+ */
+public interface EngineMetricsMXBean {
+    Map<String, Long> getCounts();
+    Map<String, Double> getMeanMicros();
+    Map<String, Double> getP99Micros();
+    String getReport();
+    void reset();
+}
@@ -0,0 +1,491 @@
+package citadels;
+
+import java.util.Arrays;
+
+/**
+ * The rules of an all-AI game with the whole table held in primitive
+ * arrays: gold, hands and cities as catalog IDs, a bitset of built
+ * districts and colour counts per seat, character ranks, the crown and the
+ * district pile. There are no Player, card or list objects, and nothing is
+ * allocated once the table is dealt.
+ *
+ * It plays exactly what Game.setupHeadless and Game.play do with every seat
+ * on AIDecisions, drawing from the same generator in the same order, so a
+ * seed gives the same game in both engines (FastEngineTest checks this).
+ * Any rule change in Game, TurnManager, Player or AIDecisions must be made
+ * here too.
+ */
+public final class FastEngine {
+    private static final CardsAndDecks.CardCatalog CATALOG = CardsAndDecks.CardCatalog.get();
+    private static final int COLOURS = CardsAndDecks.DistrictColor.values().length;
+    private static final int ALL_COLOURS = (1 << COLOURS) - 1;
+    private static final int RED = CardsAndDecks.DistrictColor.RED.ordinal();
+    private static final int YELLOW = CardsAndDecks.DistrictColor.YELLOW.ordinal();
+    private static final int GREEN = CardsAndDecks.DistrictColor.GREEN.ordinal();
+    private static final int BLUE = CardsAndDecks.DistrictColor.BLUE.ordinal();
+    private static final int PURPLE = CardsAndDecks.DistrictColor.PURPLE.ordinal();
+    private static final int[] COST = new int[CATALOG.size()];
+    private static final int[] COLOUR = new int[CATALOG.size()];
+
+    // character ranks, as dealt by CharacterDeck
+    private static final int ASSASSIN = 1;
+    private static final int THIEF = 2;
+    private static final int MAGICIAN = 3;
+    private static final int KING = 4;
+    private static final int BISHOP = 5;
+    private static final int MERCHANT = 6;
+    private static final int ARCHITECT = 7;
+    private static final int WARLORD = 8;
+    private static final int ALL_CHARACTERS = 0x1FE;
+
+    static {
+        for (int id = 0; id < CATALOG.size(); id++) {
+            COST[id] = CATALOG.card(id).getCost();
+            COLOUR[id] = CATALOG.card(id).getColour().ordinal();
+        }
+    }
+
+    private final GameRandom rng;
+    private final int n;
+    private final int words;
+
+    private final int[] gold;
+    private int[][] hands;
+    private final int[] handSize;
+    private final int[][] cities;
+    private final int[] citySize;
+    // n * words longs: bit id of seat s is set if s has built district id
+    private final long[] cityBits;
+    // n * COLOURS districts per colour
+    private final int[] colourCounts;
+    private final int[] baseScore;
+    private final int[] character;
+    private final int[] seatByRank = new int[9];
+    // the Magician's discards, held until the new cards are drawn
+    private int[] redraw = new int[16];
+
+    private final int[] deck;
+    private int deckSize;
+
+    private int crown;
+    private int characterMask;
+    private int assassinated = -1;
+    private int robbed = -1;
+    private int thief = -1;
+    private int firstFinisher = -1;
+    private int rounds;
+    private int maxRounds;
+    private int[] finalScores;
+    private int winner = -1;
+
+    /**
+     * Deals a table of numPlayers exactly as new Game(seed).setupHeadless(numPlayers) does.
+     */
+    public FastEngine(long seed, int numPlayers) {
+        if (numPlayers < 1) {
+            throw new IllegalArgumentException("A game needs players");
+        }
+        this.rng = new GameRandom(seed);
+        this.n = numPlayers;
+        this.words = (CATALOG.size() + 63) >>> 6;
+        gold = new int[n];
+        Arrays.fill(gold, 2);
+        hands = new int[n][16];
+        handSize = new int[n];
+        cities = new int[n][CATALOG.size()];
+        citySize = new int[n];
+        cityBits = new long[n * words];
+        colourCounts = new int[n * COLOURS];
+        baseScore = new int[n];
+        character = new int[n];
+
+        deck = new int[CATALOG.deckSize()];
+        for (int id = 0; id < CATALOG.size(); id++) {
+            for (int i = 0; i < CATALOG.quantity(id); i++) {
+                deck[deckSize++] = id;
+            }
+        }
+        for (int i = deckSize - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            int tmp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = tmp;
+        }
+        for (int s = 0; s < n; s++) {
+            drawInto(s, 4);
+        }
+        crown = rng.nextInt(n);
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Plays rounds until a city is complete or the round limit is reached, then scores.
+     */
+    public void play() {
+        while (!isGameOver() && (maxRounds <= 0 || rounds < maxRounds)) {
+            selectCharacters();
+            playTurns();
+            rounds++;
+        }
+        finalizeScores();
+    }
+
+    public boolean isGameOver() {
+        for (int s = 0; s < n; s++) {
+            if (citySize[s] >= 8) return true;
+        }
+        return false;
+    }
+
+    // TurnManager.runSelectionPhase
+    private void selectCharacters() {
+        characterMask = ALL_CHARACTERS;
+        assassinated = -1;
+        robbed = -1;
+        thief = -1;
+
+        if (drawCharacter() < 0) return;
+        int faceUp = n == 4 ? 2 : (n == 5 ? 1 : 0);
+        for (int removed = 0; removed < faceUp; ) {
+            int rank = drawCharacter();
+            if (rank < 0) break;
+            if (rank == KING) {
+                characterMask |= 1 << KING;
+            } else {
+                removed++;
+            }
+        }
+
+        int first = crown;
+        for (int i = 0; i < n; i++) {
+            int seat = (first + i) % n;
+            if (characterMask == 0) return;
+            int rank = nthRank(rng.nextInt(Integer.bitCount(characterMask)));
+            characterMask &= ~(1 << rank);
+            character[seat] = rank;
+            if (rank == KING) crown = seat;
+        }
+
+        if (n >= 5 && characterMask != 0) {
+            drawCharacter();
+        }
+    }
+
+    private int drawCharacter() {
+        if (characterMask == 0) return -1;
+        int rank = nthRank(rng.nextInt(Integer.bitCount(characterMask)));
+        characterMask &= ~(1 << rank);
+        return rank;
+    }
+
+    private int nthRank(int index) {
+        int m = characterMask;
+        for (int i = 0; i < index; i++) {
+            m &= m - 1;
+        }
+        return Integer.numberOfTrailingZeros(m);
+    }
+
+    // TurnManager.runTurnsFrom(1)
+    private void playTurns() {
+        Arrays.fill(seatByRank, -1);
+        for (int s = 0; s < n; s++) {
+            int rank = character[s];
+            if (rank >= 1 && rank <= 8 && seatByRank[rank] < 0) seatByRank[rank] = s;
+        }
+
+        for (int rank = 1; rank <= 8; rank++) {
+            int seat = seatByRank[rank];
+            if (seat < 0 || assassinated == rank) continue;
+
+            if (robbed == rank) {
+                int stolen = gold[seat];
+                gold[thief] += stolen;
+                gold[seat] -= stolen;
+            }
+            if (rank == ARCHITECT) {
+                drawInto(seat, 2);
+            }
+            takeTurn(seat, rank);
+        }
+    }
+
+    // Player.takeTurnFrom(INCOME) with AIDecisions
+    private void takeTurn(int seat, int rank) {
+        // income: cards when the hand is nearly empty, putting a random one back
+        if (handSize[seat] <= 1) {
+            drawInto(seat, 2);
+            int size = handSize[seat];
+            if (size > 1) {
+                returnCard(removeFromHand(seat, rng.nextInt(size)));
+            }
+        } else {
+            gold[seat] += 2;
+        }
+
+        switch (rank) {
+            case ASSASSIN:
+                assassinated = rng.nextInt(2, 9);
+                break;
+            case THIEF:
+                robbed = rng.nextInt(3, 9);
+                thief = seat;
+                break;
+            case MAGICIAN:
+                magician(seat);
+                break;
+            case KING:
+                gold[seat] += income(seat, YELLOW);
+                crown = seat;
+                break;
+            case BISHOP:
+                gold[seat] += income(seat, BLUE);
+                break;
+            case MERCHANT:
+                gold[seat] += income(seat, GREEN) + 1;
+                break;
+            case ARCHITECT:
+                drawInto(seat, 2);
+                break;
+            case WARLORD:
+                gold[seat] += income(seat, RED);
+                warlord(seat);
+                break;
+            default:
+                break;
+        }
+
+        int maxBuilds = rank == ARCHITECT ? 3 : 1;
+        int builds = 0;
+        int index;
+        while ((index = chooseBuild(seat)) >= 0 && builds < maxBuilds) {
+            build(seat, index);
+            builds++;
+        }
+    }
+
+    // Either redraw the whole hand or swap with a random other player
+    private void magician(int seat) {
+        if (rng.nextBoolean()) {
+            int size = handSize[seat];
+            if (redraw.length < size) redraw = new int[size * 2];
+            System.arraycopy(hands[seat], 0, redraw, 0, size);
+            handSize[seat] = 0;
+            drawInto(seat, size);
+            // put back highest index first, after drawing
+            for (int i = size - 1; i >= 0; i--) {
+                returnCard(redraw[i]);
+            }
+            return;
+        }
+        if (n < 2) return;
+        int other = rng.nextInt(n - 1);
+        if (other >= seat) other++;
+        int[] hand = hands[seat];
+        hands[seat] = hands[other];
+        hands[other] = hand;
+        int size = handSize[seat];
+        handSize[seat] = handSize[other];
+        handSize[other] = size;
+    }
+
+    // Destroy the most expensive district it can pay for, first found on ties
+    private void warlord(int seat) {
+        int bestSeat = -1;
+        int bestIndex = -1;
+        int bestCost = -1;
+        for (int t = 0; t < n; t++) {
+            if (t == seat) continue;
+            for (int d = 0; d < citySize[t]; d++) {
+                int cost = COST[cities[t][d]];
+                if (cost - 1 <= gold[seat] && cost > bestCost) {
+                    bestSeat = t;
+                    bestIndex = d;
+                    bestCost = cost;
+                }
+            }
+        }
+        if (bestSeat < 0) return;
+        gold[seat] -= bestCost - 1;
+        removeFromCity(bestSeat, bestIndex);
+    }
+
+    private int income(int seat, int colour) {
+        return colourCounts[seat * COLOURS + colour] + (has(seat, Player.SCHOOL_OF_MAGIC) ? 1 : 0);
+    }
+
+    // The most expensive district it can afford and has not built yet
+    private int chooseBuild(int seat) {
+        int[] hand = hands[seat];
+        int best = -1;
+        for (int i = 0; i < handSize[seat]; i++) {
+            int cost = COST[hand[i]];
+            if (cost <= gold[seat] && !has(seat, hand[i]) && (best < 0 || cost > COST[hand[best]])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void build(int seat, int index) {
+        int id = removeFromHand(seat, index);
+        gold[seat] -= COST[id];
+        cities[seat][citySize[seat]++] = id;
+        cityBits[seat * words + (id >>> 6)] |= 1L << id;
+        colourCounts[seat * COLOURS + COLOUR[id]]++;
+        baseScore[seat] += COST[id];
+        if (citySize[seat] >= 8 && firstFinisher < 0) {
+            firstFinisher = seat;
+        }
+    }
+
+    private void removeFromCity(int seat, int index) {
+        int[] city = cities[seat];
+        int id = city[index];
+        System.arraycopy(city, index + 1, city, index, citySize[seat] - index - 1);
+        citySize[seat]--;
+        cityBits[seat * words + (id >>> 6)] &= ~(1L << id);
+        colourCounts[seat * COLOURS + COLOUR[id]]--;
+        baseScore[seat] -= COST[id];
+    }
+
+    private boolean has(int seat, int id) {
+        return id >= 0 && (cityBits[seat * words + (id >>> 6)] & (1L << id)) != 0;
+    }
+
+    private void drawInto(int seat, int count) {
+        for (int i = 0; i < count && deckSize > 0; i++) {
+            int j = rng.nextInt(deckSize);
+            int id = deck[j];
+            deck[j] = deck[--deckSize];
+            if (handSize[seat] == hands[seat].length) {
+                hands[seat] = Arrays.copyOf(hands[seat], handSize[seat] * 2);
+            }
+            hands[seat][handSize[seat]++] = id;
+        }
+    }
+
+    private int removeFromHand(int seat, int index) {
+        int[] hand = hands[seat];
+        int id = hand[index];
+        System.arraycopy(hand, index + 1, hand, index, handSize[seat] - index - 1);
+        handSize[seat]--;
+        return id;
+    }
+
+    private void returnCard(int id) {
+        deck[deckSize++] = id;
+    }
+
+    // Game.finalizeScores and Game.score
+    private void finalizeScores() {
+        finalScores = new int[n];
+        int highest = -1;
+        winner = -1;
+        for (int s = 0; s < n; s++) {
+            int score = score(s);
+            finalScores[s] = score;
+            if (score > highest) {
+                highest = score;
+                winner = s;
+            } else if (score == highest && character[s] != 0 && character[winner] != 0
+                    && character[s] < character[winner]) {
+                winner = s;
+            }
+        }
+    }
+
+    private int score(int seat) {
+        int score = baseScore[seat];
+        int mask = 0;
+        for (int c = 0; c < COLOURS; c++) {
+            if (colourCounts[seat * COLOURS + c] > 0) mask |= 1 << c;
+        }
+        // the Haunted City counts as any one colour, so it may fill in a missing one
+        if (has(seat, Game.HAUNTED_CITY)) {
+            if (colourCounts[seat * COLOURS + PURPLE] == 1) mask &= ~(1 << PURPLE);
+            if (Integer.bitCount(mask) == COLOURS - 1) mask = ALL_COLOURS;
+        }
+        if (has(seat, Game.DRAGON_GATE)) score += 2;
+        if (mask == ALL_COLOURS) score += 3;
+        if (citySize[seat] >= 8) score += seat == firstFinisher ? 4 : 2;
+        return score;
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Seat of the winner, or -1 before the game has been scored.
+     */
+    public int getWinnerSeat() {
+        return winner;
+    }
+
+    public int[] getFinalScores() {
+        return finalScores;
+    }
+
+    /**
+     * Seat of the first player to complete a city, or -1.
+     */
+    public int getFirstFinisherSeat() {
+        return firstFinisher;
+    }
+
+    public int getPlayerCount() {
+        return n;
+    }
+
+    public int getCrownIndex() {
+        return crown;
+    }
+
+    public int getGold(int seat) {
+        return gold[seat];
+    }
+
+    /**
+     * Rank of the seat's character, or 0 if it has none.
+     */
+    public int getCharacterRank(int seat) {
+        return character[seat];
+    }
+
+    /**
+     * Catalog IDs of the seat's hand, in hand order.
+     */
+    public int[] getHand(int seat) {
+        return Arrays.copyOf(hands[seat], handSize[seat]);
+    }
+
+    /**
+     * Catalog IDs of the seat's city, in build order.
+     */
+    public int[] getCity(int seat) {
+        return Arrays.copyOf(cities[seat], citySize[seat]);
+    }
+
+    public int getDeckSize() {
+        return deckSize;
+    }
+
+    /**
+     * Plays one game and reports it as Simulator does.
+     */
+    public static Simulator.GameResult playOne(int numPlayers, long seed, int maxRounds) {
+        return playOne(numPlayers, seed, maxRounds, null);
+    }
+
+    static Simulator.GameResult playOne(int numPlayers, long seed, int maxRounds, SimulationStats stats) {
+        FastEngine engine = new FastEngine(seed, numPlayers);
+        engine.setMaxRounds(maxRounds);
+        engine.play();
+        if (stats != null) stats.record(engine);
+        return new Simulator.GameResult(seed, engine.getRounds(), engine.isGameOver(), engine.getWinnerSeat(), engine.getFinalScores());
+    }
+}
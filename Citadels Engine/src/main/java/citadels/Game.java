@@ -3,10 +3,12 @@ package citadels;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.Scanner;
 
 import org.json.simple.JSONArray;
@@ -14,6 +16,9 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
 public class Game{
+    static final int HAUNTED_CITY = CardsAndDecks.CardCatalog.get().idOf("Haunted City");
+    static final int DRAGON_GATE = CardsAndDecks.CardCatalog.get().idOf("Dragon Gate");
+
     private List<Player> players;
     private TurnManager turnManager;
     private CardsAndDecks.DistrictDeck districtDeck;
@@ -24,6 +29,24 @@ public class Game{
     private Player currentPlayer;
     private Player firstFinisher = null;
     private boolean debugMode = false;
+    private long seed;
+    private GameRandom random;
+    private int rounds = 0;
+    private int maxRounds = 0;
+    private int[] finalScores;
+    private Player winner;
+    private PrintStream output;
+    private GameListener listener;
+    private CommandRegistry commands = CommandRegistry.standard();
+    private EngineMetrics metrics = EngineMetrics.global();
+    private Autosaver autosaver;
+    private Ponderer ponderer;
+    private TurnManager.Pacing pacing = TurnManager.Pacing.PROMPT;
+    private long pacingDelayMillis = 500;
+    // true while play() runs rounds; a load then waits for the round to end
+    private boolean playing;
+    // a game loaded by a command during play, taken over in place by play()
+    private Game pendingLoad;
 
     
     public static void main(String[] args) {
@@ -33,16 +56,112 @@ public class Game{
     }
 
     public Game(){
-        districtDeck = new CardsAndDecks.DistrictDeck();
-        characterDeck = new CardsAndDecks.CharacterDeck();
+        this(GameRandom.newSeed());
+    }
+
+    /**
+     * Creates a game whose every random outcome (shuffles, draws, crown, AI
+     * choices) is derived from the given seed, so the seed replays the game.
+     */
+    public Game(long seed){
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        listener = new ConsoleRenderer(this::out);
+        districtDeck = new CardsAndDecks.DistrictDeck(random);
+        characterDeck = new CardsAndDecks.CharacterDeck(random);
         players = new ArrayList<>();
         console = new Scanner(System.in);
         turnManager = new TurnManager(this);
     }
 
+    // Copies print nowhere unless given an output
+    private static final PrintStream SILENT = new PrintStream(OutputStream.nullOutputStream());
+
+    private Game(Game other, GameRandom random, boolean allAI) {
+        this.seed = other.seed;
+        this.random = random;
+        this.districtDeck = new CardsAndDecks.DistrictDeck(other.districtDeck, random);
+        this.characterDeck = new CardsAndDecks.CharacterDeck(other.characterDeck, random);
+        this.players = new ArrayList<>(other.players.size());
+        for (Player p : other.players) {
+            players.add(allAI ? new AIPlayer(p) : p.copy());
+        }
+        this.console = other.console;
+        this.crownIndex = other.crownIndex;
+        this.numPlayers = other.numPlayers;
+        this.currentPlayer = other.copyOf(other.currentPlayer, this);
+        this.firstFinisher = other.copyOf(other.firstFinisher, this);
+        this.debugMode = other.debugMode;
+        this.rounds = other.rounds;
+        this.maxRounds = other.maxRounds;
+        this.finalScores = other.finalScores == null ? null : other.finalScores.clone();
+        this.winner = other.copyOf(other.winner, this);
+        this.output = SILENT;
+        this.listener = GameListener.NONE;
+        this.commands = other.commands;
+        this.metrics = EngineMetrics.NONE;
+        this.turnManager = new TurnManager(other.turnManager, this, other.copyOf(other.turnManager.getThiefPlayer(), this));
+    }
+
+    /**
+     * An independent copy of the whole game state: players' hands, cities,
+     * gold and characters, both decks, the crown, round and turn state and
+     * the random generator, so the copy plays on exactly as this game would.
+     * Nothing played on the copy affects this game. The copy shares this
+     * game's console and decision providers, reports to no listeners and
+     * prints nowhere.
+     *
+     * Cards are immutable and shared; hands, cities and decks are flat int
+     * arrays, so a copy is a handful of array copies.
+     */
+    public Game copy() {
+        return new Game(this, random.copy(), false);
+    }
+
+    /**
+     * A copy for search playouts: every seat is played by the built-in AI
+     * and random outcomes come from random.
+     */
+    Game branch(GameRandom random) {
+        return new Game(this, random, true);
+    }
+
+    /**
+     * 64-bit hash of the position: every seat's hand, city, gold and
+     * character, the crown, the district pile, the characters left, the
+     * assassinated and robbed ranks and whose turn it is. Equal positions
+     * hash equally regardless of card order or history, so it serves as a
+     * transposition key or a cheap checksum between copies. Card sums are
+     * kept up to date by the containers (see Zobrist), so this only costs
+     * a few mixes per seat. The random generator is not part of the hash.
+     */
+    public long stateHash() {
+        TurnManager tm = turnManager;
+        long h = Zobrist.key(Zobrist.CROWN, 0, crownIndex)
+                ^ Zobrist.zone(Zobrist.DECK, 0, districtDeck.contentHash())
+                ^ Zobrist.key(Zobrist.CHARACTERS_LEFT, 0, characterDeck.availableMask())
+                ^ Zobrist.key(Zobrist.ASSASSINATED, 0, tm.getAssassinatedCharacter())
+                ^ Zobrist.key(Zobrist.ROBBED, 0, tm.getRobbedCharacter())
+                ^ Zobrist.key(Zobrist.CURRENT, 0, players.indexOf(currentPlayer));
+        for (int s = 0; s < players.size(); s++) {
+            Player p = players.get(s);
+            h ^= Zobrist.zone(Zobrist.HAND, s, p.getHand().contentHash())
+                    ^ Zobrist.zone(Zobrist.CITY, s, p.getCity().contentHash())
+                    ^ Zobrist.key(Zobrist.GOLD, s, p.getGold())
+                    ^ Zobrist.key(Zobrist.CHARACTER, s, p.getCharacter() == null ? 0 : p.getCharacter().getRank());
+        }
+        return h;
+    }
+
+    // The player in copy sitting where p sits in this game
+    private Player copyOf(Player p, Game copy) {
+        int seat = players.indexOf(p);
+        return seat < 0 ? null : copy.players.get(seat);
+    }
+
     public void setup(){
         while(true){
-            System.out.print("Enter how many players [4-7]: ");
+            out().print("Enter how many players [4-7]: ");
             String input = console.nextLine().trim();
             try {
                 this.numPlayers = Integer.parseInt(input);
@@ -51,16 +170,16 @@ public class Game{
                 //ignore
             }
 
-            System.out.print("Enter how many players [4-7]: ");
+            out().print("Enter how many players [4-7]: ");
         }
 
-        System.out.println("Shuffling deck...");
+        out().println("Shuffling deck...");
         districtDeck.shuffle();
 
-        System.out.println("Adding characters...");
-        characterDeck = new CardsAndDecks.CharacterDeck();
+        out().println("Adding characters...");
+        characterDeck = new CardsAndDecks.CharacterDeck(random);
 
-        System.out.println("Dealing cards...");
+        out().println("Dealing cards...");
         players.clear();
 
         players.add(new HumanPlayer("Player 1"));
@@ -72,157 +191,228 @@ public class Game{
             p.drawDistricts(districtDeck, 4);
         }
 
-        System.out.println("Starting Citadels with " + numPlayers + " players...");
-        System.out.println("You are player 1");
+        out().println("Starting Citadels with " + numPlayers + " players...");
+        out().println("You are player 1");
 
-        crownIndex = new Random().nextInt(players.size());
+        crownIndex = random.nextInt(players.size());
+    }
+
+    /**
+     * Sets up a table of AI players without prompting on the console, for
+     * simulations that never involve a human.
+     */
+    public void setupHeadless(int numPlayers){
+        this.numPlayers = numPlayers;
+        districtDeck.shuffle();
+        characterDeck = new CardsAndDecks.CharacterDeck(random);
+
+        players.clear();
+        for (int i = 1; i <= numPlayers; i++) {
+            players.add(new AIPlayer("CPU " + i));
+        }
+        for (Player p : players) {
+            p.drawDistricts(districtDeck, 4);
+        }
+
+        crownIndex = random.nextInt(players.size());
     }
 
     public TurnManager getTurnManager() {
         return turnManager;
     }
 
+    /**
+     * Plays rounds until the game ends. A game loaded during a turn takes
+     * over once that turn ends: the rest of the round is dropped and play
+     * starts again from the loaded round's character selection.
+     */
     public void play() {
-        while (!isGameOver()) {
-            turnManager.runSelectionPhase();
-            turnManager.runTurnPhase();  // AI and Human both handle input here
+        playing = true;
+        try {
+            while (!isGameOver() && (maxRounds <= 0 || rounds < maxRounds)) {
+                turnManager.runSelectionPhase();
+                turnManager.runTurnPhase();  // AI and Human both handle input here
+                if (pendingLoad != null) {
+                    adopt(pendingLoad);
+                    pendingLoad = null;
+                    continue;
+                }
+                rounds++;
+                if (autosaver != null) {
+                    long start = System.nanoTime();
+                    autosaver.offer(this);
+                    metrics.record(EngineMetrics.Phase.AUTOSAVE, start);
+                }
+            }
+        } finally {
+            playing = false;
         }
         finalizeScores();
     }
 
+    /**
+     * True once a game has been loaded during play and is waiting for the
+     * round to end; turns stop being played until then.
+     */
+    boolean hasPendingLoad() {
+        return pendingLoad != null;
+    }
+
     public void handleCommand(String input){
         if (currentPlayer == null) {
-            System.out.println("No active player turn. Cannot process commands.");
+            out().println("No active player turn. Cannot process commands.");
             return;
         }
+        execute(commands.parse(input));
+    }
 
-        String[] tokens = input.trim().split("\\s+");
-        if (tokens.length == 0) return; 
+    /**
+     * Runs every command in a message, in order; commands are separated by
+     * ';' or line breaks. Stops after an "end" command and returns true if
+     * there was one.
+     */
+    public boolean handleCommands(CharSequence message) {
+        if (currentPlayer == null) {
+            out().println("No active player turn. Cannot process commands.");
+            return false;
+        }
+        for (CommandRegistry.Command command : commands.parseBatch(message)) {
+            execute(command);
+            if (command.verb == CommandRegistry.Verb.END || pendingLoad != null) return true;
+        }
+        return false;
+    }
 
-        String cmd = tokens[0].toLowerCase();
+    /**
+     * Runs one parsed command for the current player and records how long it took.
+     */
+    public void execute(CommandRegistry.Command command) {
+        long start = System.nanoTime();
+        try {
+            run(command);
+        } finally {
+            commands.record(command.verb, System.nanoTime() - start);
+        }
+    }
 
-        switch(cmd){
-            case "t":
+    private void run(CommandRegistry.Command command) {
+        switch(command.verb){
+            case TURN:
                 turnManager.runSelectionPhase();
                 turnManager.runTurnPhase();
                 break;
-            case "hand":
-                currentPlayer.showHand();
+            case HAND:
+                currentPlayer.showHand(out());
                 break;
-            case "gold":
-                currentPlayer.showGold();
+            case GOLD:
+                currentPlayer.showGold(out());
                 break;
-            case "cards":
-                System.out.println("Use 'cards' only when prompted at the start of your turn.");
+            case CARDS:
+                out().println("Use 'cards' only when prompted at the start of your turn.");
                 break;
-            case "build":
-                if (tokens.length > 1) {
-                    try {
-                        int index = Integer.parseInt(tokens[1]);
-                        boolean built = currentPlayer.buildDistrict(index, this);
-                        if (!built) {
-                            System.out.println("You cannot build that.");
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println("Invalid index format");
+            case BUILD:
+                if (command.hasArgument()) {
+                    Integer index = handIndexOf(command);
+                    if (index == null) {
+                        out().println("Invalid index format");
+                    } else if (!currentPlayer.buildDistrict(index, this)) {
+                        out().println("You cannot build that.");
                     }
                 } else {
-                    System.out.println("Usage: build <index>");
+                    out().println("Usage: build <index|name>");
                 }
                 break;
-            case "city":
-                if(tokens.length == 1){
-                    currentPlayer.showCity();
+            case CITY:
+                if(!command.hasArgument()){
+                    currentPlayer.showCity(out());
+                } else if (command.hasNumber && command.number >= 1 && command.number <= players.size()) {
+                    players.get(command.number - 1).showCity(out());
                 } else {
-                    try {
-                        int playerIndex = Integer.parseInt(tokens[1]) -1;
-                        players.get(playerIndex).showCity();
-                    } catch (Exception e) {
-                        System.out.println("Invalid player number.");
-                    }
+                    out().println("Invalid player number.");
                 }
                 break;
-            case "info":
-                if(tokens.length > 1){
-                    String target = tokens[1];
-                    currentPlayer.showInfo(target);
+            case INFO:
+                if(command.hasArgument()){
+                    currentPlayer.showInfo(command.firstWord(), out());
                 } else {
-                    System.out.println("Usage: info <card_index or character_name>");
+                    out().println("Usage: info <card_index or character_name>");
                 }
                 break;
-            case "action":
+            case ACTION:
                 if (currentPlayer.getCharacter() == null) {
-                    System.out.println("No character assigned.");
+                    out().println("No character assigned.");
                     break;
                 }
 
                 CardsAndDecks.Ability ability = currentPlayer.getCharacter().getAbility();
 
-                if (tokens.length == 1) {
+                if (!command.hasArgument()) {
                     // Only "action" typed -> show help text
                     switch (ability) {
                         case MAGICIAN:
-                            System.out.println("You may do:");
-                            System.out.println(" - action swap <player number> (to swap hands)");
-                            System.out.println(" - action redraw <id1,id2,...> (to discard and redraw cards)");
+                            out().println("You may do:");
+                            out().println(" - action swap <player number> (to swap hands)");
+                            out().println(" - action redraw <id1,id2,...> (to discard and redraw cards)");
                             break;
                         case ASSASSIN:
-                            System.out.println("Type action <target number> to assassinate a character.");
+                            out().println("Type action <target number> to assassinate a character.");
                             break;
                         case THIEF:
-                            System.out.println("Type action <target number> to steal gold from a character.");
+                            out().println("Type action <target number> to steal gold from a character.");
                             break;
                         case KING:
-                            System.out.println("You receive gold for yellow districts and take the crown.");
+                            out().println("You receive gold for yellow districts and take the crown.");
                             break;
                         case BISHOP:
-                            System.out.println("You receive gold for blue districts and are immune to the Warlord.");
+                            out().println("You receive gold for blue districts and are immune to the Warlord.");
                             break;
                         case MERCHANT:
-                            System.out.println("You receive gold for green districts and 1 bonus gold.");
+                            out().println("You receive gold for green districts and 1 bonus gold.");
                             break;
                         case ARCHITECT:
-                            System.out.println("You draw 2 extra cards and may build up to 3 districts.");
+                            out().println("You draw 2 extra cards and may build up to 3 districts.");
                             break;
                         case WARLORD:
-                            System.out.println("You may destroy another players district by paying its cost minus 1.");
+                            out().println("You may destroy another players district by paying its cost minus 1.");
                             break;
                     }
                 }
 
                 // Always delegate to player's ability handler
-                currentPlayer.performSpecialAction(this, tokens);
+                currentPlayer.performSpecialAction(this, command.tokens());
                 break;     
-            case "end":
-                currentPlayer.endTurn();
+            case END:
+                currentPlayer.endTurn(out());
                 break;
-            case "all":
+            case ALL:
                 showAllPlayerStats();
                 break;
-            case "save":
-                if(tokens.length > 1 ){
-                    saveGame(tokens[1]);
-                    System.out.println("Game saved to " + tokens[1]);
+            case SAVE:
+                if(command.hasArgument()){
+                    saveGame(command.firstWord());
                 } else {
-                    System.out.println("Usage: save <filename>");
+                    out().println("Usage: save <filename>");
                 }
                 break;
-            case "load":
-                if(tokens.length > 1){
-                    loadGame(tokens[1]);
-                    System.out.println("Game loaded from " + tokens[1]);
+            case LOAD:
+                if(command.hasArgument()){
+                    loadGame(command.firstWord());
                 } else {
-                    System.out.println("Usage: load <filename>");
+                    out().println("Usage: load <filename>");
                 }
                 break;
-            case "help":
+            case HELP:
                 showHelp();
                 break;
-            case "debug":
+            case DEBUG:
                 toggleDebugMode();
                 break;
-            default: 
-                System.out.println("Unknown command. Type 'help' for a list of commands.");
+            case STATS:
+                out().print(commands.report());
+                out().print(metrics.getReport());
+                break;
+            default:
+                out().println("Unknown command. Type 'help' for a list of commands.");
                 break;
         }
     }
@@ -237,59 +427,17 @@ public class Game{
     /**
      * Calculate and display final scores and winner.
      */
-    private void finalizeScores() {
+    void finalizeScores() {
         int highest = -1;
-        Player winner = null;
-
-        System.out.println("\n==========================");
-        System.out.println("        GAME OVER");
-        System.out.println("==========================");
+        winner = null;
+        finalScores = new int[players.size()];
 
-        System.out.println("\n--- FINAL SCORES ---");
+        listener.scoringStarted();
         for (Player p : players) {
-            System.out.println("\n--- Scoring for " + p.getName() + " ---");
-            int score = 0;
-            boolean[] colors = new boolean[5];
-
-            for (CardsAndDecks.DistrictCard d : p.getCity()) {
-                score += d.getCost();
-
-                if (d.getColour() != CardsAndDecks.DistrictColor.PURPLE) {
-                    colors[d.getColour().ordinal()] = true;
-                } else if (d.getName().equalsIgnoreCase("Haunted Quarter")) {
-                    for (int i = 0; i < colors.length; i++) {
-                        if (!colors[i]) {
-                            colors[i] = true;
-                            System.out.println(p.getName() + " uses Haunted Quarter to fill missing color: " + CardsAndDecks.DistrictColor.values()[i]);
-                            break;
-                        }
-                    }
-                }
-
-                if (d.getName().equalsIgnoreCase("Dragon Gate")) {
-                    score += 2;
-                    System.out.println(p.getName() + " has Dragon Gate (+2 points)");
-                }
-            }
-
-            boolean allColors = true;
-            for (boolean b : colors) allColors &= b;
-            if (allColors) {
-                score += 3;
-                System.out.println(p.getName() + " has all 5 district types (+3 points)");
-            }
-
-            if (p.getCity().size() >= 8) {
-                if (p == firstFinisher) {
-                    score += 4;
-                    System.out.println(p.getName() + " finished first (+4 points)");
-                } else {
-                    score += 2;
-                    System.out.println(p.getName() + " completed city (+2 points)");
-                }
-            }
-
-            System.out.println(p.getName() + " final score: " + score);
+            listener.scoringPlayer(p);
+            int score = score(p, listener);
+            listener.scoreComputed(p, score);
+            finalScores[players.indexOf(p)] = score;
             if (score > highest) {
                 highest = score;
                 winner = p;
@@ -301,10 +449,70 @@ public class Game{
         }
 
         if (winner != null)
-            System.out.println("\n Winner: " + winner.getName() + " with " + highest + " points!");
+            listener.winnerDeclared(winner, highest);
+    }
+
+
+
+    /**
+     * Score the player would get if the game ended now, read from the city's
+     * running totals, so it is cheap enough for a live leaderboard.
+     */
+    public int currentScore(Player p) {
+        return score(p, GameListener.NONE);
     }
 
+    private int score(Player p, GameListener events) {
+        City city = p.getCity();
+        int score = city.baseScore();
 
+        // The Haunted City counts as any one colour, so it may fill in a missing one
+        int haunted = city.count(HAUNTED_CITY);
+        int mask = city.colourMask();
+        if (haunted > 0 && city.colourCount(CardsAndDecks.DistrictColor.PURPLE) == haunted) {
+            mask &= ~(1 << CardsAndDecks.DistrictColor.PURPLE.ordinal());
+        }
+        if (haunted > 0 && Integer.bitCount(mask) == CardsAndDecks.DistrictColor.values().length - 1) {
+            int missing = Integer.numberOfTrailingZeros(~mask & City.ALL_COLOURS);
+            CardsAndDecks.DistrictCard wildcard = city.stream()
+                    .filter(d -> d.getId() == HAUNTED_CITY).findFirst().get();
+            events.colourFilled(p, wildcard, CardsAndDecks.DistrictColor.values()[missing]);
+            mask = City.ALL_COLOURS;
+        }
+
+        int dragonGates = city.count(DRAGON_GATE);
+        for (int i = 0; i < dragonGates; i++) {
+            score += 2;
+            events.scoreBonus(p, GameListener.ScoreBonus.DRAGON_GATE, 2);
+        }
+
+        if (mask == City.ALL_COLOURS) {
+            score += 3;
+            events.scoreBonus(p, GameListener.ScoreBonus.ALL_COLOURS, 3);
+        }
+
+        if (city.size() >= 8) {
+            if (p == firstFinisher) {
+                score += 4;
+                events.scoreBonus(p, GameListener.ScoreBonus.FIRST_FINISHER, 4);
+            } else {
+                score += 2;
+                events.scoreBonus(p, GameListener.ScoreBonus.COMPLETED_CITY, 2);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Resolves a build argument to a hand index: either the index itself or a
+     * district name, looked up through the catalog's name index. Null if it
+     * is neither a number nor a district in the hand.
+     */
+    private Integer handIndexOf(CommandRegistry.Command command) {
+        if (command.hasNumber) return command.number;
+        int index = currentPlayer.getHand().indexOfId(CardsAndDecks.CardCatalog.get().idOf(command.argument));
+        return index >= 0 ? index : null;
+    }
 
     // Accessors for TurnManager and other classes
     public List<Player> getPlayers() { return players; }
@@ -313,16 +521,179 @@ public class Game{
     public int getCrownIndex() { return crownIndex; }
     public Scanner getConsole() { return console; }
 
+    /**
+     * Where this game prints: its own stream if one was set, else System.out.
+     */
+    public PrintStream out() { return output != null ? output : System.out; }
+
+    /**
+     * Sends this game's output to out, e.g. a session's connection; null
+     * goes back to System.out.
+     */
+    public void setOutput(PrintStream out) { this.output = out; }
+
+    // the stream set by setOutput, possibly null for System.out
+    PrintStream getOutput() { return output; }
+
+    public TurnManager.Pacing getPacing() { return pacing; }
+
+    /**
+     * How CPU turns are played when a human is at the table; see TurnManager.Pacing.
+     */
+    public void setPacing(TurnManager.Pacing pacing) { this.pacing = pacing; }
+
+    /**
+     * Pacing with the pause before each CPU turn used by DELAY.
+     */
+    public void setPacing(TurnManager.Pacing pacing, long delayMillis) {
+        this.pacing = pacing;
+        this.pacingDelayMillis = delayMillis;
+    }
+
+    public long getPacingDelayMillis() { return pacingDelayMillis; }
+    public CommandRegistry getCommandRegistry() { return commands; }
+    public void setCommandRegistry(CommandRegistry commands) { this.commands = commands; }
+    public EngineMetrics metrics() { return metrics; }
+    public void setMetrics(EngineMetrics metrics) { this.metrics = metrics; }
+
+    /**
+     * Offers the game to autosaver at the end of every round (null: no autosave).
+     */
+    public void setAutosaver(Autosaver autosaver) { this.autosaver = autosaver; }
+
+    /**
+     * Has ponderer think ahead for the computer players whenever a human is
+     * about to decide (null: no pondering). Copies never ponder.
+     */
+    public void setPonderer(Ponderer ponderer) { this.ponderer = ponderer; }
+    Ponderer getPonderer() { return ponderer; }
+    public int getRounds() { return rounds; }
+
+    /**
+     * The listener every rule path reports to; use addListener to subscribe.
+     */
+    public GameListener events() { return listener; }
+
+    /**
+     * Replaces all listeners, e.g. with GameListener.NONE for a silent headless game.
+     */
+    public void setListener(GameListener listener) { this.listener = listener; }
+
+    public void addListener(GameListener l) { listener = GameListener.Multicast.of(listener, l); }
+
+    public void removeListener(GameListener l) { listener = GameListener.Multicast.without(listener, l); }
+    public long getSeed() { return seed; }
+    public GameRandom getRandom() { return random; }
+    public Player getWinner() { return winner; }
+
+    /**
+     * Final score of each player by seat, or null until the game has been scored.
+     */
+    public int[] getFinalScores() { return finalScores; }
+
+    /**
+     * True if a human is seated at the table, meaning CPU turns wait for the console.
+     */
+    public boolean hasHumanPlayer() {
+        for (Player p : players) {
+            if (p instanceof HumanPlayer) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Caps the number of rounds play() runs before scoring; 0 means no limit.
+     */
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    int getMaxRounds() { return maxRounds; }
+
+    int getNumPlayers() { return numPlayers; }
+
+    void setNumPlayers(int numPlayers) { this.numPlayers = numPlayers; }
+
+    Player getCurrentPlayer() { return currentPlayer; }
+
+    void setRounds(int rounds) { this.rounds = rounds; }
+
+    /**
+     * Swaps in restored state from a snapshot. Turn state starts clear and
+     * is set by the caller. A restored player takes over the decision
+     * provider of the player of the same kind it replaces at its seat, so
+     * search, scripted or pondering players keep playing as they did.
+     */
+    void restore(long seed, GameRandom random, CardsAndDecks.DistrictDeck districtDeck,
+                 CardsAndDecks.CharacterDeck characterDeck, List<Player> players) {
+        this.seed = seed;
+        this.random = random;
+        this.districtDeck = districtDeck;
+        this.characterDeck = characterDeck;
+        for (int s = 0; s < players.size() && s < this.players.size(); s++) {
+            Player old = this.players.get(s);
+            if (old.getClass() == players.get(s).getClass()) {
+                players.get(s).setDecisions(old.getDecisions());
+            }
+        }
+        this.players.clear();
+        this.players.addAll(players);
+        this.turnManager = new TurnManager(this);
+        this.finalScores = null;
+        this.winner = null;
+    }
+
+    /**
+     * Saves to filename: a binary snapshot (see GameSnapshot), or a JSON
+     * export for debugging if the name ends in .json.
+     */
     public void saveGame(String filename) {
+        long start = System.nanoTime();
+        writeSave(filename);
+        metrics.record(EngineMetrics.Phase.SAVE, start);
+    }
+
+    private void writeSave(String filename) {
+        if (!filename.toLowerCase().endsWith(".json")) {
+            try {
+                GameSnapshot.save(this, Paths.get(filename));
+                out().println("Game saved to " + filename);
+            } catch (IOException e) {
+                out().println("Failed to save: " + e.getMessage());
+            }
+            return;
+        }
+
         JSONObject root = new JSONObject();
 
         root.put("crownIndex", crownIndex);
+        root.put("rounds", rounds);
+        root.put("maxRounds", maxRounds);
+        root.put("currentPlayer", players.indexOf(currentPlayer));
+        root.put("firstFinisher", players.indexOf(firstFinisher));
+        root.put("assassinated", turnManager.getAssassinatedCharacter());
+        root.put("robbed", turnManager.getRobbedCharacter());
+        root.put("thief", players.indexOf(turnManager.getThiefPlayer()));
+
+        JSONArray characterArr = new JSONArray();
+        for (CardsAndDecks.CharacterCard c : characterDeck.available()) {
+            characterArr.add(c.getRank());
+        }
+        root.put("characters", characterArr);
+
+        JSONArray deckArr = new JSONArray();
+        for (int i = 0; i < districtDeck.size(); i++) {
+            deckArr.add(districtDeck.cardAtIndex(i).getName());
+        }
+        root.put("deck", deckArr);
 
         JSONArray playerArray = new JSONArray();
         for (Player p : players) {
             JSONObject pj = new JSONObject();
             pj.put("name", p.getName());
+            pj.put("human", p instanceof HumanPlayer);
             pj.put("gold", p.getGold());
+            pj.put("buildsThisTurn", p.getBuildsThisTurn());
 
             pj.put("character", p.getCharacter() != null ? p.getCharacter().getAbility().name() : "");
 
@@ -345,68 +716,170 @@ public class Game{
 
         try (FileWriter writer = new FileWriter(filename)) {
             writer.write(root.toJSONString());
-            System.out.println("Game saved to " + filename);
+            out().println("Game saved to " + filename);
         } catch (IOException e) {
-            System.out.println("Failed to save: " + e.getMessage());
+            out().println("Failed to save: " + e.getMessage());
         }
     }
 
+    /**
+     * Loads a binary snapshot or a JSON export, whichever the file holds,
+     * and reports how long it took.
+     */
     public void loadGame(String filename) {
-        JSONParser parser = new JSONParser();
-
-        try (FileReader reader = new FileReader(filename)) {
-            JSONObject root = (JSONObject) parser.parse(reader);
+        long start = System.nanoTime();
+        // mid-round the players' turns are under way, so load beside this game and swap at the round's end
+        Game into = playing ? staging() : this;
+        boolean loaded = into.readSave(filename);
+        metrics.record(EngineMetrics.Phase.LOAD, start);
+        if (loaded) {
+            out().printf("Game loaded from %s in %.1f ms%n", filename, (System.nanoTime() - start) / 1e6);
+            if (into != this) {
+                pendingLoad = into;
+                out().println("It takes over when this turn ends.");
+            }
+        }
+    }
 
-            // Reset all core game state
-            players.clear();
-            crownIndex = ((Long) root.get("crownIndex")).intValue();
-            districtDeck = new CardsAndDecks.DistrictDeck();
-            characterDeck = new CardsAndDecks.CharacterDeck();
-            currentPlayer = null;
-            turnManager = new TurnManager(this);
+    // An empty game to load into that shares this one's output, random generator and seats
+    private Game staging() {
+        Game g = new Game(seed);
+        g.random = random;
+        g.maxRounds = maxRounds;
+        g.output = output;
+        g.listener = GameListener.NONE;
+        g.players.addAll(players);
+        return g;
+    }
 
-            JSONArray playerArray = (JSONArray) root.get("players");
+    // Takes over the state of a game loaded by staging()
+    private void adopt(Game loaded) {
+        restore(loaded.seed, loaded.random, loaded.districtDeck, loaded.characterDeck, loaded.players);
+        numPlayers = loaded.numPlayers;
+        crownIndex = loaded.crownIndex;
+        rounds = loaded.rounds;
+        maxRounds = loaded.maxRounds;
+        debugMode = loaded.debugMode;
+        currentPlayer = loaded.currentPlayer;
+        firstFinisher = loaded.firstFinisher;
+        turnManager = new TurnManager(loaded.turnManager, this, loaded.turnManager.getThiefPlayer());
+    }
 
-            for (Object o : playerArray) {
-                JSONObject pj = (JSONObject) o;
+    private boolean readSave(String filename) {
+        try {
+            if (GameSnapshot.isSnapshot(Paths.get(filename))) {
+                GameSnapshot.load(this, Paths.get(filename));
+                return true;
+            }
+        } catch (IOException e) {
+            out().println("Failed to load: " + e.getMessage());
+            return false;
+        }
 
-                String name = (String) pj.get("name");
-                int gold = ((Long) pj.get("gold")).intValue();
-                String abilityStr = (String) pj.get("character");
+        JSONParser parser = new JSONParser();
 
-                Player p = name.equals("Player 1") ? new HumanPlayer(name) : new AIPlayer(name);
-                p.addGold(gold - 2); // adjust for initial 2-gold default
+        try (FileReader reader = new FileReader(filename)) {
+            readJson((JSONObject) parser.parse(reader));
+            return true;
+        } catch (Exception e) {
+            out().println("Failed to load: " + e.getMessage());
+            return false;
+        }
+    }
 
-                // Reassign character (if any)
-                if (!abilityStr.isEmpty()) {
-                    CardsAndDecks.Ability a = CardsAndDecks.Ability.valueOf(abilityStr);
-                    CardsAndDecks.CharacterCard cc = new CardsAndDecks.CharacterCard(a.name(), a.ordinal() + 1, a);
-                    p.setCharacter(cc);
-                }
+    /**
+     * Replaces the game state with a JSON export. Names are resolved through
+     * the catalog's name index. The district pile is the saved one, or for
+     * older exports without it a full deck less every card in a hand or
+     * city, so no card exists twice. Likewise the characters left default
+     * to those nobody holds. Nothing is changed unless the whole file reads.
+     */
+    private void readJson(JSONObject root) {
+        CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+        // copies of each district in hands and cities
+        int[] taken = new int[catalog.size()];
+
+        List<Player> loaded = new ArrayList<>();
+        for (Object o : (JSONArray) root.get("players")) {
+            JSONObject pj = (JSONObject) o;
+
+            String name = (String) pj.get("name");
+            Object human = pj.get("human");
+            boolean isHuman = human != null ? (Boolean) human : name.equals("Player 1");
+            Player p = isHuman ? new HumanPlayer(name) : new AIPlayer(name);
+            p.addGold(intField(pj, "gold", 0) - p.getGold());
+            p.setBuildsThisTurn(intField(pj, "buildsThisTurn", 0));
+
+            String abilityStr = (String) pj.get("character");
+            if (abilityStr != null && !abilityStr.isEmpty()) {
+                CardsAndDecks.Ability a = CardsAndDecks.Ability.valueOf(abilityStr);
+                p.setCharacter(CardsAndDecks.CharacterDeck.byRank(a.ordinal() + 1));
+            }
 
-                // Load hand
-                JSONArray hand = (JSONArray) pj.get("hand");
-                p.getHand().clear(); // just in case
-                for (Object c : hand) {
-                    p.getHand().add(districtDeck.findByName((String) c));
-                }
+            readCards((JSONArray) pj.get("hand"), p.getHand(), taken);
+            readCards((JSONArray) pj.get("city"), p.getCity(), taken);
+            loaded.add(p);
+        }
 
-                // Load city
-                JSONArray city = (JSONArray) pj.get("city");
-                p.getCity().clear(); // just in case
-                for (Object c : city) {
-                    p.getCity().add(districtDeck.findByName((String) c));
-                }
+        CardsAndDecks.DistrictDeck deck;
+        JSONArray deckArr = (JSONArray) root.get("deck");
+        if (deckArr != null) {
+            List<CardsAndDecks.DistrictCard> cards = new ArrayList<>(deckArr.size());
+            readCards(deckArr, cards, null);
+            deck = new CardsAndDecks.DistrictDeck(random, cards);
+        } else {
+            deck = new CardsAndDecks.DistrictDeck(random, taken);
+        }
 
-                players.add(p);
+        CardsAndDecks.CharacterDeck characters = new CardsAndDecks.CharacterDeck(random);
+        JSONArray characterArr = (JSONArray) root.get("characters");
+        if (characterArr != null) {
+            List<CardsAndDecks.CharacterCard> left = new ArrayList<>();
+            for (Object r : characterArr) {
+                CardsAndDecks.CharacterCard c = CardsAndDecks.CharacterDeck.byRank(((Long) r).intValue());
+                if (c == null) throw new IllegalArgumentException("Invalid character rank: " + r);
+                left.add(c);
+            }
+            characters.setAvailableCards(left);
+        } else {
+            for (Player p : loaded) {
+                if (p.getCharacter() != null) characters.removeCard(p.getCharacter());
             }
+        }
 
-            System.out.println("Game loaded from " + filename);
-        } catch (Exception e) {
-            System.out.println("Failed to load: " + e.getMessage());
+        restore(seed, random, deck, characters, loaded);
+        numPlayers = loaded.size();
+        crownIndex = intField(root, "crownIndex", 0);
+        rounds = intField(root, "rounds", 0);
+        maxRounds = intField(root, "maxRounds", maxRounds);
+        currentPlayer = seat(loaded, intField(root, "currentPlayer", -1));
+        firstFinisher = seat(loaded, intField(root, "firstFinisher", -1));
+        turnManager.markAssassinated(intField(root, "assassinated", -1));
+        turnManager.markRobbed(intField(root, "robbed", -1), seat(loaded, intField(root, "thief", -1)));
+    }
+
+    private void readCards(JSONArray names, List<CardsAndDecks.DistrictCard> into, int[] taken) {
+        CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+        for (Object o : names) {
+            int id = catalog.idOf((String) o);
+            if (id < 0) {
+                out().println("Unknown district: " + o);
+                continue;
+            }
+            into.add(catalog.card(id));
+            if (taken != null) taken[id]++;
         }
     }
 
+    private static int intField(JSONObject o, String key, int otherwise) {
+        Object v = o.get(key);
+        return v == null ? otherwise : ((Number) v).intValue();
+    }
+
+    private static Player seat(List<Player> players, int index) {
+        return index >= 0 && index < players.size() ? players.get(index) : null;
+    }
+
 
     public void swapHands(Player a, Player b) {
         List<CardsAndDecks.DistrictCard> temp = new ArrayList<>(a.getHand());
@@ -416,7 +889,11 @@ public class Game{
         b.getHand().addAll(temp);
     }
 
-    public void redrawCards(Player player, List<Integer> indexes) {
+    /**
+     * Puts back the cards at the given hand indexes and draws as many new
+     * ones; indexes outside the hand are skipped. Returns how many were redrawn.
+     */
+    public int redrawCards(Player player, List<Integer> indexes) {
         List<CardsAndDecks.DistrictCard> toRedraw = new ArrayList<>();
         indexes.sort(Collections.reverseOrder());  // Remove higher indices first
         for (int i : indexes) {
@@ -425,19 +902,36 @@ public class Game{
             }
         }
         player.drawDistricts(districtDeck, toRedraw.size());
+        // discards go back only after drawing, so the player cannot redraw them
+        for (CardsAndDecks.DistrictCard card : toRedraw) {
+            districtDeck.returnCard(card);
+        }
+        return toRedraw.size();
     }
 
-    public void redrawCards(Player player, String input) {
+    /**
+     * As above, with the indexes given as a comma-separated list; entries
+     * that are not numbers are reported and skipped.
+     */
+    public int redrawCards(Player player, String input) {
         List<Integer> indexes = new ArrayList<>();
-        for (String s : input.split(",")) {
-            try {
-                indexes.add(Integer.parseInt(s.trim()));
-            } catch (NumberFormatException e) {
-                System.out.println("Invalid index: " + s);
+        int start = 0;
+        for (int i = 0; i <= input.length(); i++) {
+            if (i < input.length() && input.charAt(i) != ',') continue;
+            int from = start;
+            int to = i;
+            while (from < to && Character.isWhitespace(input.charAt(from))) from++;
+            while (to > from && Character.isWhitespace(input.charAt(to - 1))) to--;
+            long index = CommandRegistry.parseInt(input, from, to);
+            if (index != Long.MIN_VALUE) {
+                indexes.add((int) index);
+            } else {
+                out().println("Invalid index: " + input.substring(start, i));
             }
+            start = i + 1;
         }
-        redrawCards(player, indexes);  // calls your existing method
-    }       
+        return redrawCards(player, indexes);
+    }
 
 
     public void handleWarlordAction(Player warlord) {
@@ -447,36 +941,24 @@ public class Game{
                 targets.add(p);
             }
         }
+        if (targets.isEmpty()) return;
 
-        System.out.println("Choose a player to destroy a district from:");
-        for (int i = 0; i < targets.size(); i++) {
-            System.out.println(i + ": " + targets.get(i).getName());
-        }
-
-        int targetIndex = console.nextInt();
-        if (targetIndex < 0 || targetIndex >= targets.size()) return;
+        DecisionProvider.DistrictTarget choice = warlord.getDecisions().chooseDistrictToDestroy(this, warlord, targets);
+        if (choice == null || choice.player < 0 || choice.player >= targets.size()) return;
 
-        Player target = targets.get(targetIndex);
+        Player target = targets.get(choice.player);
         List<CardsAndDecks.DistrictCard> city = target.getCity();
+        if (choice.district < 0 || choice.district >= city.size()) return;
 
-        System.out.println("Choose a district to destroy:");
-        for (int i = 0; i < city.size(); i++) {
-            CardsAndDecks.DistrictCard d = city.get(i);
-            System.out.println(i + ": " + d.getName() + " (Cost " + d.getCost() + ")");
-        }
-
-        int districtIndex = console.nextInt();
-        if (districtIndex < 0 || districtIndex >= city.size()) return;
-
-        CardsAndDecks.DistrictCard toDestroy = city.get(districtIndex);
+        CardsAndDecks.DistrictCard toDestroy = city.get(choice.district);
         int cost = toDestroy.getCost();
 
         if (warlord.getGold() >= cost - 1) {
             warlord.addGold(-(cost - 1));
-            city.remove(districtIndex);
-            System.out.println("Destroyed " + toDestroy.getName() + " for " + (cost - 1) + " gold.");
+            city.remove(choice.district);
+            listener.districtDestroyed(warlord, target, toDestroy, cost - 1);
         } else {
-            System.out.println("Not enough gold to destroy that district.");
+            out().println("Not enough gold to destroy that district.");
         }
     }
 
@@ -491,23 +973,25 @@ public class Game{
 
     public void showAllPlayerStats() {
         for (Player p : players) {
-            System.out.println(p.getName() + ": gold=" + p.getGold() + " cards=" + p.getHand().size());
+            out().println(p.getName() + ": gold=" + p.getGold() + " cards=" + p.getHand().size());
         }
     }
 
     public void showHelp() {
-        System.out.println("Valid commands are:");
-        System.out.println("- hand");
-        System.out.println("- gold");
-        System.out.println("- cards");
-        System.out.println("- build <index>");
-        System.out.println("- action");
-        System.out.println("- city");
-        System.out.println("- all");
-        System.out.println("- end");
-        System.out.println("- t");
-        System.out.println("- save <filename>");
-        System.out.println("- load <filename>");
+        out().println("Valid commands are:");
+        out().println("- hand");
+        out().println("- gold");
+        out().println("- cards");
+        out().println("- build <index|name>");
+        out().println("- action");
+        out().println("- city");
+        out().println("- all");
+        out().println("- end");
+        out().println("- t");
+        out().println("- save <filename>");
+        out().println("- load <filename>");
+        out().println("- stats");
+        out().println("Separate several commands with ';' to send them at once.");
     }
 
     public boolean isDebugMode() {
@@ -516,7 +1000,7 @@ public class Game{
 
     public void toggleDebugMode() {
         debugMode = !debugMode;
-        System.out.println("Debug mode " + (debugMode ? "enabled." : "disabled."));
+        out().println("Debug mode " + (debugMode ? "enabled." : "disabled."));
     }
 
     public void setCurrentPlayer(Player p) {
@@ -536,7 +1020,7 @@ public class Game{
     }
     
     public void resetCharacterDeck() {
-        this.characterDeck = new CardsAndDecks.CharacterDeck();
+        characterDeck.reset();
     }
 
     public void setDebugMode(boolean value) {
@@ -0,0 +1,421 @@
+package citadels;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Write-ahead log of a game, so a game survives a crashed JVM. A game is
+ * fully determined by its seed and the console input it reads, so the
+ * journal records the seed and every chunk of input; recovery starts a new
+ * game from the seed and feeds it the logged input before handing over to
+ * the live console. Game events (characters chosen, districts built, gold
+ * taken, ...) are logged alongside as a readable trail of what happened.
+ *
+ * Appends only copy into a buffer. A single background thread writes and
+ * fsyncs the buffers of all open journals, so appends that arrive while a
+ * sync is in progress share the next one (group commit).
+ *
+ * Records are [type][varint length][payload]; a torn record at the end of
+ * the file, left by a crash mid-write, is ignored.
+ */
+public final class GameJournal implements Closeable {
+    static final byte[] MAGIC = { 'C', 'T', 'D', 'J' };
+    static final int VERSION = 1;
+
+    static final byte SEED = 1;
+    static final byte INPUT = 2;
+    static final byte ACTION = 3;
+
+    private static final LinkedBlockingQueue<GameJournal> DIRTY = new LinkedBlockingQueue<>();
+
+    static {
+        Thread flusher = new Thread(GameJournal::flushLoop, "citadels-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private final FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private boolean queued;
+    private boolean closed;
+    private long appended;
+    private long durable;
+    // the first write that failed; nothing is written after it, so the
+    // file stays a gapless prefix of the game
+    private IOException failure;
+    // while recovery replays logged input: the actions the replay must
+    // reproduce, in order, and how many it has so far; actions past the end
+    // of the log are new and recorded as usual
+    private List<String> expected = Collections.emptyList();
+    private int replayed;
+    // the recovered game and where it printed before the replay muted it
+    private Game replaying;
+    private PrintStream replayOutput;
+
+    private GameJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Starts a journal for a new game, replacing any file at path.
+     */
+    public static GameJournal create(Path path, Game game) throws IOException {
+        return create(path, game, System.in);
+    }
+
+    static GameJournal create(Path path, Game game, InputStream in) throws IOException {
+        GameJournal journal = new GameJournal(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        journal.appendRaw(MAGIC);
+        journal.appendRaw(new byte[] { (byte) VERSION });
+        journal.append(SEED, ByteBuffer.allocate(8).putLong(game.getSeed()).array());
+        journal.attach(game, in);
+        return journal;
+    }
+
+    /**
+     * Rebuilds the game logged at path. The returned game is new, created
+     * from the logged seed; Recovery.play() re-runs the logged game from the
+     * logged input, with the game's output suppressed, and then carries on
+     * reading System.in where the crashed game stopped. The replayed game
+     * events are checked against the logged ones and the replay stops with
+     * an IllegalStateException at the first that differs. The journal keeps
+     * logging to the same file.
+     */
+    public static Recovery recover(Path path) throws IOException {
+        return recover(path, System.in);
+    }
+
+    static Recovery recover(Path path, InputStream in) throws IOException {
+        byte[] log = Files.readAllBytes(path);
+        ByteBuffer buf = ByteBuffer.wrap(log);
+        if (buf.remaining() < MAGIC.length + 1) throw new IOException("Not a game journal");
+        for (byte b : MAGIC) {
+            if (buf.get() != b) throw new IOException("Not a game journal");
+        }
+        int version = buf.get();
+        if (version != VERSION) throw new IOException("Unsupported journal version " + version);
+
+        Long seed = null;
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        List<String> actions = new ArrayList<>();
+        int end = buf.position();
+        while (buf.hasRemaining()) {
+            byte type = buf.get();
+            int length = readVarint(buf);
+            if (length < 0 || length > buf.remaining()) break; // torn tail
+            byte[] payload = new byte[length];
+            buf.get(payload);
+            end = buf.position();
+            if (type == SEED) seed = ByteBuffer.wrap(payload).getLong();
+            else if (type == INPUT) input.write(payload, 0, payload.length);
+            else if (type == ACTION) actions.add(new String(payload, StandardCharsets.UTF_8));
+        }
+        if (seed == null) throw new IOException("Journal has no seed");
+
+        // drop the torn tail so new records follow the last complete one
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.truncate(end);
+        channel.position(end);
+
+        Game game = new Game(seed);
+        GameJournal journal = new GameJournal(channel);
+        journal.expected = actions;
+        journal.replaying = game;
+        journal.replayOutput = game.getOutput();
+        game.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        InputStream replay = new ByteArrayInputStream(input.toByteArray()) {
+            private boolean done;
+
+            // hands out one line per read and reports nothing available, so the
+            // console reader never buffers past the line the game is asking for
+            // and the end of the log is hit only when the game wants new input
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int n = 0;
+                int c;
+                while (n < len && (c = read()) >= 0) {
+                    b[off + n++] = (byte) c;
+                    if (c == '\n') break;
+                }
+                if (n > 0) return n;
+                if (!done) {
+                    done = true;
+                    journal.endReplay();
+                }
+                return -1;
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+        // logged input is replayed as-is; only what comes from System.in afterwards is new
+        game.addListener(journal.actionLog());
+        game.setConsole(new Scanner(new SequenceInputStream(replay, journal.tee(in))));
+        return new Recovery(game, journal, actions.size(), input.size());
+    }
+
+    // Once the logged input is used up: unmute the game and check nothing logged was missed
+    private void endReplay() {
+        unmute();
+        if (replayed < expected.size()) {
+            throw new IllegalStateException("Replay diverged from the journal: ended after " + replayed
+                    + " of " + expected.size() + " logged actions");
+        }
+    }
+
+    private synchronized void unmute() {
+        if (replaying == null) return;
+        replaying.setOutput(replayOutput);
+        replaying = null;
+        replayOutput = null;
+    }
+
+    /**
+     * A game rebuilt from its journal.
+     */
+    public static final class Recovery {
+        public final Game game;
+        public final GameJournal journal;
+        public final int actions;
+        public final int inputBytes;
+
+        Recovery(Game game, GameJournal journal, int actions, int inputBytes) {
+            this.game = game;
+            this.journal = journal;
+            this.actions = actions;
+            this.inputBytes = inputBytes;
+        }
+
+        /**
+         * Sets up and plays the game: the logged part silently, then live.
+         * The game's output is restored however the replay ends.
+         */
+        public void play() {
+            try {
+                game.setup();
+                game.play();
+            } finally {
+                journal.unmute();
+            }
+        }
+    }
+
+    private void attach(Game game, InputStream in) {
+        game.addListener(actionLog());
+        game.setConsole(new Scanner(tee(in)));
+    }
+
+    /**
+     * Logs everything read from in before passing it on.
+     */
+    InputStream tee(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) append(INPUT, new byte[] { (byte) b });
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) append(INPUT, Arrays.copyOfRange(b, off, off + n));
+                return n;
+            }
+        };
+    }
+
+    private GameListener actionLog() {
+        return new GameListener() {
+            private void log(String action) {
+                if (replayed < expected.size()) {
+                    String logged = expected.get(replayed);
+                    if (!logged.equals(action)) {
+                        throw new IllegalStateException("Replay diverged from the journal at action "
+                                + (replayed + 1) + ": logged '" + logged + "', replayed '" + action + "'");
+                    }
+                    replayed++;
+                } else {
+                    append(ACTION, action.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            @Override
+            public void characterChosen(Player player, CardsAndDecks.CharacterCard character) {
+                log("choose " + player.getName() + " " + character.getRank());
+            }
+
+            @Override
+            public void assassinated(Player assassin, int rank, String characterName) {
+                log("assassinate " + assassin.getName() + " " + rank);
+            }
+
+            @Override
+            public void robbed(Player thief, int rank, String characterName) {
+                log("rob " + thief.getName() + " " + rank);
+            }
+
+            @Override
+            public void handsSwapped(Player player, Player other) {
+                log("swap " + player.getName() + " " + other.getName());
+            }
+
+            @Override
+            public void cardsRedrawn(Player player, int count) {
+                log("redraw " + player.getName() + " " + count);
+            }
+
+            @Override
+            public void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {
+                log("destroy " + warlord.getName() + " " + victim.getName() + " " + district.getName());
+            }
+
+            @Override
+            public void goldGained(Player player, int amount, GoldSource source, CardsAndDecks.DistrictColor colour) {
+                if (source == GoldSource.INCOME) log("gold " + player.getName());
+            }
+
+            @Override
+            public void cardsDrawn(Player player, int count, CardsAndDecks.DistrictCard discarded) {
+                log("cards " + player.getName() + (discarded != null ? " " + discarded.getName() : ""));
+            }
+
+            @Override
+            public void districtBuilt(Player player, CardsAndDecks.DistrictCard district) {
+                log("build " + player.getName() + " " + district.getName());
+            }
+
+            @Override
+            public void winnerDeclared(Player winner, int score) {
+                log("winner " + winner.getName() + " " + score);
+            }
+        };
+    }
+
+    void append(byte type, byte[] payload) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 6);
+        record.write(type);
+        int v = payload.length;
+        while ((v & ~0x7f) != 0) {
+            record.write((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        record.write(v);
+        record.write(payload, 0, payload.length);
+        appendRaw(record.toByteArray());
+    }
+
+    private synchronized void appendRaw(byte[] bytes) {
+        if (closed || failure != null) return;
+        pending.write(bytes, 0, bytes.length);
+        appended++;
+        if (!queued) {
+            queued = true;
+            DIRTY.add(this);
+        }
+    }
+
+    /**
+     * Blocks until everything appended so far is on disk.
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (this) {
+            target = appended;
+            while (durable < target && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for journal sync", e);
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void flushLoop() {
+        while (true) {
+            try {
+                DIRTY.take().flush();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void flush() {
+        ByteArrayOutputStream batch;
+        long upTo;
+        synchronized (this) {
+            batch = pending;
+            upTo = appended;
+            pending = new ByteArrayOutputStream();
+            queued = false;
+            if (failure != null) return;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Failed to write game journal: " + e.getMessage());
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+            return;
+        }
+        synchronized (this) {
+            durable = upTo;
+            notifyAll();
+        }
+    }
+
+    private static int readVarint(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35 && buf.hasRemaining(); shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,167 @@
+package citadels;
+
+import java.util.Arrays;
+
+/**
+ * Receives the events of a game as the engine applies its rules. The
+ * engine never formats text itself: ConsoleRenderer turns events into the
+ * familiar console output, and headless runs use NONE so nothing is built
+ * or printed.
+ *
+ * Every method has an empty default, so a listener only overrides the
+ * events it cares about.
+ */
+public interface GameListener {
+
+    /**
+     * Discards every event.
+     */
+    GameListener NONE = new GameListener() {};
+
+    /**
+     * Where district or bonus gold came from.
+     */
+    enum GoldSource {
+        INCOME,
+        DISTRICTS,
+        MERCHANT
+    }
+
+    /**
+     * End-of-game points awarded on top of district costs.
+     */
+    enum ScoreBonus {
+        DRAGON_GATE,
+        ALL_COLOURS,
+        FIRST_FINISHER,
+        COMPLETED_CITY
+    }
+
+    // Selection phase
+
+    default void selectionPhaseStarted() {}
+
+    /**
+     * A character was removed before picking; faceUp tells whether it was shown.
+     */
+    default void characterDiscarded(CardsAndDecks.CharacterCard character, boolean faceUp) {}
+
+    default void characterChosen(Player player, CardsAndDecks.CharacterCard character) {}
+
+    // Turn phase
+
+    default void turnPhaseStarted() {}
+
+    default void turnStarted(Player player, CardsAndDecks.CharacterCard character) {}
+
+    default void turnSkipped(Player player) {}
+
+    default void turnEnded(Player player) {}
+
+    // Abilities
+
+    default void assassinated(Player assassin, int rank, String characterName) {}
+
+    default void robbed(Player thief, int rank, String characterName) {}
+
+    default void goldStolen(Player thief, Player victim, int amount) {}
+
+    default void handsSwapped(Player player, Player other) {}
+
+    default void cardsRedrawn(Player player, int count) {}
+
+    default void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {}
+
+    // Income and building
+
+    default void goldGained(Player player, int amount, GoldSource source, CardsAndDecks.DistrictColor colour) {}
+
+    /**
+     * The player drew cards for income and put back discarded (null if none).
+     */
+    default void cardsDrawn(Player player, int count, CardsAndDecks.DistrictCard discarded) {}
+
+    default void districtBuilt(Player player, CardsAndDecks.DistrictCard district) {}
+
+    default void buildSkipped(Player player) {}
+
+    /**
+     * Cards drawn outside of income, e.g. the Architect's two extra cards.
+     */
+    default void extraCardsDrawn(Player player, int count) {}
+
+    // Scoring
+
+    default void scoringStarted() {}
+
+    default void scoringPlayer(Player player) {}
+
+    /**
+     * A wildcard district counted as the given colour when scoring.
+     */
+    default void colourFilled(Player player, CardsAndDecks.DistrictCard district, CardsAndDecks.DistrictColor colour) {}
+
+    default void scoreBonus(Player player, ScoreBonus bonus, int points) {}
+
+    default void scoreComputed(Player player, int score) {}
+
+    default void winnerDeclared(Player winner, int score) {}
+
+    /**
+     * Forwards every event to each listener in turn.
+     */
+    final class Multicast implements GameListener {
+        private final GameListener[] listeners;
+
+        public Multicast(GameListener... listeners) {
+            this.listeners = listeners.clone();
+        }
+
+        /**
+         * A listener that sends to both; NONE is dropped rather than wrapped.
+         */
+        public static GameListener of(GameListener a, GameListener b) {
+            if (a == NONE) return b;
+            if (b == NONE) return a;
+            GameListener[] first = a instanceof Multicast ? ((Multicast) a).listeners : new GameListener[] { a };
+            GameListener[] all = Arrays.copyOf(first, first.length + 1);
+            all[first.length] = b;
+            return new Multicast(all);
+        }
+
+        /**
+         * A listener without target, or NONE if nothing is left.
+         */
+        public static GameListener without(GameListener a, GameListener target) {
+            if (a == target) return NONE;
+            if (!(a instanceof Multicast)) return a;
+            GameListener[] rest = Arrays.stream(((Multicast) a).listeners).filter(l -> l != target).toArray(GameListener[]::new);
+            return rest.length == 0 ? NONE : rest.length == 1 ? rest[0] : new Multicast(rest);
+        }
+
+        @Override public void selectionPhaseStarted() { for (GameListener l : listeners) l.selectionPhaseStarted(); }
+        @Override public void characterDiscarded(CardsAndDecks.CharacterCard c, boolean faceUp) { for (GameListener l : listeners) l.characterDiscarded(c, faceUp); }
+        @Override public void characterChosen(Player p, CardsAndDecks.CharacterCard c) { for (GameListener l : listeners) l.characterChosen(p, c); }
+        @Override public void turnPhaseStarted() { for (GameListener l : listeners) l.turnPhaseStarted(); }
+        @Override public void turnStarted(Player p, CardsAndDecks.CharacterCard c) { for (GameListener l : listeners) l.turnStarted(p, c); }
+        @Override public void turnSkipped(Player p) { for (GameListener l : listeners) l.turnSkipped(p); }
+        @Override public void turnEnded(Player p) { for (GameListener l : listeners) l.turnEnded(p); }
+        @Override public void assassinated(Player a, int rank, String name) { for (GameListener l : listeners) l.assassinated(a, rank, name); }
+        @Override public void robbed(Player t, int rank, String name) { for (GameListener l : listeners) l.robbed(t, rank, name); }
+        @Override public void goldStolen(Player t, Player v, int amount) { for (GameListener l : listeners) l.goldStolen(t, v, amount); }
+        @Override public void handsSwapped(Player p, Player o) { for (GameListener l : listeners) l.handsSwapped(p, o); }
+        @Override public void cardsRedrawn(Player p, int count) { for (GameListener l : listeners) l.cardsRedrawn(p, count); }
+        @Override public void districtDestroyed(Player w, Player v, CardsAndDecks.DistrictCard d, int paid) { for (GameListener l : listeners) l.districtDestroyed(w, v, d, paid); }
+        @Override public void goldGained(Player p, int amount, GoldSource s, CardsAndDecks.DistrictColor c) { for (GameListener l : listeners) l.goldGained(p, amount, s, c); }
+        @Override public void cardsDrawn(Player p, int count, CardsAndDecks.DistrictCard d) { for (GameListener l : listeners) l.cardsDrawn(p, count, d); }
+        @Override public void districtBuilt(Player p, CardsAndDecks.DistrictCard d) { for (GameListener l : listeners) l.districtBuilt(p, d); }
+        @Override public void buildSkipped(Player p) { for (GameListener l : listeners) l.buildSkipped(p); }
+        @Override public void extraCardsDrawn(Player p, int count) { for (GameListener l : listeners) l.extraCardsDrawn(p, count); }
+        @Override public void scoringStarted() { for (GameListener l : listeners) l.scoringStarted(); }
+        @Override public void scoringPlayer(Player p) { for (GameListener l : listeners) l.scoringPlayer(p); }
+        @Override public void colourFilled(Player p, CardsAndDecks.DistrictCard d, CardsAndDecks.DistrictColor c) { for (GameListener l : listeners) l.colourFilled(p, d, c); }
+        @Override public void scoreBonus(Player p, ScoreBonus bonus, int points) { for (GameListener l : listeners) l.scoreBonus(p, bonus, points); }
+        @Override public void scoreComputed(Player p, int score) { for (GameListener l : listeners) l.scoreComputed(p, score); }
+        @Override public void winnerDeclared(Player w, int score) { for (GameListener l : listeners) l.winnerDeclared(w, score); }
+    }
+}
@@ -0,0 +1,143 @@
+package citadels;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The single source of randomness for a game: a SplitMix64 generator, the
+ * same algorithm as java.util.SplittableRandom, but with its state exposed
+ * so a game can be saved and resumed mid-stream.
+ *
+ * Not thread-safe. A game is played on one thread; anything that needs
+ * randomness on another thread should split() off its own generator.
+ */
+public final class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final AtomicLong SEEDER = new AtomicLong(mix64(System.nanoTime()));
+
+    private long state;
+    private final long gamma;
+
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates a generator with a fresh, unpredictable seed.
+     */
+    public GameRandom() {
+        this(newSeed());
+    }
+
+    private GameRandom(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    /**
+     * A seed that differs between calls and between runs, for unseeded games.
+     */
+    public static long newSeed() {
+        return mix64(SEEDER.getAndAdd(2 * GOLDEN_GAMMA) ^ System.nanoTime());
+    }
+
+    /**
+     * Recreates a generator from getState()/getGamma(), e.g. when loading a save.
+     */
+    public static GameRandom restore(long state, long gamma) {
+        return new GameRandom(state, gamma | 1L);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Moves the generator to a state taken from getState() of a generator
+     * with the same gamma, e.g. one that played on a copy of the game.
+     */
+    void setState(long state) {
+        this.state = state;
+    }
+
+    public long getGamma() {
+        return gamma;
+    }
+
+    /**
+     * An independent copy that will produce the same values as this generator.
+     */
+    public GameRandom copy() {
+        return new GameRandom(state, gamma);
+    }
+
+    /**
+     * A new generator whose values are statistically independent of this one.
+     */
+    public GameRandom split() {
+        return new GameRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+
+    /**
+     * Uniform value in [0, bound).
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        int r = mix32(nextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        // reject values from the incomplete last interval so every result is equally likely
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(nextSeed()) >>> 1) {
+        }
+        return r;
+    }
+
+    /**
+     * Uniform value in [origin, bound).
+     */
+    public int nextInt(int origin, int bound) {
+        return origin + nextInt(bound - origin);
+    }
+
+    public boolean nextBoolean() {
+        return mix32(nextSeed()) < 0;
+    }
+
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    private long nextSeed() {
+        return state += gamma;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
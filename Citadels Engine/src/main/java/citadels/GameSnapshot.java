@@ -0,0 +1,367 @@
+package citadels;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary save format. A snapshot holds everything needed to carry on a game
+ * exactly where it was saved: the RNG state, both decks in order, every
+ * player's hand, city, gold and character, the crown, the first finisher and
+ * the assassination/robbery state of the current round.
+ *
+ * Cards from the catalog are written as their ID and numbers as varints, so
+ * a typical mid-game snapshot is a few hundred bytes. Cards that are not
+ * catalog instances are written out in full.
+ *
+ * Layout (version 1): magic "CTDS", version, then the game fields in the
+ * order of encode() below.
+ */
+public final class GameSnapshot {
+    static final byte[] MAGIC = { 'C', 'T', 'D', 'S' };
+    static final int VERSION = 1;
+
+    private static final int AI = 0;
+    private static final int HUMAN = 1;
+
+    private GameSnapshot() {}
+
+    /**
+     * True if the file starts with the snapshot magic bytes.
+     */
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+            while (head.hasRemaining() && ch.read(head) >= 0) {
+            }
+            return !head.hasRemaining() && matchesMagic(head.flip());
+        }
+    }
+
+    public static void save(Game game, Path file) throws IOException {
+        ByteBuffer buf = encode(game);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+        }
+    }
+
+    public static void load(Game game, Path file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large: " + size + " bytes");
+            buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining() && ch.read(buf) >= 0) {
+            }
+        }
+        decode(buf.flip(), game);
+    }
+
+    /**
+     * Encodes the game into a buffer ready to be read or written.
+     */
+    public static ByteBuffer encode(Game game) {
+        Writer w = new Writer();
+        w.bytes(MAGIC);
+        w.varint(VERSION);
+
+        GameRandom random = game.getRandom();
+        w.fixed64(game.getSeed());
+        w.fixed64(random.getState());
+        w.fixed64(random.getGamma());
+        w.varint(game.getRounds());
+        w.varint(game.getMaxRounds());
+        w.varint(game.isDebugMode() ? 1 : 0);
+
+        List<Player> players = game.getPlayers();
+        w.varint(game.getNumPlayers());
+        w.varint(game.getCrownIndex() + 1);
+        w.varint(players.indexOf(game.getCurrentPlayer()) + 1);
+        w.varint(players.indexOf(game.getFirstFinisher()) + 1);
+
+        TurnManager tm = game.getTurnManager();
+        w.varint(tm.getAssassinatedCharacter() + 1);
+        w.varint(tm.getRobbedCharacter() + 1);
+        w.varint(players.indexOf(tm.getThiefPlayer()) + 1);
+
+        CardsAndDecks.DistrictDeck deck = game.getDistrictDeck();
+        w.varint(deck.size());
+        for (int i = 0; i < deck.size(); i++) {
+            w.card(deck.cardAtIndex(i));
+        }
+
+        List<CardsAndDecks.CharacterCard> characters = game.getCharacterDeck().getAvailableCards();
+        w.varint(characters.size());
+        for (CardsAndDecks.CharacterCard c : characters) {
+            w.character(c);
+        }
+
+        w.varint(players.size());
+        for (Player p : players) {
+            w.varint(p instanceof HumanPlayer ? HUMAN : AI);
+            w.string(p.getName());
+            w.zigzag(p.getGold());
+            w.varint(p.getBuildsThisTurn());
+            w.varint(p.getBuildCount());
+            w.character(p.getCharacter());
+            w.cards(p.getHand());
+            w.cards(p.getCity());
+        }
+        return w.finish();
+    }
+
+    /**
+     * Replaces the state of game with the snapshot in buf. The game's console
+     * and listener are kept.
+     */
+    public static void decode(ByteBuffer buf, Game game) throws IOException {
+        try {
+            if (buf.remaining() < MAGIC.length || !matchesMagic(buf)) {
+                throw new IOException("Not a game snapshot");
+            }
+            buf.position(buf.position() + MAGIC.length);
+            int version = varint(buf);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+
+            long seed = buf.getLong();
+            GameRandom random = GameRandom.restore(buf.getLong(), buf.getLong());
+            int rounds = varint(buf);
+            int maxRounds = varint(buf);
+            boolean debug = varint(buf) != 0;
+
+            int numPlayers = varint(buf);
+            int crownIndex = varint(buf) - 1;
+            int current = varint(buf) - 1;
+            int firstFinisher = varint(buf) - 1;
+            int assassinated = varint(buf) - 1;
+            int robbed = varint(buf) - 1;
+            int thief = varint(buf) - 1;
+
+            int deckSize = count(buf);
+            List<CardsAndDecks.DistrictCard> deckCards = new ArrayList<>(deckSize);
+            for (int i = 0; i < deckSize; i++) {
+                deckCards.add(card(buf));
+            }
+
+            int characterCount = count(buf);
+            List<CardsAndDecks.CharacterCard> characters = new ArrayList<>(characterCount);
+            for (int i = 0; i < characterCount; i++) {
+                characters.add(character(buf));
+            }
+
+            int playerCount = count(buf);
+            List<Player> players = new ArrayList<>(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                int kind = varint(buf);
+                String name = string(buf);
+                Player p = kind == HUMAN ? new HumanPlayer(name) : new AIPlayer(name);
+                p.addGold(zigzag(buf) - p.getGold());
+                p.setBuildsThisTurn(varint(buf));
+                p.setBuildCount(varint(buf));
+                p.setCharacter(character(buf));
+                readCards(buf, p.getHand());
+                readCards(buf, p.getCity());
+                players.add(p);
+            }
+
+            // reject what would only fail later in play
+            if (numPlayers != playerCount) {
+                throw new IllegalArgumentException(numPlayers + " players recorded but " + playerCount + " stored");
+            }
+            if (crownIndex < 0 || crownIndex >= Math.max(playerCount, 1)) {
+                throw new IllegalArgumentException("Bad crown seat " + crownIndex);
+            }
+            seat(current, playerCount);
+            seat(firstFinisher, playerCount);
+            seat(thief, playerCount);
+            rank(assassinated);
+            rank(robbed);
+
+            game.restore(seed, random, new CardsAndDecks.DistrictDeck(random, deckCards),
+                    new CardsAndDecks.CharacterDeck(random, characters), players);
+            game.setNumPlayers(numPlayers);
+            game.setRounds(rounds);
+            game.setMaxRounds(maxRounds);
+            game.setDebugMode(debug);
+            game.setCrownIndex(crownIndex);
+            game.setCurrentPlayer(player(players, current));
+            game.setFirstFinisher(player(players, firstFinisher));
+            game.getTurnManager().markAssassinated(assassinated);
+            game.getTurnManager().markRobbed(robbed, player(players, thief));
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt game snapshot", e);
+        }
+    }
+
+    private static boolean matchesMagic(ByteBuffer buf) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.get(buf.position() + i) != MAGIC[i]) return false;
+        }
+        return true;
+    }
+
+    private static Player player(List<Player> players, int index) {
+        return index >= 0 ? players.get(index) : null;
+    }
+
+    private static void readCards(ByteBuffer buf, List<CardsAndDecks.DistrictCard> into) {
+        int n = count(buf);
+        into.clear();
+        for (int i = 0; i < n; i++) {
+            into.add(card(buf));
+        }
+    }
+
+    private static CardsAndDecks.DistrictCard card(ByteBuffer buf) {
+        int tag = varint(buf);
+        if (tag > 0) return CardsAndDecks.CardCatalog.get().card(tag - 1);
+        String name = string(buf);
+        int cost = varint(buf);
+        CardsAndDecks.DistrictColor colour = CardsAndDecks.DistrictColor.values()[varint(buf)];
+        return new CardsAndDecks.DistrictCard(name, cost, colour, string(buf));
+    }
+
+    // Characters are the deck's shared cards; the stored name is only a check for humans reading the file
+    private static CardsAndDecks.CharacterCard character(ByteBuffer buf) {
+        int tag = varint(buf);
+        if (tag == 0) return null;
+        CardsAndDecks.Ability ability = CardsAndDecks.Ability.values()[tag - 1];
+        int rank = varint(buf);
+        string(buf);
+        CardsAndDecks.CharacterCard c = CardsAndDecks.CharacterDeck.byRank(rank);
+        if (c == null || c.getAbility() != ability) {
+            throw new IllegalArgumentException("Bad character " + ability + " at rank " + rank);
+        }
+        return c;
+    }
+
+    // A seat read back as an index: -1 for nobody, else one of the players
+    private static void seat(int index, int players) {
+        if (index < -1 || index >= players) throw new IllegalArgumentException("Bad seat " + index);
+    }
+
+    // A character rank in the turn state: -1 for none, else 1 to 8
+    private static void rank(int rank) {
+        if (rank != -1 && (rank < 1 || rank > 8)) throw new IllegalArgumentException("Bad rank " + rank);
+    }
+
+    private static String string(ByteBuffer buf) {
+        byte[] b = new byte[count(buf)];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int varint(ByteBuffer buf) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buf.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    // A length or element count: every element takes at least a byte, so
+    // anything beyond what is left in the buffer is corrupt
+    private static int count(ByteBuffer buf) {
+        int n = varint(buf);
+        if (n < 0 || n > buf.remaining()) {
+            throw new IllegalArgumentException("Bad length " + n);
+        }
+        return n;
+    }
+
+    private static int zigzag(ByteBuffer buf) {
+        int v = varint(buf);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Growable output buffer with the snapshot's primitive encodings.
+     */
+    private static final class Writer {
+        private ByteBuffer buf = ByteBuffer.allocate(512);
+
+        private void ensure(int n) {
+            if (buf.remaining() < n) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + n));
+                bigger.put(buf.flip());
+                buf = bigger;
+            }
+        }
+
+        void bytes(byte[] b) {
+            ensure(b.length);
+            buf.put(b);
+        }
+
+        void fixed64(long v) {
+            ensure(8);
+            buf.putLong(v);
+        }
+
+        void varint(int v) {
+            ensure(5);
+            while ((v & ~0x7f) != 0) {
+                buf.put((byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        void zigzag(int v) {
+            varint((v << 1) ^ (v >> 31));
+        }
+
+        void string(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length);
+            bytes(b);
+        }
+
+        void card(CardsAndDecks.DistrictCard card) {
+            int id = card.getId();
+            if (id >= 0 && CardsAndDecks.CardCatalog.get().card(id) == card) {
+                varint(id + 1);
+                return;
+            }
+            varint(0);
+            string(card.getName());
+            varint(card.getCost());
+            varint(card.getColour().ordinal());
+            string(card.getText());
+        }
+
+        void cards(List<CardsAndDecks.DistrictCard> cards) {
+            varint(cards.size());
+            for (CardsAndDecks.DistrictCard c : cards) {
+                card(c);
+            }
+        }
+
+        void character(CardsAndDecks.CharacterCard c) {
+            if (c == null) {
+                varint(0);
+                return;
+            }
+            varint(c.getAbility().ordinal() + 1);
+            varint(c.getRank());
+            string(c.getName());
+        }
+
+        ByteBuffer finish() {
+            return buf.flip();
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A computer player that searches instead of following fixed rules, using
+ * information-set Monte Carlo tree search.
+ *
+ * Each search plays the game out many times from the current decision.
+ * Every playout starts from a copy of the game (Game.branch) in which
+ * everything this player cannot see is dealt again at random: opponents'
+ * hands are reshuffled with the district pile, and characters not yet
+ * revealed are handed out again from those that could still be in play.
+ * This player's own choices in the playout follow a search tree (UCB1,
+ * counting a choice as available only in playouts where it was legal);
+ * everybody else, and this player once off the tree, plays like the
+ * built-in AI. The choice whose branch was visited most is taken.
+ *
+ * Playouts run on a fork-join pool, each worker growing its own tree; the
+ * trees' visit counts are added up at the end. The budget is a number of
+ * playouts, a time limit per decision, or both. With a playout budget and a
+ * fixed pool size a seeded game plays the same every time.
+ *
+ * Discards and the Warlord's target use simple rules: by the time they are
+ * asked the game cannot be restarted from the step that asks them.
+ */
+public class MctsDecisions implements DecisionProvider {
+    private static final double EXPLORATION = 0.7;
+    // playouts are scored after this many more rounds if nobody has finished
+    private static final int HORIZON = 30;
+
+    private static final int CHARACTER = 1;
+    private static final int INCOME = 2;
+    private static final int DISCARD = 3;
+    private static final int BUILD = 4;
+    private static final int TARGET = 5;
+    private static final int MAGICIAN = 6;
+    private static final int DESTROY = 7;
+
+    private static final List<CardsAndDecks.CharacterCard> CHARACTERS = allCharacters();
+
+    // where in the game a playout resumes
+    enum Root {
+        SELECTION(null),
+        INCOME(Player.Stage.INCOME),
+        ACTION(Player.Stage.ACTION),
+        BUILD(Player.Stage.BUILD);
+
+        private final Player.Stage stage;
+
+        Root(Player.Stage stage) {
+            this.stage = stage;
+        }
+    }
+
+    private final int iterations;
+    private final long millis;
+    private final ForkJoinPool pool;
+    private final DecisionProvider rules = new AIDecisions();
+
+    /**
+     * Searches until iterations playouts are done or millis have passed,
+     * whichever comes first; a budget of 0 means no limit of that kind.
+     * Playouts run on pool, or on the calling thread if pool is null.
+     */
+    public MctsDecisions(int iterations, long millis, ForkJoinPool pool) {
+        if (iterations <= 0 && millis <= 0) {
+            throw new IllegalArgumentException("A search needs a playout or time budget");
+        }
+        this.iterations = iterations > 0 ? iterations : Integer.MAX_VALUE;
+        this.millis = millis;
+        this.pool = pool;
+    }
+
+    public static MctsDecisions iterations(int iterations) {
+        return new MctsDecisions(iterations, 0, ForkJoinPool.commonPool());
+    }
+
+    public static MctsDecisions timed(long millis) {
+        return new MctsDecisions(0, millis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * A search on the calling thread only, for callers that already keep
+     * every core busy with games of their own. Plays the same as a search
+     * on a pool of one thread.
+     */
+    public static MctsDecisions sequential(int iterations) {
+        return new MctsDecisions(iterations, 0, null);
+    }
+
+    @Override
+    public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+        if (available.isEmpty()) return null;
+        return character(available, search(game, player, Root.SELECTION, CHARACTER, characterKeys(available)));
+    }
+
+    @Override
+    public Income chooseIncome(Game game, Player player) {
+        return income(search(game, player, Root.INCOME, INCOME, incomeKeys()));
+    }
+
+    // Put back a district that is already built, else the dearest card
+    @Override
+    public int chooseDiscard(Game game, Player player) {
+        CardsAndDecks.CardList hand = player.getHand();
+        if (hand.size() <= 1) return -1;
+        int dearest = 0;
+        for (int i = 0; i < hand.size(); i++) {
+            if (player.getCity().hasDistrict(hand.get(i))) return i;
+            if (hand.get(i).getCost() > hand.get(dearest).getCost()) dearest = i;
+        }
+        return dearest;
+    }
+
+    @Override
+    public int chooseBuild(Game game, Player player) {
+        return handIndex(player, search(game, player, Root.BUILD, BUILD, buildKeys(player)));
+    }
+
+    @Override
+    public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+        return search(game, player, Root.ACTION, TARGET, targetKeys(player, minRank, maxRank));
+    }
+
+    @Override
+    public MagicianMove chooseMagicianMove(Game game, Player player) {
+        return magicianMove(game, player, search(game, player, Root.ACTION, MAGICIAN, magicianKeys(game, player)));
+    }
+
+    @Override
+    public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+        return rules.chooseDistrictToDestroy(game, warlord, targets);
+    }
+
+    /**
+     * Runs the search for one decision and returns the chosen key.
+     */
+    private int search(Game game, Player player, Root root, int kind, int[] keys) {
+        if (keys.length == 1) return keys[0];
+
+        int seat = game.getPlayers().indexOf(player);
+        long deadline = millis > 0 ? System.nanoTime() + millis * 1_000_000 : Long.MAX_VALUE;
+        GameRandom seeds = new GameRandom(game.getRandom().nextLong());
+        // workers branch from this copy, so the real game is never touched off its own thread
+        Game start = game.branch(seeds.split());
+
+        if (pool == null) {
+            return best(kind, keys, grow(start, seat, root, iterations, deadline, seeds.nextLong()).children);
+        }
+
+        // the playout budget is split exactly, so a small one runs on fewer workers
+        int tasks = Math.min(pool.getParallelism(), iterations);
+        List<ForkJoinTask<Node>> running = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            int playouts = iterations == Integer.MAX_VALUE ? iterations
+                    : iterations / tasks + (t < iterations % tasks ? 1 : 0);
+            long seed = seeds.nextLong();
+            running.add(pool.submit(() -> grow(start, seat, root, playouts, deadline, seed)));
+        }
+
+        List<Node> children = new ArrayList<>();
+        for (ForkJoinTask<Node> task : running) {
+            children.addAll(task.join().children);
+        }
+        return best(kind, keys, children);
+    }
+
+    // The key whose node, summed over all trees, was visited most
+    private static int best(int kind, int[] keys, List<Node> children) {
+        Map<Integer, Node> totals = new HashMap<>();
+        for (Node child : children) {
+            Node total = totals.computeIfAbsent(child.key, Node::new);
+            total.visits += child.visits;
+            total.reward += child.reward;
+        }
+
+        int best = keys[0];
+        Node bestNode = null;
+        for (int key : keys) {
+            Node n = totals.get(key(kind, key));
+            if (n != null && (bestNode == null || n.visits > bestNode.visits
+                    || n.visits == bestNode.visits && n.reward > bestNode.reward)) {
+                best = key;
+                bestNode = n;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One worker's share of the playouts, all feeding the same tree.
+     */
+    private Node grow(Game start, int seat, Root root, int playouts, long deadline, long seed) {
+        Node tree = new Node(0);
+        GameRandom rng = new GameRandom(seed);
+        for (int i = 0; i < playouts && System.nanoTime() < deadline; i++) {
+            Game copy = start.branch(rng.split());
+            Player me = copy.getPlayers().get(seat);
+            determinize(copy, me, root, rng);
+
+            TreePolicy policy = new TreePolicy(tree, rng);
+            me.setDecisions(policy);
+            playOut(copy, me, root);
+            policy.update(copy.getWinner() == me ? 1 : 0);
+        }
+        return tree;
+    }
+
+    /**
+     * Redeals what the player cannot see: opponents' hands with the district
+     * pile, and unrevealed characters among those still unaccounted for.
+     */
+    static void determinize(Game game, Player me, Root root, GameRandom rng) {
+        CardsAndDecks.DistrictDeck deck = game.getDistrictDeck();
+        List<CardsAndDecks.DistrictCard> unseen = new ArrayList<>(deck.size() + 32);
+        CardsAndDecks.DistrictCard card;
+        while ((card = deck.draw()) != null) {
+            unseen.add(card);
+        }
+        for (Player p : game.getPlayers()) {
+            if (p != me) unseen.addAll(p.getHand());
+        }
+        shuffle(unseen, rng);
+        int next = 0;
+        for (Player p : game.getPlayers()) {
+            if (p == me) continue;
+            int n = p.getHand().size();
+            p.getHand().clear();
+            for (int i = 0; i < n; i++) {
+                p.getHand().add(unseen.get(next++));
+            }
+        }
+        for (int i = next; i < unseen.size(); i++) {
+            deck.returnCard(unseen.get(i));
+        }
+
+        // Characters: those picked before us in selection, or not yet called in
+        // the turn phase. Face-up discards are out of play either way, and in the
+        // turn phase every rank up to ours has been called, so a player still
+        // hidden holds a higher one.
+        TurnManager tm = game.getTurnManager();
+        boolean[] seen = new boolean[9];
+        int faceUp = tm.getFaceUpDiscards();
+        List<Player> hidden = new ArrayList<>();
+        if (root == Root.SELECTION) {
+            for (int r = 1; r <= 8; r++) {
+                seen[r] = game.getCharacterDeck().isAvailable(r) || (faceUp & 1 << r) != 0;
+            }
+            int position = tm.pickPosition(me);
+            for (Player p : game.getPlayers()) {
+                if (p != me && tm.pickPosition(p) < position) hidden.add(p);
+            }
+        } else {
+            int rank = me.getCharacter().getRank();
+            for (int r = 1; r <= 8; r++) {
+                seen[r] = r <= rank || (faceUp & 1 << r) != 0;
+            }
+            for (Player p : game.getPlayers()) {
+                if (p != me && p.getCharacter() != null && p.getCharacter().getRank() > rank) hidden.add(p);
+            }
+        }
+        List<CardsAndDecks.CharacterCard> candidates = new ArrayList<>();
+        for (CardsAndDecks.CharacterCard c : CHARACTERS) {
+            if (!seen[c.getRank()]) candidates.add(c);
+        }
+        shuffle(candidates, rng);
+        for (int i = 0; i < hidden.size() && i < candidates.size(); i++) {
+            hidden.get(i).setCharacter(candidates.get(i));
+        }
+    }
+
+    /**
+     * Plays the copy from the decision to the end of the game or the horizon.
+     */
+    private static void playOut(Game game, Player me, Root root) {
+        TurnManager tm = game.getTurnManager();
+        if (root == Root.SELECTION) {
+            tm.selectCharacters(tm.pickPosition(me));
+            tm.runTurnsFrom(1);
+        } else {
+            me.takeTurnFrom(game, root.stage);
+            tm.runTurnsFrom(me.getCharacter().getRank() + 1);
+        }
+        game.setRounds(game.getRounds() + 1);
+        int limit = game.getRounds() + HORIZON;
+        if (game.getMaxRounds() > 0) limit = Math.min(limit, game.getMaxRounds());
+        game.setMaxRounds(limit);
+        game.play();
+    }
+
+    /**
+     * This player's decisions inside a playout: down the tree while every
+     * choice has been tried, then one new node, then the built-in AI.
+     */
+    private final class TreePolicy implements DecisionProvider {
+        private final GameRandom rng;
+        private final List<Node> path = new ArrayList<>();
+        private Node node;
+        private boolean inTree = true;
+
+        TreePolicy(Node root, GameRandom rng) {
+            this.node = root;
+            this.rng = rng;
+            path.add(root);
+        }
+
+        /**
+         * Index of the key to play, or -1 once the playout has left the tree.
+         */
+        private int select(int kind, int[] keys) {
+            if (!inTree || keys.length == 0) return -1;
+            if (keys.length == 1) return 0;
+
+            int untried = 0;
+            Node best = null;
+            int bestIndex = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < keys.length; i++) {
+                Node child = node.child(key(kind, keys[i]));
+                if (child == null) {
+                    untried++;
+                    continue;
+                }
+                child.available++;
+                double value = child.reward / child.visits
+                        + EXPLORATION * Math.sqrt(Math.log(child.available) / child.visits);
+                if (value > bestValue) {
+                    best = child;
+                    bestIndex = i;
+                    bestValue = value;
+                }
+            }
+
+            if (untried > 0) {
+                int pick = rng.nextInt(untried);
+                for (int i = 0; i < keys.length; i++) {
+                    if (node.child(key(kind, keys[i])) == null && pick-- == 0) {
+                        Node child = new Node(key(kind, keys[i]));
+                        child.available = 1;
+                        node.children.add(child);
+                        path.add(child);
+                        inTree = false;
+                        return i;
+                    }
+                }
+            }
+            node = best;
+            path.add(best);
+            return bestIndex;
+        }
+
+        void update(double reward) {
+            for (Node n : path) {
+                n.visits++;
+                n.reward += reward;
+            }
+        }
+
+        @Override
+        public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+            int[] keys = characterKeys(available);
+            int i = select(CHARACTER, keys);
+            return i < 0 ? rules.chooseCharacter(game, player, available) : character(available, keys[i]);
+        }
+
+        @Override
+        public Income chooseIncome(Game game, Player player) {
+            int[] keys = incomeKeys();
+            int i = select(INCOME, keys);
+            return i < 0 ? rules.chooseIncome(game, player) : income(keys[i]);
+        }
+
+        @Override
+        public int chooseDiscard(Game game, Player player) {
+            int[] keys = discardKeys(player);
+            int i = select(DISCARD, keys);
+            return i < 0 ? rules.chooseDiscard(game, player) : handIndex(player, keys[i]);
+        }
+
+        @Override
+        public int chooseBuild(Game game, Player player) {
+            int[] keys = buildKeys(player);
+            int i = select(BUILD, keys);
+            return i < 0 ? rules.chooseBuild(game, player) : handIndex(player, keys[i]);
+        }
+
+        @Override
+        public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+            int[] keys = targetKeys(player, minRank, maxRank);
+            int i = select(TARGET, keys);
+            return i < 0 ? rules.chooseCharacterTarget(game, player, ability, minRank, maxRank) : keys[i];
+        }
+
+        @Override
+        public MagicianMove chooseMagicianMove(Game game, Player player) {
+            int[] keys = magicianKeys(game, player);
+            int i = select(MAGICIAN, keys);
+            return i < 0 ? rules.chooseMagicianMove(game, player) : magicianMove(game, player, keys[i]);
+        }
+
+        @Override
+        public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+            int[] keys = destroyKeys(warlord, targets);
+            int i = select(DESTROY, keys);
+            if (i < 0) return rules.chooseDistrictToDestroy(game, warlord, targets);
+            return keys[i] < 0 ? null : new DistrictTarget(keys[i] / 256, keys[i] % 256);
+        }
+    }
+
+    /**
+     * A choice in the search tree, keyed by decision kind and option.
+     */
+    private static final class Node {
+        final int key;
+        final List<Node> children = new ArrayList<>(4);
+        int visits;
+        int available;
+        double reward;
+
+        Node(int key) {
+            this.key = key;
+        }
+
+        Node child(int key) {
+            for (int i = 0; i < children.size(); i++) {
+                if (children.get(i).key == key) return children.get(i);
+            }
+            return null;
+        }
+    }
+
+    private static int key(int kind, int option) {
+        return (kind << 20) | (option + 1);
+    }
+
+    // Options are given as keys that mean the same thing in every playout:
+    // ranks, catalog IDs and seats rather than positions that a redeal changes.
+
+    private static int[] characterKeys(List<CardsAndDecks.CharacterCard> available) {
+        int[] keys = new int[available.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = available.get(i).getRank();
+        }
+        return keys;
+    }
+
+    private static CardsAndDecks.CharacterCard character(List<CardsAndDecks.CharacterCard> available, int rank) {
+        for (CardsAndDecks.CharacterCard c : available) {
+            if (c.getRank() == rank) return c;
+        }
+        return available.get(0);
+    }
+
+    private static int[] incomeKeys() {
+        return new int[] { 0, 1 };
+    }
+
+    private static Income income(int key) {
+        return key == 1 ? Income.CARDS : Income.GOLD;
+    }
+
+    private static int cardKey(CardsAndDecks.DistrictCard card, int index) {
+        return card.getId() >= 0 ? card.getId() : 1000 + index;
+    }
+
+    private static int handIndex(Player player, int key) {
+        if (key < 0) return -1;
+        CardsAndDecks.CardList hand = player.getHand();
+        for (int i = 0; i < hand.size(); i++) {
+            if (cardKey(hand.get(i), i) == key) return i;
+        }
+        return -1;
+    }
+
+    private static int[] discardKeys(Player player) {
+        CardsAndDecks.CardList hand = player.getHand();
+        if (hand.size() <= 1) return new int[] { -1 };
+        int[] keys = new int[hand.size()];
+        int n = 0;
+        for (int i = 0; i < hand.size(); i++) {
+            n = addDistinct(keys, n, cardKey(hand.get(i), i));
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    // Stop, or any district the player may build now
+    private static int[] buildKeys(Player player) {
+        CardsAndDecks.CardList hand = player.getHand();
+        CardsAndDecks.CharacterCard character = player.getCharacter();
+        int maxBuilds = character != null && character.getAbility() == CardsAndDecks.Ability.ARCHITECT ? 3 : 1;
+        if (player.getBuildsThisTurn() >= maxBuilds) return new int[] { -1 };
+
+        int[] keys = new int[hand.size() + 1];
+        keys[0] = -1;
+        int n = 1;
+        for (int i = 0; i < hand.size(); i++) {
+            CardsAndDecks.DistrictCard card = hand.get(i);
+            if (card.getCost() <= player.getGold() && !player.getCity().hasDistrict(card)) {
+                n = addDistinct(keys, n, cardKey(card, i));
+            }
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    private static int[] targetKeys(Player player, int minRank, int maxRank) {
+        int own = player.getCharacter() != null ? player.getCharacter().getRank() : -1;
+        int[] keys = new int[maxRank - minRank + 1];
+        int n = 0;
+        for (int rank = minRank; rank <= maxRank; rank++) {
+            if (rank != own) keys[n++] = rank;
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    // -1 does nothing, 0 redraws the whole hand, seat + 1 swaps hands with that seat
+    private static int[] magicianKeys(Game game, Player player) {
+        List<Player> players = game.getPlayers();
+        int[] keys = new int[players.size() + 1];
+        keys[0] = -1;
+        int n = 1;
+        if (!player.getHand().isEmpty()) keys[n++] = 0;
+        for (int seat = 0; seat < players.size(); seat++) {
+            if (players.get(seat) != player) keys[n++] = seat + 1;
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    private static MagicianMove magicianMove(Game game, Player player, int key) {
+        if (key < 0) return null;
+        if (key > 0) return MagicianMove.swap(game.getPlayers().get(key - 1));
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < player.getHand().size(); i++) {
+            all.add(i);
+        }
+        return MagicianMove.redraw(all);
+    }
+
+    // -1 destroys nothing, target * 256 + district for anything affordable
+    private static int[] destroyKeys(Player warlord, List<Player> targets) {
+        List<Integer> keys = new ArrayList<>();
+        keys.add(-1);
+        for (int t = 0; t < targets.size(); t++) {
+            City city = targets.get(t).getCity();
+            for (int d = 0; d < city.size() && d < 256; d++) {
+                if (city.get(d).getCost() - 1 <= warlord.getGold()) keys.add(t * 256 + d);
+            }
+        }
+        int[] result = new int[keys.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = keys.get(i);
+        }
+        return result;
+    }
+
+    private static int addDistinct(int[] keys, int n, int key) {
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == key) return n;
+        }
+        keys[n] = key;
+        return n + 1;
+    }
+
+    private static <T> void shuffle(List<T> list, GameRandom rng) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = rng.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    private static List<CardsAndDecks.CharacterCard> allCharacters() {
+        List<CardsAndDecks.CharacterCard> cards = new ArrayList<>();
+        for (int r = 1; r <= 8; r++) {
+            cards.add(CardsAndDecks.CharacterDeck.byRank(r));
+        }
+        return cards;
+    }
+}
@@ -1,23 +1,50 @@
 package citadels;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public abstract class Player{
+    static final int SCHOOL_OF_MAGIC = CardsAndDecks.CardCatalog.get().idOf("School of Magic");
+
     protected final String name;
     protected int gold = 2;
-    protected List<CardsAndDecks.DistrictCard> hand = new ArrayList<>();
-    protected List<CardsAndDecks.DistrictCard> city = new ArrayList<>();
+    protected final CardsAndDecks.CardList hand;
+    protected final City city;
     protected CardsAndDecks.CharacterCard character;
+    protected DecisionProvider decisions;
     private int buildsThisTurn = 0;
     protected int buildCount;
 
 
-    public Player(String name){
+    public Player(String name, DecisionProvider decisions){
         this.name = name;
+        this.decisions = decisions;
+        this.hand = new CardsAndDecks.CardList();
+        this.city = new City();
+    }
+
+    /**
+     * A copy of other deciding with decisions: own hand and city, same
+     * gold, character and build counters.
+     */
+    protected Player(Player other, DecisionProvider decisions) {
+        this.name = other.name;
+        this.decisions = decisions;
+        this.gold = other.gold;
+        this.hand = new CardsAndDecks.CardList(other.hand);
+        this.city = new City(other.city);
+        this.character = other.character;
+        this.buildsThisTurn = other.buildsThisTurn;
+        this.buildCount = other.buildCount;
     }
 
+    /**
+     * An independent copy of this player, for Game.copy(). The decision
+     * provider is shared.
+     */
+    public abstract Player copy();
+
     public String getName(){
         return name;
     }
@@ -26,11 +53,11 @@ public abstract class Player{
         return gold;
     }
 
-    public List<CardsAndDecks.DistrictCard> getHand() {
+    public CardsAndDecks.CardList getHand() {
         return hand; 
     }
 
-    public List<CardsAndDecks.DistrictCard> getCity() { 
+    public City getCity() { 
         return city; 
     }
 
@@ -42,14 +69,85 @@ public abstract class Player{
         this.character = c; 
     }
 
+    public DecisionProvider getDecisions() {
+        return decisions;
+    }
+
+    /**
+     * Replaces how this player decides, e.g. with a script in tests.
+     */
+    public void setDecisions(DecisionProvider decisions) {
+        this.decisions = decisions;
+    }
+
     public abstract void takeTurn(TurnManager tm);
 
+    /**
+     * The steps of a turn, in order. A copied game can be resumed from any of them.
+     */
+    enum Stage {
+        INCOME,
+        ACTION,
+        BUILD
+    }
+
+    /**
+     * Plays the rest of this turn through the decision provider, starting
+     * at the given step. Whatever the seat, the provider makes every choice,
+     * so search AIs can resume any player's turn in a copied game.
+     */
+    void takeTurnFrom(Game game, Stage stage) {
+        // STEP 1: Income choice (gold or cards)
+        if (stage == Stage.INCOME) {
+            collectIncome(game);
+        }
+
+        // STEP 2: Character ability
+        if (stage != Stage.BUILD && character != null) {
+            performSpecialAction(game, new String[] { "action" });
+        }
+
+        // STEP 3: Build for as long as the provider picks something buildable
+        boolean built = false;
+        int index;
+        while ((index = decisions.chooseBuild(game, this)) >= 0 && build(index, game)) {
+            built = true;
+        }
+        if (!built) {
+            game.events().buildSkipped(this);
+        }
+    }
+
+    /**
+     * Takes 2 gold or draws 2 cards and puts one back, as the provider decides.
+     */
+    protected void collectIncome(Game game) {
+        if (decisions.chooseIncome(game, this) == DecisionProvider.Income.CARDS) {
+            drawCards(2, game);
+            int discard = decisions.chooseDiscard(game, this);
+            if (discard >= 0 && discard < hand.size()) {
+                CardsAndDecks.DistrictCard removed = hand.remove(discard);
+                game.getDistrictDeck().returnCard(removed);
+                game.events().cardsDrawn(this, 2, removed);
+            } else {
+                game.events().cardsDrawn(this, 2, null);
+            }
+        } else {
+            addGold(2);
+            game.events().goldGained(this, 2, GameListener.GoldSource.INCOME, null);
+        }
+    }
+
     public void drawDistricts(CardsAndDecks.DistrictDeck deck, int n) {
-        for (int i = 0; i < n; i++) hand.add(deck.draw());
+        for (int i = 0; i < n; i++) {
+            CardsAndDecks.DistrictCard card = deck.draw();
+            if (card == null) break; // deck exhausted
+            hand.add(card);
+        }
     }
 
     public boolean hasDistrict(String name) {
-        return city.stream().anyMatch(d -> d.getName().equalsIgnoreCase(name));
+        return city.containsName(name);
     }
 
 
@@ -60,13 +158,13 @@ public abstract class Player{
         if (handIndex < 0 || handIndex >= hand.size()) return false;
 
         CardsAndDecks.DistrictCard card = hand.get(handIndex);
-        if (gold < card.getCost() || city.stream().anyMatch(d -> d.getName().equals(card.getName()))) return false;
+        if (gold < card.getCost() || city.hasDistrict(card)) return false;
 
         gold -= card.getCost();
         city.add(card);
         hand.remove(handIndex);
         buildsThisTurn++;
-        System.out.println("You built " + card.getName() + " [" + card.getColour().name().toLowerCase() + card.getCost() + "]");
+        game.events().districtBuilt(this, card);
         if (city.size() >= 8 && game.getFirstFinisher() == null) {
             game.setFirstFinisher(this);
         }
@@ -74,99 +172,77 @@ public abstract class Player{
     }
 
     public void performSpecialAction(Game game, String[] tokens) {
+        long start = System.nanoTime();
+        specialAction(game, tokens);
+        game.metrics().record(character.getAbility(), start);
+    }
+
+    private void specialAction(Game game, String[] tokens) {
         CardsAndDecks.Ability ability = character.getAbility();
-        boolean isAI = !(this instanceof HumanPlayer);
 
         switch (ability) {
             case ASSASSIN: {
-                int target = isAI ? pickRandomTarget(2, 8)
-                                : getTargetFromTokens(game, tokens, 2, 8);
+                int target = targetFromTokens(game, tokens, ability, 2, 8);
+                if (target < 0) break;
                 game.getTurnManager().markAssassinated(target);
-                String name = game.getCharacterDeck().getNameByRank(target);
-                System.out.println(getName() + " assassinated the " + name + ".");
+                game.events().assassinated(this, target, game.getCharacterDeck().getNameByRank(target));
                 break;
             }
 
             case THIEF: {
-                int robTarget = isAI ? pickRandomTarget(3, 8)
-                                    : getTargetFromTokens(game, tokens, 3, 8);
+                int robTarget = targetFromTokens(game, tokens, ability, 3, 8);
+                if (robTarget < 0) break;
                 game.getTurnManager().markRobbed(robTarget, this);
-                String characterName = game.getCharacterDeck().getNameByRank(robTarget);
-                System.out.println(getName() + " robbed the " + characterName + ".");
+                game.events().robbed(this, robTarget, game.getCharacterDeck().getNameByRank(robTarget));
                 break;
             }
 
             case MAGICIAN: {
-                if (isAI) {
-                    if (new Random().nextBoolean()) {
-                        // Redraw all cards
-                        StringBuilder sb = new StringBuilder();
-                        for (int i = 0; i < hand.size(); i++) {
-                            sb.append(i).append(",");
-                        }
-                        game.redrawCards(this, sb.toString());
-                        System.out.println(getName() + " (AI) redraws their hand.");
-                    } else {
-                        // Swap with random other player
-                        List<Player> others = new ArrayList<>();
-                        for (Player p : game.getPlayers()) {
-                            if (p != this) {
-                                others.add(p);
-                            }
+                DecisionProvider.MagicianMove move;
+                if (tokens.length > 2 && tokens[1].equalsIgnoreCase("swap")) {
+                    try {
+                        int targetIndex = Integer.parseInt(tokens[2]) - 1;
+                        if (targetIndex < 0 || targetIndex >= game.getPlayers().size()) {
+                            game.out().println("Invalid player number.");
+                            break;
                         }
-                        Player swapTarget = others.get(new Random().nextInt(others.size()));
-                        game.swapHands(this, swapTarget);
-                        System.out.println(getName() + " (AI) swaps hands with " + swapTarget.getName());
+                        move = DecisionProvider.MagicianMove.swap(game.getPlayers().get(targetIndex));
+                    } catch (NumberFormatException e) {
+                        game.out().println("Invalid player number.");
+                        break;
                     }
+                } else if (tokens.length > 2 && tokens[1].equalsIgnoreCase("redraw")) {
+                    int redrawn = game.redrawCards(this, tokens[2]);  // "0,1" format
+                    game.events().cardsRedrawn(this, redrawn);
+                    break;
                 } else {
-                    if (tokens.length > 1 && tokens[1].equalsIgnoreCase("swap") && tokens.length > 2) {
-                        try {
-                            int targetIndex = Integer.parseInt(tokens[2]) - 1;
-                            if (targetIndex >= 0 && targetIndex < game.getPlayers().size()) {
-                                game.swapHands(this, game.getPlayers().get(targetIndex));
-                                System.out.println("You swapped hands with " + game.getPlayers().get(targetIndex).getName());
-                            } else {
-                                System.out.println("Invalid player number.");
-                            }
-                        } catch (NumberFormatException e) {
-                            System.out.println("Invalid player number.");
-                        }
-                    } else if (tokens.length > 1 && tokens[1].equalsIgnoreCase("redraw") && tokens.length > 2) {
-                        String input = tokens[2];  // "0,1" format
-                        game.redrawCards(this, input);
-                        System.out.println("You redrew some cards.");
-                    } else {
-                        // Fallback to interactive prompt
-                        System.out.println("Choose: 1. Swap hands  2. Redraw");
-                        int choice = game.getConsole().nextInt();
-                        game.getConsole().nextLine();
-                        if (choice == 1) {
-                            System.out.println("Enter player number to swap with:");
-                            int swapPlayer = game.getConsole().nextInt();
-                            game.swapHands(this, game.getPlayers().get(swapPlayer - 1));
-                        } else {
-                            System.out.println("Enter indexes to discard (comma-separated):");
-                            String input = game.getConsole().nextLine(); 
-                            game.redrawCards(this, input);
-                        }
-                    }
+                    move = decisions.chooseMagicianMove(game, this);
+                }
+
+                if (move == null) break;
+                if (move.swapWith != null) {
+                    game.swapHands(this, move.swapWith);
+                    game.events().handsSwapped(this, move.swapWith);
+                } else {
+                    int redrawn = game.redrawCards(this, new ArrayList<>(move.redraw));
+                    game.events().cardsRedrawn(this, redrawn);
                 }
                 break;
             }
 
             case KING:
-                gainGoldFromDistrict(CardsAndDecks.DistrictColor.YELLOW);
+                gainGoldFromDistrict(CardsAndDecks.DistrictColor.YELLOW, game);
                 game.setCrownPlayer(this);
                 break;
 
             case BISHOP:
-                gainGoldFromDistrict(CardsAndDecks.DistrictColor.BLUE);
+                gainGoldFromDistrict(CardsAndDecks.DistrictColor.BLUE, game);
                 break;
 
             case MERCHANT:
-                gainGoldFromDistrict(CardsAndDecks.DistrictColor.GREEN);
+                gainGoldFromDistrict(CardsAndDecks.DistrictColor.GREEN, game);
                 gold += 1;
-                System.out.println(getName() + " receives +1 gold from Merchant ability.");
+                game.events().goldGained(this, 1, GameListener.GoldSource.MERCHANT, null);
                 break;
 
             case ARCHITECT:
@@ -174,9 +250,8 @@ public abstract class Player{
                 break;
 
             case WARLORD:
-                gainGoldFromDistrict(CardsAndDecks.DistrictColor.RED);
+                gainGoldFromDistrict(CardsAndDecks.DistrictColor.RED, game);
                 game.handleWarlordAction(this);
-                System.out.println(getName() + " receives +1 gold from Warlord ability.");
                 break;
         }
     }
@@ -184,17 +259,21 @@ public abstract class Player{
 
     public void addGold(int amount) { gold += amount; }
 
-    public void gainGoldFromDistrict(CardsAndDecks.DistrictColor color) {
-        int bonus = 0;
-        for (CardsAndDecks.DistrictCard d : city) {
-            if (d.getColour() == color ||
-                (d.getColour() == CardsAndDecks.DistrictColor.PURPLE &&
-                d.getName().equalsIgnoreCase("School of Magic"))) {
-                bonus++;
-            }
+    /**
+     * Adds one gold per district of the given colour and returns the amount gained.
+     */
+    public int gainGoldFromDistrict(CardsAndDecks.DistrictColor color) {
+        int bonus = city.colourCount(color);
+        if (color != CardsAndDecks.DistrictColor.PURPLE) {
+            bonus += city.count(SCHOOL_OF_MAGIC); // counts as any colour for income
         }
         gold += bonus;
-        System.out.println(name + " gains " + bonus + " gold from " + color + " districts.");
+        return bonus;
+    }
+
+    private void gainGoldFromDistrict(CardsAndDecks.DistrictColor color, Game game) {
+        int bonus = gainGoldFromDistrict(color);
+        game.events().goldGained(this, bonus, GameListener.GoldSource.DISTRICTS, color);
     }
 
 
@@ -203,26 +282,42 @@ public abstract class Player{
     }
 
     public void showHand() {
-        System.out.println("Your hand:");
+        showHand(System.out);
+    }
+
+    public void showHand(PrintStream out) {
+        out.println("Your hand:");
         for (int i = 0; i < hand.size(); i++) {
             CardsAndDecks.DistrictCard card = hand.get(i);
-            System.out.println(i + ". " + card.getName() + " [" + card.getColour().name().toLowerCase() + card.getCost() + "]");
+            out.println(i + ". " + card.getName() + " [" + card.getColour().name().toLowerCase() + card.getCost() + "]");
         }
     }
 
     public void showGold() {
-        System.out.println("You have " + gold + " gold.");
+        showGold(System.out);
+    }
+
+    public void showGold(PrintStream out) {
+        out.println("You have " + gold + " gold.");
     }
 
     public void showCity() {
-        System.out.println(getName() + " has built:");
+        showCity(System.out);
+    }
+
+    public void showCity(PrintStream out) {
+        out.println(getName() + " has built:");
         for (CardsAndDecks.DistrictCard card : city) {
-            System.out.println(card.getName() + " (" + card.getColour().name().toLowerCase() + "), points: " + card.getCost());
+            out.println(card.getName() + " (" + card.getColour().name().toLowerCase() + "), points: " + card.getCost());
         }
     }
 
     public void endTurn() {
-        System.out.println("You ended your turn.");
+        endTurn(System.out);
+    }
+
+    public void endTurn(PrintStream out) {
+        out.println("You ended your turn.");
     }
 
     public boolean buildDistrict(int index, Game game) {
@@ -230,17 +325,21 @@ public abstract class Player{
     }
 
     public void showInfo(String target) {
+        showInfo(target, System.out);
+    }
+
+    public void showInfo(String target, PrintStream out) {
         try {
             int index = Integer.parseInt(target);
             if (index >= 0 && index < hand.size()) {
                 CardsAndDecks.DistrictCard card = hand.get(index);
-                System.out.println("Card: " + card.getName());
-                System.out.println("Cost: " + card.getCost());
-                System.out.println("Color: " + card.getColour());
-                System.out.println("Text: " + card.getText());
+                out.println("Card: " + card.getName());
+                out.println("Cost: " + card.getCost());
+                out.println("Color: " + card.getColour());
+                out.println("Text: " + card.getText());
                 return;
             } else {
-                System.out.println("Invalid card index.");
+                out.println("Invalid card index.");
                 return;
             }
         } catch (NumberFormatException e) {
@@ -249,61 +348,52 @@ public abstract class Player{
 
         try {
             CardsAndDecks.Ability ability = CardsAndDecks.Ability.valueOf(target.toUpperCase());
-            System.out.println("Character: " + ability);
+            out.println("Character: " + ability);
             switch (ability) {
                 case ASSASSIN:
-                    System.out.println("Kills one character. They lose their turn.");
+                    out.println("Kills one character. They lose their turn.");
                     break;
                 case THIEF:
-                    System.out.println("Steals gold from one character.");
+                    out.println("Steals gold from one character.");
                     break;
                 case MAGICIAN:
-                    System.out.println("Swap hands or redraw cards.");
+                    out.println("Swap hands or redraw cards.");
                     break;
                 case KING:
-                    System.out.println("Gets gold for yellow districts and crown.");
+                    out.println("Gets gold for yellow districts and crown.");
                     break;
                 case BISHOP:
-                    System.out.println("Gets gold for blue districts. Immune to Warlord.");
+                    out.println("Gets gold for blue districts. Immune to Warlord.");
                     break;
                 case MERCHANT:
-                    System.out.println("Gets gold for green districts. +1 gold.");
+                    out.println("Gets gold for green districts. +1 gold.");
                     break;
                 case ARCHITECT:
-                    System.out.println("Draw 2 extra cards. Build up to 3.");
+                    out.println("Draw 2 extra cards. Build up to 3.");
                     break;
                 case WARLORD:
-                    System.out.println("Can destroy districts by paying cost-1.");
+                    out.println("Can destroy districts by paying cost-1.");
                     break;
             }
         } catch (IllegalArgumentException ex) {
-            System.out.println("No card or character matches '" + target + "'.");
+            out.println("No card or character matches '" + target + "'.");
         }
     }
 
-    private int getTargetFromTokens(Game game, String[] tokens, int min, int max) {
+    // A target typed with the command (e.g. "action 4"), else ask the decision provider
+    private int targetFromTokens(Game game, String[] tokens, CardsAndDecks.Ability ability, int min, int max) {
         if (tokens.length > 1) {
             try {
                 int choice = Integer.parseInt(tokens[1]);
                 if (choice >= min && choice <= max) return choice;
-                else System.out.println("Invalid character number. Must be between " + min + " and " + max);
+                else game.out().println("Invalid character number. Must be between " + min + " and " + max);
             } catch (NumberFormatException e) {
-                System.out.println("Please enter a valid number.");
+                game.out().println("Please enter a valid number.");
             }
             return -1;
         }
-
-        System.out.println("Enter character number (" + min + "-" + max + "): ");
-        try {
-            return game.getConsole().nextInt();
-        } catch (Exception e) {
-            System.out.println("Invalid input.");
-            return -1;
-        }
-    }
-
-    private int pickRandomTarget(int min, int max) {
-        return new java.util.Random().nextInt(max - min + 1) + min;
+        int choice = decisions.chooseCharacterTarget(game, this, ability, min, max);
+        return choice >= min && choice <= max ? choice : -1;
     }
 
     public void resetBuildCount() {
@@ -318,4 +408,16 @@ public abstract class Player{
         buildCount++;
     }
 
+    int getBuildsThisTurn() {
+        return buildsThisTurn;
+    }
+
+    void setBuildsThisTurn(int n) {
+        buildsThisTurn = n;
+    }
+
+    void setBuildCount(int n) {
+        buildCount = n;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,356 @@
+package citadels;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets expensive computer players think while a human does.
+ *
+ * When a human is about to pick a character or play a turn, the game is
+ * copied and played on in the background, the human's part taken by a
+ * stand-in: during selection one line per character the human could pick,
+ * during a turn one line in which the built-in AI plays the human's turn.
+ * Each line runs to the end of the round and through the next round's
+ * picks up to the human's. Whenever a line asks a player whose decisions
+ * were wrapped by wrap() for a decision, the answer is worked out there and
+ * then and filed under the exact position it was asked in.
+ *
+ * When the real game later asks the same player for the same kind of
+ * decision, the position is looked up: if a line got there first (the
+ * human did what that line assumed), its answer is used, waiting for it if
+ * it is still being worked out; otherwise the decision is made as usual.
+ * A position covers the whole game in order, the random generator's state
+ * included, and the round and turn details a search depends on, so a reused
+ * answer is the one the search would have given, and the generator is
+ * moved on as if it had run: pondering changes when an answer is ready,
+ * never what it is. Lines from the previous human decision are abandoned
+ * and their answers dropped when the next one starts.
+ */
+public final class Ponderer implements Closeable {
+    private static final int CHARACTER = 1;
+    private static final int INCOME = 2;
+    private static final int DISCARD = 3;
+    private static final int BUILD = 4;
+    private static final int TARGET = 5;
+    private static final int MAGICIAN = 6;
+    private static final int DESTROY = 7;
+
+    private final ExecutorService executor;
+    private final Map<Long, CompletableFuture<Answer>> answers = new ConcurrentHashMap<>();
+    // the copies being played in the background, with the generation that started them
+    private final Map<Game, Integer> speculating = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // A decision worked out in a line, and the generator's state after it
+    private static final class Answer {
+        final Object value;
+        final long randomAfter;
+
+        Answer(Object value, long randomAfter) {
+            this.value = value;
+            this.randomAfter = randomAfter;
+        }
+    }
+
+    // Ends a line that is out of date or has reached the human's next pick
+    private static final class Abandoned extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Abandoned() {
+            super(null, null, false, false);
+        }
+    }
+
+    // The human in a line: the built-in AI, stopping at the next character pick
+    private static final class StandIn extends AIDecisions {
+        @Override
+        public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+            throw new Abandoned();
+        }
+    }
+
+    /**
+     * Ponders on the given number of daemon threads.
+     */
+    public Ponderer(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "citadels-ponder-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Wraps the decisions of every computer player at the table and has the
+     * game call this ponderer whenever a human is about to decide.
+     */
+    public static Ponderer attach(Game game, int threads) {
+        Ponderer ponderer = new Ponderer(threads);
+        for (Player p : game.getPlayers()) {
+            if (!(p instanceof HumanPlayer)) p.setDecisions(ponderer.wrap(p.getDecisions()));
+        }
+        game.setPonderer(ponderer);
+        return ponderer;
+    }
+
+    /**
+     * Decisions that are taken from the background lines when one has
+     * reached the same position, and asked of inner otherwise.
+     */
+    public DecisionProvider wrap(DecisionProvider inner) {
+        return new DecisionProvider() {
+            @Override
+            public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+                int mask = 0;
+                for (CardsAndDecks.CharacterCard c : available) mask |= 1 << c.getRank();
+                return decide(game, player, CHARACTER, mask, () -> inner.chooseCharacter(game, player, available));
+            }
+
+            @Override
+            public Income chooseIncome(Game game, Player player) {
+                return decide(game, player, INCOME, 0, () -> inner.chooseIncome(game, player));
+            }
+
+            @Override
+            public int chooseDiscard(Game game, Player player) {
+                return decide(game, player, DISCARD, 0, () -> inner.chooseDiscard(game, player));
+            }
+
+            @Override
+            public int chooseBuild(Game game, Player player) {
+                return decide(game, player, BUILD, player.getBuildsThisTurn(), () -> inner.chooseBuild(game, player));
+            }
+
+            @Override
+            public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+                return decide(game, player, TARGET, ability.ordinal() * 100 + minRank * 10 + maxRank,
+                        () -> inner.chooseCharacterTarget(game, player, ability, minRank, maxRank));
+            }
+
+            // the other player is held as a seat, since lines play on copies
+            @Override
+            public MagicianMove chooseMagicianMove(Game game, Player player) {
+                Object move = decide(game, player, MAGICIAN, 0, () -> {
+                    MagicianMove m = inner.chooseMagicianMove(game, player);
+                    if (m == null) return null;
+                    return m.swapWith != null ? (Object) game.getPlayers().indexOf(m.swapWith) : new ArrayList<>(m.redraw);
+                });
+                if (move == null) return null;
+                if (move instanceof Integer) return MagicianMove.swap(game.getPlayers().get((Integer) move));
+                @SuppressWarnings("unchecked")
+                List<Integer> redraw = new ArrayList<>((List<Integer>) move);
+                return MagicianMove.redraw(redraw);
+            }
+
+            @Override
+            public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+                return decide(game, warlord, DESTROY, targets.size(), () -> inner.chooseDistrictToDestroy(game, warlord, targets));
+            }
+
+            @Override
+            public String nextCommand(Game game, Player player) {
+                return inner.nextCommand(game, player);
+            }
+        };
+    }
+
+    /**
+     * Called as a human at pick position in the selection order is about to
+     * choose from available: starts one line per character they could take.
+     */
+    void ponderSelection(Game game, Player human, int position, List<CardsAndDecks.CharacterCard> available) {
+        int gen = restart();
+        int seat = game.getPlayers().indexOf(human);
+        for (CardsAndDecks.CharacterCard pick : new ArrayList<>(available)) {
+            Game line = standInCopy(game);
+            start(line, gen, () -> {
+                line.getCharacterDeck().removeCard(pick);
+                line.getPlayers().get(seat).setCharacter(pick);
+                if (pick.getAbility() == CardsAndDecks.Ability.KING) {
+                    line.setCrownIndex(seat);
+                }
+                line.getTurnManager().selectCharacters(position + 1);
+                line.getTurnManager().runTurnPhase();
+                nextRound(line);
+            });
+        }
+    }
+
+    /**
+     * Called as a human is about to play their turn: starts a line in which
+     * the built-in AI plays it for them.
+     */
+    void ponderTurn(Game game, Player human) {
+        int gen = restart();
+        int seat = game.getPlayers().indexOf(human);
+        int rank = human.getCharacter().getRank();
+        Game line = standInCopy(game);
+        start(line, gen, () -> {
+            line.getPlayers().get(seat).takeTurnFrom(line, Player.Stage.INCOME);
+            line.getTurnManager().runTurnsFrom(rank + 1);
+            nextRound(line);
+        });
+    }
+
+    /**
+     * Decisions taken from a background line.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Decisions no line had reached, made on the spot.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void close() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T decide(Game game, Player player, int kind, long detail, Supplier<T> inner) {
+        long key = position(game, player, kind, detail);
+        Integer lineGeneration = speculating.get(game);
+        if (lineGeneration != null) {
+            return (T) ponder(game, key, lineGeneration, inner);
+        }
+
+        CompletableFuture<Answer> pondered = answers.get(key);
+        if (pondered != null) {
+            try {
+                Answer answer = pondered.get();
+                game.getRandom().setState(answer.randomAfter);
+                hits.increment();
+                return (T) answer.value;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // the line failed; decide here instead
+            }
+        }
+        misses.increment();
+        return inner.get();
+    }
+
+    // In a line: work the answer out (or wait for another line that is) and file it
+    private Object ponder(Game line, long key, int lineGeneration, Supplier<?> inner) {
+        if (lineGeneration != generation.get()) throw new Abandoned();
+        CompletableFuture<Answer> mine = new CompletableFuture<>();
+        CompletableFuture<Answer> theirs = answers.putIfAbsent(key, mine);
+        if (theirs != null) {
+            Answer answer = theirs.join();
+            line.getRandom().setState(answer.randomAfter);
+            return answer.value;
+        }
+        try {
+            Object value = inner.get();
+            mine.complete(new Answer(value, line.getRandom().getState()));
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private int restart() {
+        int gen = generation.incrementAndGet();
+        answers.clear();
+        return gen;
+    }
+
+    private void start(Game line, int gen, Runnable play) {
+        speculating.put(line, gen);
+        executor.execute(() -> {
+            try {
+                if (gen == generation.get()) play.run();
+            } catch (RuntimeException e) {
+                // an abandoned or failed line is simply dropped
+            } finally {
+                speculating.remove(line);
+            }
+        });
+    }
+
+    // Runs the next round's picks until the stand-in is asked for its own
+    private static void nextRound(Game line) {
+        line.setRounds(line.getRounds() + 1);
+        if (!line.isGameOver() && (line.getMaxRounds() <= 0 || line.getRounds() < line.getMaxRounds())) {
+            line.getTurnManager().runSelectionPhase();
+        }
+    }
+
+    // A copy of game in which every human is played by a StandIn
+    private static Game standInCopy(Game game) {
+        Game line = game.copy();
+        TurnManager tm = line.getTurnManager();
+        List<Player> players = line.getPlayers();
+        for (int s = 0; s < players.size(); s++) {
+            Player human = players.get(s);
+            if (!(human instanceof HumanPlayer)) continue;
+            AIPlayer standIn = new AIPlayer(human);
+            standIn.setDecisions(new StandIn());
+            players.set(s, standIn);
+            if (line.getCurrentPlayer() == human) line.setCurrentPlayer(standIn);
+            if (line.getFirstFinisher() == human) line.setFirstFinisher(standIn);
+            if (tm.getThiefPlayer() == human) tm.markRobbed(tm.getRobbedCharacter(), standIn);
+        }
+        return line;
+    }
+
+    // Everything a decision may depend on, as one 64-bit key. Unlike
+    // stateHash this follows the order of decks and hands, since draws
+    // and hand indexes depend on it.
+    private static long position(Game game, Player player, int kind, long detail) {
+        List<Player> players = game.getPlayers();
+        TurnManager tm = game.getTurnManager();
+        long h = fold(game.getRandom().getState(), kind);
+        h = fold(h, detail);
+        h = fold(h, players.indexOf(player));
+        h = fold(h, tm.pickPosition(player));
+        h = fold(h, game.getRounds());
+        h = fold(h, game.getMaxRounds());
+        h = fold(h, game.getCrownIndex());
+        h = fold(h, players.indexOf(game.getCurrentPlayer()));
+        h = fold(h, players.indexOf(game.getFirstFinisher()));
+        h = fold(h, tm.getAssassinatedCharacter());
+        h = fold(h, tm.getRobbedCharacter());
+        h = fold(h, players.indexOf(tm.getThiefPlayer()));
+        CardsAndDecks.DistrictDeck deck = game.getDistrictDeck();
+        for (int i = 0; i < deck.size(); i++) h = fold(h, deck.cardAtIndex(i).getId());
+        h = fold(h, -1);
+        for (CardsAndDecks.CharacterCard c : game.getCharacterDeck().getAvailableCards()) h = fold(h, c.getRank());
+        for (Player p : players) {
+            h = fold(h, -2);
+            h = fold(h, p.getGold());
+            h = fold(h, p.getBuildsThisTurn());
+            h = fold(h, p.getBuildCount());
+            h = fold(h, p.getCharacter() == null ? 0 : p.getCharacter().getRank());
+            for (CardsAndDecks.DistrictCard c : p.getHand()) h = fold(h, c.getId());
+            h = fold(h, -3);
+            for (CardsAndDecks.DistrictCard c : p.getCity()) h = fold(h, c.getId());
+        }
+        return h;
+    }
+
+    private static long fold(long h, long value) {
+        return Zobrist.mix(h ^ Zobrist.mix(value + 0x632BE59BD9B4E019L));
+    }
+}
@@ -0,0 +1,109 @@
+package citadels;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Plays back a fixed list of answers, one line per decision, and hands over
+ * to a fallback provider once the script runs out. Useful for tests and for
+ * replaying a recorded game.
+ *
+ * Lines are read as: a character name; "gold" or "cards"; a hand index
+ * (discard, build; -1 for none); a character rank; "swap N" (player number)
+ * or "redraw i,j"; "P D" for a Warlord target (or "none"); or a command.
+ */
+public class ScriptedDecisions implements DecisionProvider {
+    private final Deque<String> script;
+    private final DecisionProvider fallback;
+
+    public ScriptedDecisions(String... lines) {
+        this(Arrays.asList(lines), new AIDecisions());
+    }
+
+    public ScriptedDecisions(List<String> lines, DecisionProvider fallback) {
+        this.script = new ArrayDeque<>(lines);
+        this.fallback = fallback;
+    }
+
+    /**
+     * Number of answers not yet used.
+     */
+    public int remaining() {
+        return script.size();
+    }
+
+    private String next() {
+        String line = script.poll();
+        return line == null ? null : line.trim();
+    }
+
+    @Override
+    public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+        String line = next();
+        if (line == null) return fallback.chooseCharacter(game, player, available);
+        for (CardsAndDecks.CharacterCard c : available) {
+            if (c.getName().equalsIgnoreCase(line)) return c;
+        }
+        throw new IllegalStateException("Scripted character " + line + " is not available");
+    }
+
+    @Override
+    public Income chooseIncome(Game game, Player player) {
+        String line = next();
+        if (line == null) return fallback.chooseIncome(game, player);
+        return Income.valueOf(line.toUpperCase());
+    }
+
+    @Override
+    public int chooseDiscard(Game game, Player player) {
+        String line = next();
+        return line == null ? fallback.chooseDiscard(game, player) : Integer.parseInt(line);
+    }
+
+    @Override
+    public int chooseBuild(Game game, Player player) {
+        String line = next();
+        return line == null ? fallback.chooseBuild(game, player) : Integer.parseInt(line);
+    }
+
+    @Override
+    public int chooseCharacterTarget(Game game, Player player, CardsAndDecks.Ability ability, int minRank, int maxRank) {
+        String line = next();
+        return line == null ? fallback.chooseCharacterTarget(game, player, ability, minRank, maxRank) : Integer.parseInt(line);
+    }
+
+    @Override
+    public MagicianMove chooseMagicianMove(Game game, Player player) {
+        String line = next();
+        if (line == null) return fallback.chooseMagicianMove(game, player);
+        String[] tokens = line.split("\\s+");
+        if (tokens[0].equalsIgnoreCase("swap")) {
+            return MagicianMove.swap(game.getPlayers().get(Integer.parseInt(tokens[1]) - 1));
+        }
+        List<Integer> indexes = new ArrayList<>();
+        if (tokens.length > 1) {
+            for (String s : tokens[1].split(",")) {
+                indexes.add(Integer.parseInt(s.trim()));
+            }
+        }
+        return MagicianMove.redraw(indexes);
+    }
+
+    @Override
+    public DistrictTarget chooseDistrictToDestroy(Game game, Player warlord, List<Player> targets) {
+        String line = next();
+        if (line == null) return fallback.chooseDistrictToDestroy(game, warlord, targets);
+        if (line.equalsIgnoreCase("none")) return null;
+        String[] tokens = line.split("\\s+");
+        return new DistrictTarget(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]));
+    }
+
+    @Override
+    public String nextCommand(Game game, Player player) {
+        String line = next();
+        return line == null ? fallback.nextCommand(game, player) : line;
+    }
+}
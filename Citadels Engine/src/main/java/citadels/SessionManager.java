@@ -0,0 +1,326 @@
+package citadels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many interactive games in one JVM. Each session is a Game with its
+ * own console input and output stream, played on its own thread. On a JVM
+ * with virtual threads (21+) every session gets a virtual thread, so a game
+ * waiting on a human parks without holding an OS thread; older JVMs fall
+ * back to a cached pool of platform threads.
+ *
+ * Sessions are fed either from a stream (e.g. a socket) or line by line
+ * through GameSession.send().
+ */
+public class SessionManager implements Closeable {
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private volatile TurnManager.Pacing pacing = TurnManager.Pacing.PROMPT;
+    private volatile long pacingDelayMillis = 500;
+
+    public SessionManager() {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor();
+    }
+
+    // looked up reflectively so the engine still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "citadels-session-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * How CPU turns are paced in games opened from now on. UNTIL_HUMAN or
+     * INSTANT save a client round trip per CPU turn.
+     */
+    public void setPacing(TurnManager.Pacing pacing, long delayMillis) {
+        this.pacing = pacing;
+        this.pacingDelayMillis = delayMillis;
+    }
+
+    /**
+     * Starts a game whose input is sent line by line with GameSession.send().
+     */
+    public GameSession open(long seed, OutputStream out) {
+        LineQueue input = new LineQueue();
+        return start(seed, input, out, input, null);
+    }
+
+    /**
+     * Starts a game that reads from in and writes to out. resource, if not
+     * null, is closed when the game ends (e.g. the client's socket).
+     */
+    public GameSession open(long seed, InputStream in, OutputStream out, Closeable resource) {
+        return start(seed, in, out, null, resource);
+    }
+
+    private GameSession start(long seed, InputStream in, OutputStream out, LineQueue queue, Closeable resource) {
+        Game game = new Game(seed);
+        game.setConsole(new Scanner(in, StandardCharsets.UTF_8));
+        game.setOutput(new PrintStream(out, true, StandardCharsets.UTF_8));
+        game.setPacing(pacing, pacingDelayMillis);
+
+        GameSession session = new GameSession(nextId.getAndIncrement(), game, queue, resource);
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                game.setup();
+                game.play();
+            } catch (NoSuchElementException e) {
+                // input closed: the player left
+            } catch (RuntimeException e) {
+                System.err.println("Session " + session.id + " failed: " + e);
+            } finally {
+                game.out().flush();
+                sessions.remove(session.id);
+                if (resource != null) {
+                    try {
+                        resource.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }, null);
+        session.future = task;
+        sessions.put(session.id, session);
+        executor.execute(task);
+        return session;
+    }
+
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Number of games still being played.
+     */
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Accepts players on port until the thread is interrupted or the socket
+     * fails; every connection gets its own game.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Citadels server listening on port " + port
+                    + (virtualThreads ? " (virtual threads)" : ""));
+            while (!Thread.currentThread().isInterrupted()) {
+                Socket socket = server.accept();
+                try {
+                    open(GameRandom.newSeed(), socket.getInputStream(), socket.getOutputStream(), socket);
+                } catch (IOException | RuntimeException e) {
+                    // no session took the socket, so nothing else will close it
+                    socket.close();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends every session and stops their threads.
+     */
+    @Override
+    public void close() {
+        for (GameSession s : sessions.values()) {
+            s.closeInput();
+        }
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 7777;
+        TurnManager.Pacing pacing = TurnManager.Pacing.PROMPT;
+        long delay = 500;
+        try {
+            for (int i = 0; i + 1 < args.length; i++) {
+                if (args[i].equals("--port")) port = Integer.parseInt(args[i + 1]);
+                if (args[i].equals("--pacing")) pacing = TurnManager.Pacing.parse(args[i + 1]);
+                if (args[i].equals("--delay")) delay = Long.parseLong(args[i + 1]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Usage: server [--port N] [--pacing prompt|instant|delay|until-human] [--delay MS]");
+            return;
+        }
+        try (SessionManager manager = new SessionManager()) {
+            manager.setPacing(pacing, delay);
+            manager.serve(port);
+        }
+    }
+
+    /**
+     * One hosted game.
+     */
+    public static final class GameSession {
+        private final long id;
+        private final Game game;
+        private final LineQueue input;
+        private final Closeable resource;
+        private Future<?> future;
+
+        GameSession(long id, Game game, LineQueue input, Closeable resource) {
+            this.id = id;
+            this.game = game;
+            this.input = input;
+            this.resource = resource;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Game getGame() {
+            return game;
+        }
+
+        /**
+         * Queues a line of console input for this game.
+         */
+        public void send(String line) {
+            if (input == null) throw new IllegalStateException("Session " + id + " reads from a stream");
+            input.add((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Ends the input; the game stops at its next prompt.
+         */
+        public void closeInput() {
+            if (input != null) input.close();
+            if (resource != null) {
+                try {
+                    resource.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        public boolean isFinished() {
+            return future.isDone();
+        }
+
+        /**
+         * Waits for the game to end; false if it is still running after the timeout.
+         */
+        public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                future.get(timeout, unit);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Console input fed by send(). A read blocks (parks, on a virtual
+     * thread) until a line arrives or the queue is closed.
+     */
+    private static final class LineQueue extends InputStream {
+        private static final byte[] EOF = new byte[0];
+
+        private final BlockingQueue<byte[]> lines = new LinkedBlockingQueue<>();
+        private byte[] current;
+        private int pos;
+        private boolean ended;
+
+        void add(byte[] line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void close() {
+            lines.add(EOF);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill(true)) return -1;
+            int n = 0;
+            // hand over everything already queued, but only wait for the first line
+            do {
+                int k = Math.min(len - n, current.length - pos);
+                System.arraycopy(current, pos, b, off + n, k);
+                pos += k;
+                n += k;
+            } while (n < len && fill(false));
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current != null ? current.length - pos : 0;
+        }
+
+        private boolean fill(boolean block) throws IOException {
+            while (current == null || pos == current.length) {
+                if (ended) return false;
+                byte[] next;
+                try {
+                    next = block ? lines.take() : lines.poll();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for input", e);
+                }
+                if (next == null) return false;
+                if (next == EOF) {
+                    ended = true;
+                    return false;
+                }
+                current = next;
+                pos = 0;
+            }
+            return true;
+        }
+    }
+}
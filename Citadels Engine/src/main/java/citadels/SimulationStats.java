@@ -0,0 +1,271 @@
+package citadels;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import citadels.CardsAndDecks.CardCatalog;
+import citadels.CardsAndDecks.DistrictCard;
+
+/**
+ * Aggregate statistics over many finished games: win rate by final
+ * character and by seat, how often the first player to finish wins, average
+ * score by seat, how often each district gets built, and score percentiles.
+ *
+ * Every counter is a LongAdder, so simulation threads record their games
+ * side by side without a lock or a shared map, and a report can be taken
+ * at any time while they run. Two aggregators (say, from separate runs)
+ * combine with merge.
+ */
+public final class SimulationStats {
+    private static final int MAX_SEATS = 7;
+
+    private final CardCatalog catalog = CardCatalog.get();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder firstFinisherWins = new LongAdder();
+    // indexed by character rank
+    private final LongAdder[] characterPlays = adders(9);
+    private final LongAdder[] characterWins = adders(9);
+    private final LongAdder[] seatGames = adders(MAX_SEATS);
+    private final LongAdder[] seatWins = adders(MAX_SEATS);
+    private final LongAdder[] seatPoints = adders(MAX_SEATS);
+    // indexed by catalog ID
+    private final LongAdder[] builds = adders(catalog.size());
+    private final QuantileSketch scores = new QuantileSketch();
+
+    /**
+     * Quantiles of non-negative integers. Values below 256 are counted
+     * exactly; larger ones fall into buckets one percent wide, so any
+     * quantile is within 1% of the true value. Sketches merge by adding
+     * their buckets.
+     */
+    public static final class QuantileSketch {
+        private static final int EXACT = 256;
+        private static final double GAMMA = 1.01;
+        private static final double LOG_GAMMA = Math.log(GAMMA);
+        private static final int LOG_BUCKETS = (int) Math.ceil(Math.log((double) Integer.MAX_VALUE / EXACT) / LOG_GAMMA) + 1;
+
+        private final LongAdder[] exact = adders(EXACT);
+        // rare, so a plain atomic array is enough
+        private final AtomicLongArray tail = new AtomicLongArray(LOG_BUCKETS);
+        private final LongAdder count = new LongAdder();
+
+        public void add(int value) {
+            if (value < 0) value = 0;
+            if (value < EXACT) {
+                exact[value].increment();
+            } else {
+                tail.incrementAndGet(tailIndex(value));
+            }
+            count.increment();
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        /**
+         * The value at quantile q (0 to 1), or 0 if nothing was added.
+         */
+        public int quantile(double q) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int v = 0; v < EXACT; v++) {
+                seen += exact[v].sum();
+                if (seen >= rank) return v;
+            }
+            for (int i = 0; i < LOG_BUCKETS; i++) {
+                seen += tail.get(i);
+                if (seen >= rank) return (int) Math.min(Integer.MAX_VALUE, Math.round(EXACT * Math.pow(GAMMA, i + 0.5)));
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        public void merge(QuantileSketch other) {
+            for (int v = 0; v < EXACT; v++) {
+                exact[v].add(other.exact[v].sum());
+            }
+            for (int i = 0; i < LOG_BUCKETS; i++) {
+                long c = other.tail.get(i);
+                if (c != 0) tail.addAndGet(i, c);
+            }
+            count.add(other.count());
+        }
+
+        private static int tailIndex(int value) {
+            return Math.min(LOG_BUCKETS - 1, (int) (Math.log((double) value / EXACT) / LOG_GAMMA));
+        }
+    }
+
+    /**
+     * Adds a game that has been scored (getFinalScores is not null).
+     */
+    public void record(Game game) {
+        int[] finalScores = game.getFinalScores();
+        if (finalScores == null) return;
+        Player winner = game.getWinner();
+        games.increment();
+        if (game.getFirstFinisher() != null) finished.increment();
+        if (winner != null && winner == game.getFirstFinisher()) firstFinisherWins.increment();
+
+        int seat = 0;
+        for (Player p : game.getPlayers()) {
+            boolean won = p == winner;
+            if (seat < MAX_SEATS) {
+                seatGames[seat].increment();
+                seatPoints[seat].add(finalScores[seat]);
+                if (won) seatWins[seat].increment();
+            }
+            if (p.getCharacter() != null) {
+                int rank = p.getCharacter().getRank();
+                characterPlays[rank].increment();
+                if (won) characterWins[rank].increment();
+            }
+            for (DistrictCard d : p.getCity()) {
+                int id = d.getId();
+                if (id >= 0 && id < builds.length) builds[id].increment();
+            }
+            scores.add(finalScores[seat]);
+            seat++;
+        }
+    }
+
+    /**
+     * Adds a game played to the end by FastEngine.
+     */
+    public void record(FastEngine engine) {
+        int[] finalScores = engine.getFinalScores();
+        if (finalScores == null) return;
+        int winner = engine.getWinnerSeat();
+        games.increment();
+        if (engine.getFirstFinisherSeat() >= 0) finished.increment();
+        if (winner >= 0 && winner == engine.getFirstFinisherSeat()) firstFinisherWins.increment();
+
+        for (int seat = 0; seat < engine.getPlayerCount(); seat++) {
+            boolean won = seat == winner;
+            if (seat < MAX_SEATS) {
+                seatGames[seat].increment();
+                seatPoints[seat].add(finalScores[seat]);
+                if (won) seatWins[seat].increment();
+            }
+            int rank = engine.getCharacterRank(seat);
+            if (rank > 0) {
+                characterPlays[rank].increment();
+                if (won) characterWins[rank].increment();
+            }
+            for (int id : engine.getCity(seat)) {
+                if (id >= 0 && id < builds.length) builds[id].increment();
+            }
+            scores.add(finalScores[seat]);
+        }
+    }
+
+    /**
+     * Adds everything other has recorded to this aggregator.
+     */
+    public void merge(SimulationStats other) {
+        games.add(other.games.sum());
+        finished.add(other.finished.sum());
+        firstFinisherWins.add(other.firstFinisherWins.sum());
+        addAll(characterPlays, other.characterPlays);
+        addAll(characterWins, other.characterWins);
+        addAll(seatGames, other.seatGames);
+        addAll(seatWins, other.seatWins);
+        addAll(seatPoints, other.seatPoints);
+        addAll(builds, other.builds);
+        scores.merge(other.scores);
+    }
+
+    public long games() {
+        return games.sum();
+    }
+
+    /**
+     * Share of games won by whoever held the character of this rank at the end.
+     */
+    public double characterWinRate(int rank) {
+        return ratio(characterWins[rank].sum(), characterPlays[rank].sum());
+    }
+
+    /**
+     * Share of games won by the first player to complete a city.
+     */
+    public double firstFinisherWinRate() {
+        return ratio(firstFinisherWins.sum(), finished.sum());
+    }
+
+    public double seatWinRate(int seat) {
+        return ratio(seatWins[seat].sum(), seatGames[seat].sum());
+    }
+
+    public double averageScore(int seat) {
+        return ratio(seatPoints[seat].sum(), seatGames[seat].sum());
+    }
+
+    /**
+     * Times the district with this catalog ID was in a city at the end of a game, per game.
+     */
+    public double buildsPerGame(int catalogId) {
+        return ratio(builds[catalogId].sum(), games.sum());
+    }
+
+    public QuantileSketch scores() {
+        return scores;
+    }
+
+    /**
+     * Human-readable snapshot of everything recorded so far.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        long n = games();
+        sb.append(String.format("%d games, %d completed a city; first finisher won %.1f%%%n",
+                n, finished.sum(), 100 * firstFinisherWinRate()));
+        sb.append(String.format("Scores: p10 %d  p50 %d  p90 %d  p99 %d  max %d%n",
+                scores.quantile(0.1), scores.quantile(0.5), scores.quantile(0.9),
+                scores.quantile(0.99), scores.quantile(1)));
+
+        sb.append("Seat   Win%   Avg score\n");
+        for (int s = 0; s < MAX_SEATS; s++) {
+            if (seatGames[s].sum() == 0) continue;
+            sb.append(String.format("%4d %6.1f %11.1f%n", s + 1, 100 * seatWinRate(s), averageScore(s)));
+        }
+
+        sb.append("Character      Win%   Games\n");
+        for (int r = 1; r <= 8; r++) {
+            if (characterPlays[r].sum() == 0) continue;
+            sb.append(String.format("%-12s %6.1f %7d%n", CardsAndDecks.CharacterDeck.byRank(r).getName(), 100 * characterWinRate(r), characterPlays[r].sum()));
+        }
+
+        sb.append("Most built districts (per game)\n");
+        Integer[] ids = new Integer[builds.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        Arrays.sort(ids, (a, b) -> Long.compare(builds[b].sum(), builds[a].sum()));
+        for (int i = 0; i < Math.min(10, ids.length); i++) {
+            if (builds[ids[i]].sum() == 0) break;
+            sb.append(String.format("%-20s %6.2f%n", catalog.card(ids[i]).getName(), buildsPerGame(ids[i])));
+        }
+        return sb.toString();
+    }
+
+    private static double ratio(long a, long b) {
+        return b == 0 ? 0 : (double) a / b;
+    }
+
+    private static void addAll(LongAdder[] into, LongAdder[] from) {
+        for (int i = 0; i < into.length; i++) {
+            into[i].add(from[i].sum());
+        }
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] a = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = new LongAdder();
+        }
+        return a;
+    }
+}
@@ -0,0 +1,310 @@
+package citadels;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs batches of AI-only games without any console interaction, spreading
+ * the games across a fork-join pool.
+ *
+ * Usage: simulate [--games N] [--threads N] [--players N] [--seed S] [--rounds N] [--mcts N]
+ *        [--fast] [--stats SECONDS] [--out file]
+ *
+ * With --mcts N, seat 0 is played by MctsDecisions with N playouts per
+ * decision, so its win rate measures the search against the built-in AI.
+ * With --stats, every game is fed to a SimulationStats whose report is
+ * printed every SECONDS while the batch runs (0: only at the end).
+ * With --fast, the games are played by FastEngine, which gives the same
+ * results as Game for the built-in AI but many times faster; it cannot be
+ * combined with --mcts.
+ */
+public class Simulator {
+    // Games per leaf task; small enough to balance, large enough to amortise forking
+    private static final int GRAIN = 16;
+
+    private final int games;
+    private final int threads;
+    private final int numPlayers;
+    private final long seed;
+    private final int maxRounds;
+    private final DecisionProvider challenger;
+    private SimulationStats stats;
+    private boolean fastEngine;
+
+    public Simulator(int games, int threads, int numPlayers, long seed, int maxRounds) {
+        this(games, threads, numPlayers, seed, maxRounds, null);
+    }
+
+    /**
+     * A batch in which seat 0 decides with challenger (if not null) and the
+     * other seats are the built-in AI.
+     */
+    public Simulator(int games, int threads, int numPlayers, long seed, int maxRounds, DecisionProvider challenger) {
+        if (numPlayers < 4 || numPlayers > 7) {
+            throw new IllegalArgumentException("Players must be between 4 and 7");
+        }
+        this.games = games;
+        this.threads = Math.max(1, threads);
+        this.numPlayers = numPlayers;
+        this.seed = seed;
+        this.maxRounds = maxRounds;
+        this.challenger = challenger;
+    }
+
+    /**
+     * Feeds every game of the batch to stats (or to nothing, if null).
+     */
+    public void setStats(SimulationStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Plays the batch on FastEngine instead of Game. Only for batches
+     * without a challenger, since FastEngine only knows the built-in AI.
+     */
+    public void setFastEngine(boolean fastEngine) {
+        if (fastEngine && challenger != null) {
+            throw new IllegalStateException("FastEngine cannot play a challenger");
+        }
+        this.fastEngine = fastEngine;
+    }
+
+    /**
+     * Outcome of a single simulated game.
+     */
+    public static class GameResult {
+        private final long seed;
+        private final int rounds;
+        private final boolean finished;
+        private final int winnerSeat;
+        private final int[] scores;
+
+        public GameResult(long seed, int rounds, boolean finished, int winnerSeat, int[] scores) {
+            this.seed = seed;
+            this.rounds = rounds;
+            this.finished = finished;
+            this.winnerSeat = winnerSeat;
+            this.scores = scores;
+        }
+
+        public long getSeed() { return seed; }
+        public int getRounds() { return rounds; }
+        public boolean isFinished() { return finished; }
+        public int getWinnerSeat() { return winnerSeat; }
+        public int[] getScores() { return scores; }
+    }
+
+    /**
+     * Results of a whole batch together with its wall-clock time.
+     */
+    public static class Report {
+        private final GameResult[] results;
+        private final long elapsedNanos;
+
+        Report(GameResult[] results, long elapsedNanos) {
+            this.results = results;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public GameResult[] getResults() { return results; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double gamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : results.length * 1e9 / elapsedNanos;
+        }
+
+        public void writeCsv(String filename) throws IOException {
+            try (BufferedWriter out = new BufferedWriter(new FileWriter(filename))) {
+                out.write("game,seed,rounds,finished,winner,scores");
+                out.newLine();
+                for (int i = 0; i < results.length; i++) {
+                    GameResult r = results[i];
+                    out.write(i + "," + r.getSeed() + "," + r.getRounds() + "," + r.isFinished() + "," + r.getWinnerSeat() + ",");
+                    int[] scores = r.getScores();
+                    for (int s = 0; s < scores.length; s++) {
+                        if (s > 0) out.write(' ');
+                        out.write(Integer.toString(scores[s]));
+                    }
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays every game in the batch and returns the collected results.
+     */
+    public Report run() {
+        GameResult[] results = new GameResult[games];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new SimulationTask(results, 0, games));
+        } finally {
+            pool.shutdown();
+        }
+        return new Report(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Plays one complete AI-only game.
+     */
+    public static GameResult playOne(int numPlayers, long seed, int maxRounds) {
+        return playOne(numPlayers, seed, maxRounds, null);
+    }
+
+    public static GameResult playOne(int numPlayers, long seed, int maxRounds, DecisionProvider challenger) {
+        return playOne(numPlayers, seed, maxRounds, challenger, null);
+    }
+
+    static GameResult playOne(int numPlayers, long seed, int maxRounds, DecisionProvider challenger, SimulationStats stats) {
+        Game game = new Game(seed);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(numPlayers);
+        if (challenger != null) {
+            game.getPlayers().get(0).setDecisions(challenger);
+        }
+        game.setMaxRounds(maxRounds);
+        game.play();
+        if (stats != null) stats.record(game);
+
+        int winnerSeat = game.getPlayers().indexOf(game.getWinner());
+        return new GameResult(seed, game.getRounds(), game.isGameOver(), winnerSeat, game.getFinalScores());
+    }
+
+    /**
+     * Seed of game i, derived from the batch seed so a game's outcome does
+     * not depend on which worker happened to run it.
+     */
+    static long gameSeed(long seed, int i) {
+        long z = seed + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private class SimulationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameResult[] results;
+        private final int from;
+        private final int to;
+
+        SimulationTask(GameResult[] results, int from, int to) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                for (int i = from; i < to; i++) {
+                    results[i] = fastEngine
+                            ? FastEngine.playOne(numPlayers, gameSeed(seed, i), maxRounds, stats)
+                            : playOne(numPlayers, gameSeed(seed, i), maxRounds, challenger, stats);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SimulationTask(results, from, mid), new SimulationTask(results, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int players = 5;
+        long seed = System.nanoTime();
+        int rounds = 100;
+        String out = null;
+        int mcts = 0;
+        int statsEvery = -1;
+        boolean fast = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--games": games = Integer.parseInt(value); i++; break;
+                    case "--threads": threads = Integer.parseInt(value); i++; break;
+                    case "--players": players = Integer.parseInt(value); i++; break;
+                    case "--seed": seed = Long.parseLong(value); i++; break;
+                    case "--rounds": rounds = Integer.parseInt(value); i++; break;
+                    case "--mcts": mcts = Integer.parseInt(value); i++; break;
+                    case "--fast": fast = true; break;
+                    case "--stats": statsEvery = Integer.parseInt(value); i++; break;
+                    case "--out": out = value; i++; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            System.err.println("Usage: simulate [--games N] [--threads N] [--players N] [--seed S] [--rounds N] [--mcts N] "
+                    + "[--fast] [--stats SECONDS] [--out file]");
+            return;
+        }
+
+        Simulator simulator = new Simulator(games, threads, players, seed, rounds,
+                mcts > 0 ? MctsDecisions.iterations(mcts) : null);
+        if (fast && mcts > 0) {
+            System.err.println("--fast cannot be combined with --mcts");
+            return;
+        }
+        simulator.setFastEngine(fast);
+        SimulationStats stats = statsEvery >= 0 ? new SimulationStats() : null;
+        simulator.setStats(stats);
+        ScheduledExecutorService ticker = null;
+        if (statsEvery > 0) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "citadels-stats");
+                t.setDaemon(true);
+                return t;
+            });
+            ticker.scheduleAtFixedRate(() -> System.out.print(stats.report()), statsEvery, statsEvery, TimeUnit.SECONDS);
+        }
+        Report report;
+        try {
+            report = simulator.run();
+        } finally {
+            if (ticker != null) ticker.shutdownNow();
+        }
+
+        int unfinished = 0;
+        int seatZeroWins = 0;
+        for (GameResult r : report.getResults()) {
+            if (!r.isFinished()) unfinished++;
+            if (r.getWinnerSeat() == 0) seatZeroWins++;
+        }
+        System.out.printf("Simulated %d games (%d players, %d threads, seed %d) in %.2f s: %.1f games/s%n",
+                games, players, threads, seed, report.getElapsedNanos() / 1e9, report.gamesPerSecond());
+        if (unfinished > 0) {
+            System.out.println(unfinished + " games hit the " + rounds + " round limit.");
+        }
+        if (mcts > 0) {
+            System.out.printf("MCTS (seat 0, %d playouts per decision) won %d of %d games (%.1f%%).%n",
+                    mcts, seatZeroWins, games, 100.0 * seatZeroWins / games);
+        }
+
+        if (stats != null) {
+            System.out.print(stats.report());
+        }
+
+        if (out != null) {
+            try {
+                report.writeCsv(out);
+                System.out.println("Results written to " + out);
+            } catch (IOException e) {
+                System.err.println("Failed to write results: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package citadels;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Plays strategies against each other at full tables and rates them.
+ *
+ * A strategy is a DecisionProvider factory (see Entrant.parse). The schedule
+ * holds every distinct seating of the entrants at a table: every choice of
+ * entrants in every seat order, or, with fewer entrants than seats, every
+ * ordering of the entrants repeated to fill the table. Game i is played at
+ * seating i modulo the schedule with a seed derived from the tournament
+ * seed, so a game's result depends only on its number. The exception is a
+ * timed entrant (mcts:Nms): how far it searches depends on the machine and
+ * its load, so tournaments with one do not repeat exactly.
+ *
+ * Games run on all cores, one game per core; search entrants search on
+ * their game's thread rather than spreading over the cores again. Every
+ * finished game is appended to the results log at once, and folded into
+ * the standings (Elo from pairwise finishes, win rate with a Wilson
+ * interval) in game order, so the ratings after n games are the same
+ * however the games were spread over threads or runs; the standings are
+ * printed as they change. Running again with the same log skips the games
+ * already in it, so an interrupted tournament carries on where it stopped.
+ *
+ * Usage: tournament --entrants ai,mcts:200[,...] [--players N] [--games N]
+ *        [--threads N] [--seed S] [--rounds N] [--log file]
+ */
+public class Tournament {
+    static final double INITIAL_RATING = 1500;
+    private static final double K = 24;
+    // largest schedule we are willing to build
+    private static final int MAX_SCHEDULE = 1_000_000;
+
+    private final List<Entrant> entrants;
+    private final int tableSize;
+    private final long seed;
+    private final int threads;
+    private final int maxRounds;
+    private final List<int[]> schedule;
+
+    public Tournament(List<Entrant> entrants, int tableSize, long seed, int threads, int maxRounds) {
+        if (tableSize < 4 || tableSize > 7) {
+            throw new IllegalArgumentException("Players must be between 4 and 7");
+        }
+        if (entrants.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least two entrants");
+        }
+        this.entrants = new ArrayList<>(entrants);
+        this.tableSize = tableSize;
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+        this.maxRounds = maxRounds;
+        this.schedule = buildSchedule(entrants.size(), tableSize);
+    }
+
+    /**
+     * A named strategy. Each game gets fresh providers from the factory.
+     */
+    public static final class Entrant {
+        private final String name;
+        private final Supplier<DecisionProvider> strategy;
+
+        public Entrant(String name, Supplier<DecisionProvider> strategy) {
+            this.name = name;
+            this.strategy = strategy;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        boolean isTimed() {
+            return name.endsWith("ms");
+        }
+
+        /**
+         * "ai" for the built-in AI, "mcts:N" for tree search with N playouts
+         * per decision, "mcts:Nms" for N milliseconds per decision (which
+         * makes results depend on the machine, see Tournament). Searches run
+         * on the calling thread.
+         */
+        public static Entrant parse(String spec) {
+            String s = spec.trim().toLowerCase();
+            if (s.equals("ai")) return new Entrant(s, AIDecisions::new);
+            if (s.startsWith("mcts:")) {
+                String budget = s.substring(5);
+                if (budget.endsWith("ms")) {
+                    long millis = Long.parseLong(budget.substring(0, budget.length() - 2));
+                    return new Entrant(s, () -> new MctsDecisions(0, millis, null));
+                }
+                int playouts = Integer.parseInt(budget);
+                return new Entrant(s, () -> MctsDecisions.sequential(playouts));
+            }
+            throw new IllegalArgumentException("Unknown strategy: " + spec);
+        }
+    }
+
+    /**
+     * One finished game: which entrant sat in each seat and how they scored.
+     */
+    public static final class Result {
+        final int index;
+        final int[] seats;
+        final int[] scores;
+        final int winnerSeat;
+
+        Result(int index, int[] seats, int[] scores, int winnerSeat) {
+            this.index = index;
+            this.seats = seats;
+            this.scores = scores;
+            this.winnerSeat = winnerSeat;
+        }
+
+        // index,winner,entrant:score entrant:score ...
+        String toLine() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(index).append(',').append(winnerSeat).append(',');
+            for (int s = 0; s < seats.length; s++) {
+                if (s > 0) sb.append(' ');
+                sb.append(seats[s]).append(':').append(scores[s]);
+            }
+            return sb.toString();
+        }
+
+        static Result parse(String line) {
+            String[] parts = line.split(",");
+            String[] seatParts = parts[2].split(" ");
+            int[] seats = new int[seatParts.length];
+            int[] scores = new int[seatParts.length];
+            for (int s = 0; s < seatParts.length; s++) {
+                int colon = seatParts[s].indexOf(':');
+                seats[s] = Integer.parseInt(seatParts[s].substring(0, colon));
+                scores[s] = Integer.parseInt(seatParts[s].substring(colon + 1));
+            }
+            return new Result(Integer.parseInt(parts[0]), seats, scores, Integer.parseInt(parts[1]));
+        }
+    }
+
+    /**
+     * Ratings and records of every entrant, updated one game at a time.
+     */
+    public static final class Standings {
+        private final List<Entrant> entrants;
+        private final double[] rating;
+        private final int[] played;
+        private final int[] wins;
+        private final long[] points;
+        private int games;
+
+        Standings(List<Entrant> entrants) {
+            this.entrants = entrants;
+            int n = entrants.size();
+            rating = new double[n];
+            Arrays.fill(rating, INITIAL_RATING);
+            played = new int[n];
+            wins = new int[n];
+            points = new long[n];
+        }
+
+        /**
+         * Counts a game. Elo treats it as a match between every two seats:
+         * the winner beats everyone, the others are ordered by score.
+         */
+        synchronized void add(Result r) {
+            int n = r.seats.length;
+            double[] delta = new double[rating.length];
+            for (int a = 0; a < n; a++) {
+                for (int b = a + 1; b < n; b++) {
+                    int ea = r.seats[a];
+                    int eb = r.seats[b];
+                    if (ea == eb) continue;
+                    double actual = r.winnerSeat == a ? 1 : r.winnerSeat == b ? 0
+                            : Integer.compare(r.scores[a], r.scores[b]) * 0.5 + 0.5;
+                    double expected = 1 / (1 + Math.pow(10, (rating[eb] - rating[ea]) / 400));
+                    double change = K / (n - 1) * (actual - expected);
+                    delta[ea] += change;
+                    delta[eb] -= change;
+                }
+            }
+            for (int e = 0; e < rating.length; e++) {
+                rating[e] += delta[e];
+            }
+            for (int s = 0; s < n; s++) {
+                played[r.seats[s]]++;
+                points[r.seats[s]] += r.scores[s];
+            }
+            if (r.winnerSeat >= 0) wins[r.seats[r.winnerSeat]]++;
+            games++;
+        }
+
+        public synchronized int games() {
+            return games;
+        }
+
+        public synchronized double rating(int entrant) {
+            return rating[entrant];
+        }
+
+        /**
+         * Seats the entrant has played (an entrant may fill several seats of one game).
+         */
+        public synchronized int played(int entrant) {
+            return played[entrant];
+        }
+
+        public synchronized int wins(int entrant) {
+            return wins[entrant];
+        }
+
+        public synchronized String table() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-16s %7s %7s %6s %15s %9s%n", "Entrant", "Elo", "Seats", "Win%", "95% CI", "Avg score"));
+            for (int e = 0; e < entrants.size(); e++) {
+                double[] ci = wilson(wins[e], played[e]);
+                sb.append(String.format("%-16s %7.0f %7d %6.1f  [%5.1f, %5.1f] %9.1f%n",
+                        entrants.get(e).getName(), rating[e], played[e],
+                        played[e] == 0 ? 0 : 100.0 * wins[e] / played[e],
+                        100 * ci[0], 100 * ci[1],
+                        played[e] == 0 ? 0 : (double) points[e] / played[e]));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * 95% Wilson score interval of a proportion: {low, high}.
+     */
+    static double[] wilson(int successes, int trials) {
+        if (trials == 0) return new double[] { 0, 1 };
+        double z = 1.96;
+        double p = (double) successes / trials;
+        double z2n = z * z / trials;
+        double centre = (p + z2n / 2) / (1 + z2n);
+        double half = z * Math.sqrt(p * (1 - p) / trials + z2n / (4 * trials)) / (1 + z2n);
+        return new double[] { Math.max(0, centre - half), Math.min(1, centre + half) };
+    }
+
+    /**
+     * Every distinct seating, as the entrant index of each seat.
+     */
+    static List<int[]> buildSchedule(int entrants, int tableSize) {
+        List<int[]> seatings = new ArrayList<>();
+        if (entrants < tableSize) {
+            int[] table = new int[tableSize];
+            for (int s = 0; s < tableSize; s++) {
+                table[s] = s % entrants;
+            }
+            Arrays.sort(table);
+            addPermutations(table, seatings);
+        } else {
+            int[] pick = new int[tableSize];
+            for (int s = 0; s < tableSize; s++) {
+                pick[s] = s;
+            }
+            do {
+                addPermutations(pick.clone(), seatings);
+            } while (nextCombination(pick, entrants));
+        }
+        return seatings;
+    }
+
+    // all distinct orderings of a sorted array, in lexicographic order
+    private static void addPermutations(int[] a, List<int[]> out) {
+        do {
+            if (out.size() >= MAX_SCHEDULE) {
+                throw new IllegalArgumentException("Too many seatings; use fewer entrants or a smaller table");
+            }
+            out.add(a.clone());
+        } while (nextPermutation(a));
+    }
+
+    private static boolean nextPermutation(int[] a) {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) i--;
+        if (i < 0) return false;
+        int j = a.length - 1;
+        while (a[j] <= a[i]) j--;
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+        for (int l = i + 1, r = a.length - 1; l < r; l++, r--) {
+            t = a[l];
+            a[l] = a[r];
+            a[r] = t;
+        }
+        return true;
+    }
+
+    private static boolean nextCombination(int[] c, int n) {
+        int k = c.length;
+        int i = k - 1;
+        while (i >= 0 && c[i] == n - k + i) i--;
+        if (i < 0) return false;
+        c[i]++;
+        for (int j = i + 1; j < k; j++) {
+            c[j] = c[j - 1] + 1;
+        }
+        return true;
+    }
+
+    public List<int[]> getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Plays game index on its seating and returns the result.
+     */
+    Result playGame(int index) {
+        int[] seats = schedule.get(index % schedule.size());
+        Game game = new Game(Simulator.gameSeed(seed, index));
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(tableSize);
+        game.setMaxRounds(maxRounds);
+        for (int s = 0; s < tableSize; s++) {
+            game.getPlayers().get(s).setDecisions(entrants.get(seats[s]).strategy.get());
+        }
+        game.play();
+        return new Result(index, seats.clone(), game.getFinalScores(), game.getPlayers().indexOf(game.getWinner()));
+    }
+
+    /**
+     * Plays games 0 to games - 1, skipping those already in the log, and
+     * returns the standings over all of them. With a null log nothing is
+     * saved. Standings are printed to progress (if not null) at most every
+     * reportMillis while games finish.
+     */
+    public Standings run(int games, Path log, PrintStream progress, long reportMillis) throws IOException, InterruptedException {
+        Standings standings = new Standings(entrants);
+        BitSet done = new BitSet(games);
+        // finished games not yet counted, because an earlier one is still being played
+        TreeMap<Integer, Result> waiting = new TreeMap<>();
+        int[] nextToCount = { 0 };
+        if (log != null) {
+            for (Result r : readLog(log)) {
+                if (r.index < games && !done.get(r.index)) {
+                    done.set(r.index);
+                    waiting.put(r.index, r);
+                }
+            }
+        }
+        countInOrder(standings, waiting, nextToCount);
+        if (progress != null && !done.isEmpty()) {
+            progress.println("Resuming after " + done.cardinality() + " games.");
+        }
+
+        BufferedWriter out = log == null ? null : Files.newBufferedWriter(log, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (out != null && Files.size(log) == 0) {
+            out.write(header());
+            out.newLine();
+            out.flush();
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        long[] lastReport = { System.nanoTime() };
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "citadels-tournament");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < threads; w++) {
+                workers.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < games) {
+                        if (done.get(i)) continue;
+                        Result r = playGame(i);
+                        synchronized (standings) {
+                            if (out != null) {
+                                try {
+                                    out.write(r.toLine());
+                                    out.newLine();
+                                    out.flush();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            }
+                            waiting.put(r.index, r);
+                            countInOrder(standings, waiting, nextToCount);
+                            long now = System.nanoTime();
+                            if (progress != null && now - lastReport[0] >= reportMillis * 1_000_000) {
+                                lastReport[0] = now;
+                                progress.println(standings.games() + "/" + games + " games");
+                                progress.print(standings.table());
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : workers) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw new IllegalStateException("Tournament game failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            if (out != null) out.close();
+        }
+        return standings;
+    }
+
+    // Adds waiting results to the standings for as long as the next game in order has finished
+    private static void countInOrder(Standings standings, TreeMap<Integer, Result> waiting, int[] next) {
+        Result r;
+        while ((r = waiting.remove(next[0])) != null) {
+            standings.add(r);
+            next[0]++;
+        }
+    }
+
+    // identifies the tournament a log belongs to
+    private String header() {
+        StringBuilder sb = new StringBuilder("# citadels tournament seed=").append(seed)
+                .append(" players=").append(tableSize)
+                .append(" rounds=").append(maxRounds)
+                .append(" entrants=");
+        for (int e = 0; e < entrants.size(); e++) {
+            if (e > 0) sb.append(',');
+            sb.append(entrants.get(e).getName());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The results in a log, in game order. A line cut short by a crash is
+     * dropped, and the file is truncated to the last complete line so new
+     * results start on a fresh one.
+     */
+    private List<Result> readLog(Path log) throws IOException {
+        if (!Files.exists(log)) return new ArrayList<>();
+        byte[] bytes = Files.readAllBytes(log);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') end--;
+        if (end < bytes.length) {
+            try (FileChannel ch = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                ch.truncate(end);
+            }
+        }
+        String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n");
+        if (lines.length == 0 || lines[0].isEmpty()) return new ArrayList<>();
+        if (!lines[0].equals(header())) {
+            throw new IOException("Log was written by a different tournament: " + lines[0]);
+        }
+        TreeMap<Integer, Result> results = new TreeMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].isEmpty()) continue;
+            try {
+                Result r = Result.parse(lines[i]);
+                results.put(r.index, r);
+            } catch (RuntimeException e) {
+                System.err.println("Skipping bad tournament log line: " + lines[i]);
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    public static void main(String[] args) {
+        List<Entrant> entrants = new ArrayList<>();
+        int players = 4;
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int rounds = 100;
+        Path log = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--entrants":
+                        for (String spec : value.split(",")) {
+                            entrants.add(Entrant.parse(spec));
+                        }
+                        i++;
+                        break;
+                    case "--players": players = Integer.parseInt(value); i++; break;
+                    case "--games": games = Integer.parseInt(value); i++; break;
+                    case "--threads": threads = Integer.parseInt(value); i++; break;
+                    case "--seed": seed = Long.parseLong(value); i++; break;
+                    case "--rounds": rounds = Integer.parseInt(value); i++; break;
+                    case "--log": log = Paths.get(value); i++; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            System.err.println("Usage: tournament --entrants ai,mcts:200[,...] [--players N] [--games N] "
+                    + "[--threads N] [--seed S] [--rounds N] [--log file]");
+            return;
+        }
+
+        try {
+            Tournament t = new Tournament(entrants, players, seed, threads, rounds);
+            System.out.println(t.getSchedule().size() + " seatings, " + games + " games on " + threads + " threads");
+            for (Entrant e : entrants) {
+                if (e.isTimed()) {
+                    System.out.println("Note: " + e.getName() + " searches for a fixed time, so results will differ between runs.");
+                }
+            }
+            Standings standings = t.run(games, log, System.out, 2000);
+            System.out.println("Final standings after " + standings.games() + " games:");
+            System.out.print(standings.table());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Tournament log failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
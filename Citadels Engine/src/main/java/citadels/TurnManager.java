@@ -1,8 +1,10 @@
 package citadels;
 
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 import citadels.CardsAndDecks.Ability;
 
@@ -10,36 +12,89 @@ import citadels.CardsAndDecks.Ability;
  * Manages the character selection and action phases each round.
  */
 public class TurnManager {
+    private static final PrintStream SILENT = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * How CPU turns are paced at a table with a human player.
+     */
+    public enum Pacing {
+        /** Wait for 't' before every CPU turn, showing everything it does. */
+        PROMPT,
+        /** Play CPU turns straight away, one summary line each. */
+        INSTANT,
+        /** Like INSTANT, but pausing before each CPU turn (see Game.setPacing). */
+        DELAY,
+        /** Wait for one 't', then play every CPU turn up to the human's, one summary line each. */
+        UNTIL_HUMAN;
+
+        /**
+         * The pacing named by s ("instant", "until-human", ...), case-insensitive.
+         */
+        public static Pacing parse(String s) {
+            return valueOf(s.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
     private final Game game;
     private int assassinatedCharacter = -1;
     private int robbedCharacter = -1;
     private Player thiefPlayer;
+    // seat of the first player to pick a character this round
+    private int firstPicker;
+    // ranks discarded face-up this round, as a bit mask
+    private int faceUpDiscards;
+    // player holding each rank this turn phase, refilled by indexCharacters
+    private final Player[] byRank = new Player[9];
+    // summary of the CPU turns played since the last human turn, or null
+    private TurnSummary batch;
+    private PrintStream batchOutput;
 
     public TurnManager(Game game) {
         this.game = game;
     }
 
+    /**
+     * A copy of other's round state for a copied game; thief is the copy of other's thief.
+     */
+    TurnManager(TurnManager other, Game game, Player thief) {
+        this.game = game;
+        this.assassinatedCharacter = other.assassinatedCharacter;
+        this.robbedCharacter = other.robbedCharacter;
+        this.thiefPlayer = thief;
+        this.firstPicker = other.firstPicker;
+        this.faceUpDiscards = other.faceUpDiscards;
+    }
+
     /**
      * Selection phase: shuffle character deck, discard cards, then allow each
      * player to pick a character, updating the crown for next round.
      */
     public void runSelectionPhase() {
-        System.out.println("\n================================");
-        System.out.println("SELECTION PHASE");
-        System.out.println("================================");
+        long start = System.nanoTime();
+        selectionPhase();
+        game.metrics().record(EngineMetrics.Phase.SELECTION, start);
+    }
+
+    private void selectionPhase() {
+        GameListener events = game.events();
+        events.selectionPhaseStarted();
 
         List<Player> players = game.getPlayers();
         int numPlayers = players.size();
 
-        // 1. Shuffle deck
-        game.getCharacterDeck().shuffle();
+        // 0. Every round starts with all eight characters and no pending effects
+        game.resetCharacterDeck();
+        assassinatedCharacter = -1;
+        robbedCharacter = -1;
+        thiefPlayer = null;
+        faceUpDiscards = 0;
 
-        // 2. Discard one face-down
+        // 1-2. Discard one face-down (draws are random, so no shuffle is needed)
         CardsAndDecks.CharacterCard hidden = game.getCharacterDeck().drawForSelection();
         if (hidden != null) {
-            System.out.println("A mystery character was removed.");
+            events.characterDiscarded(hidden, false);
         } else {
-            System.out.println("Character deck is empty - cannot draw.");
+            game.out().println("Character deck is empty - cannot draw.");
             return;
         }
 
@@ -50,71 +105,69 @@ public class TurnManager {
         while (removed < faceUpQty) {
             CardsAndDecks.CharacterCard c = game.getCharacterDeck().drawForSelection();
             if (c == null) {
-                System.out.println("Character deck is empty - cannot draw.");
+                game.out().println("Character deck is empty - cannot draw.");
                 break;
             }
             if (c.getAbility() == CardsAndDecks.Ability.KING) {
                 game.getCharacterDeck().returnCardToDeck(c);
             } else {
-                System.out.println(c.getName() + " was removed and placed face-up.");
+                events.characterDiscarded(c, true);
+                faceUpDiscards |= 1 << c.getRank();
                 removed++;
             }
         }
 
-        // 4. Build pick order based on crown holder
-        List<Player> pickOrder = new ArrayList<>();
-        for (int i = 0; i < numPlayers; i++) {
-            pickOrder.add(players.get((game.getCrownIndex() + i) % numPlayers));
-        }
-
-        // 5. Selection loop
-        List<CardsAndDecks.CharacterCard> available = game.getCharacterDeck().getAvailableCards();
-        for (Player p : pickOrder) {
-            if (p instanceof HumanPlayer) {
-                System.out.println("Choose your character. Available characters:");
-                for (CardsAndDecks.CharacterCard c : available) {
-                    System.out.println(" - " + c.getName());
-                }
-
-                CardsAndDecks.CharacterCard chosen = null;
-                while (chosen == null) {
-                    String input = game.getConsole().nextLine().trim();
-                    for (CardsAndDecks.CharacterCard c : available) {
-                        if (c.getName().equalsIgnoreCase(input)) {
-                            chosen = c;
-                            break;
-                        }
-                    }
-                    if (chosen == null) System.out.print("> ");
-                }
+        // 4. Picking starts with the crown holder
+        firstPicker = game.getCrownIndex();
+        selectCharacters(0);
+    }
 
-                game.getCharacterDeck().removeCard(chosen);
-                p.setCharacter(chosen);
-                System.out.println("Player 1 chose a character.");
-            } else {
-                if (available.isEmpty()) {
-                    System.out.println("No available characters to choose from.");
-                    return;
-                }
-                CardsAndDecks.CharacterCard chosen = available.get(new Random().nextInt(available.size()));
-                game.getCharacterDeck().removeCard(chosen);
-                p.setCharacter(chosen);
-                System.out.println(p.getName() + " chose a character.");
+    /**
+     * Steps 5 and 6 of the selection phase, starting with the player at
+     * position from in pick order. Search AIs resume a copied game here.
+     */
+    void selectCharacters(int from) {
+        GameListener events = game.events();
+        List<Player> players = game.getPlayers();
+        int numPlayers = players.size();
+        CardsAndDecks.CharacterDeck deck = game.getCharacterDeck();
+
+        // 5. Selection loop, offering the deck's live view of what is left
+        List<CardsAndDecks.CharacterCard> available = deck.available();
+        for (int i = from; i < numPlayers; i++) {
+            int seat = (firstPicker + i) % numPlayers;
+            Player p = players.get(seat);
+            if (p instanceof HumanPlayer && game.getPonderer() != null && !available.isEmpty()) {
+                game.getPonderer().ponderSelection(game, p, i, available);
+            }
+            CardsAndDecks.CharacterCard chosen = available.isEmpty() ? null
+                    : p.getDecisions().chooseCharacter(game, p, available);
+            if (chosen == null) {
+                game.out().println("No available characters to choose from.");
+                return;
             }
+            deck.removeCard(chosen);
+            p.setCharacter(chosen);
+            events.characterChosen(p, chosen);
 
-            if (p.getCharacter().getAbility() == CardsAndDecks.Ability.KING) {
-                game.setCrownIndex(players.indexOf(p));
+            if (chosen.getAbility() == CardsAndDecks.Ability.KING) {
+                game.setCrownIndex(seat);
             }
         }
 
         // 6. Final discard (face-down) if 5+ players
-        if (numPlayers >= 5 && !game.getCharacterDeck().getAvailableCards().isEmpty()) {
-            game.getCharacterDeck().drawForSelection();  // silent discard
-            System.out.println("One final character was discarded face-down.");
+        if (numPlayers >= 5 && deck.size() > 0) {
+            CardsAndDecks.CharacterCard last = deck.drawForSelection();
+            events.characterDiscarded(last, false);
         }
+    }
 
-        // Update state
-        game.getCharacterDeck().setAvailableCards(available);  // technically redundant unless used elsewhere
+    /**
+     * Position of player in this round's pick order, 0 for the first to pick.
+     */
+    int pickPosition(Player player) {
+        int n = game.getPlayers().size();
+        return (game.getPlayers().indexOf(player) - firstPicker + n) % n;
     }
 
 
@@ -129,39 +182,66 @@ public class TurnManager {
      * Action phase: execute each player's turn in ascending character rank order.
      */
     public void runTurnPhase() {
-        System.out.println("\n================================");
-        System.out.println("TURN PHASE");
-        System.out.println("================================");
+        long start = System.nanoTime();
+        game.events().turnPhaseStarted();
+        runTurnsFrom(1);
+        game.metrics().record(EngineMetrics.Phase.TURNS, start);
+    }
+
+    /**
+     * The turns of every character from the given rank up.
+     */
+    void runTurnsFrom(int rank) {
+        try {
+            turnsFrom(rank);
+        } finally {
+            endBatch();
+        }
+    }
+
+    private void turnsFrom(int rank) {
+        indexCharacters();
 
-        for (int i = 1; i <= 8; i++) {
-            Player p = findPlayerByCharacterNumber(i);
-            if (p == null || p.getCharacter() == null) continue;
+        for (int i = rank; i <= 8; i++) {
+            Player p = byRank[i];
+            if (p == null) continue;
+            // a game loaded during the last turn replaces this round
+            if (game.hasPendingLoad()) break;
 
-            String charName = p.getCharacter().getName();
-            System.out.println(i + ": " + charName);
-            System.out.println(p.getName() + " is the " + charName);
+            boolean human = p instanceof HumanPlayer;
+            Pacing pacing = game.getPacing();
+            if (human || pacing == Pacing.PROMPT || !game.hasHumanPlayer()) {
+                endBatch();
+            } else {
+                startBatch(pacing);
+            }
+            // looked up per turn, as a batch adds its own listener
+            GameListener events = game.events();
+
+            events.turnStarted(p, p.getCharacter());
 
             // Assassin check
             if (isAssassinated(i)) {
-                System.out.println(p.getName() + " was assassinated. Skipping turn.");
+                events.turnSkipped(p);
                 continue;
             }
 
-            // Wait for user to type 't' if this is a CPU turn
-            if (!(p instanceof HumanPlayer)) {
-                System.out.print("Press t to process turns\n> ");
-                while (!"t".equalsIgnoreCase(game.getConsole().nextLine().trim())) {
-                    System.out.print("It is not your turn. Press t to continue with other player turns.\n> ");
+            // Wait for user to type 't' if this is a CPU turn at a table with a human
+            if (!human) {
+                if (game.hasHumanPlayer() && pacing == Pacing.PROMPT) {
+                    game.out().print("Press t to process turns\n> ");
+                    awaitTurnKey();
                 }
             } else {
-                System.out.println("Your turn.");
+                game.out().println("Your turn.");
             }
 
             // Robbed gold transfer
             if (robbedCharacter == i) {
-                System.out.println(p.getName() + " has been robbed.");
-                thiefPlayer.addGold(p.getGold());
-                p.addGold(-p.getGold());
+                int stolen = p.getGold();
+                thiefPlayer.addGold(stolen);
+                p.addGold(-stolen);
+                events.goldStolen(thiefPlayer, p, stolen);
             }
 
             game.setCurrentPlayer(p);
@@ -169,11 +249,156 @@ public class TurnManager {
 
             if (p.getCharacter().getAbility() == Ability.ARCHITECT) {
                 p.drawCards(2, game);
-                System.out.println(p.getName() + " draws 2 extra cards and may build up to 3 districts.");
+                events.extraCardsDrawn(p, 2);
             }
 
+            long start = System.nanoTime();
             p.takeTurn(this);
-            System.out.println();
+            game.metrics().record(EngineMetrics.Phase.TAKE_TURN, start);
+            events.turnEnded(p);
+        }
+    }
+
+    private void awaitTurnKey() {
+        while (!"t".equalsIgnoreCase(game.getConsole().nextLine().trim())) {
+            game.out().print("It is not your turn. Press t to continue with other player turns.\n> ");
+        }
+    }
+
+    /**
+     * Condenses the coming CPU turn into the current batch, starting one if
+     * needed. The turn's own output is muted and a summary line recorded
+     * instead; the lines are printed together by endBatch.
+     */
+    private void startBatch(Pacing pacing) {
+        if (batch != null && pacing == Pacing.DELAY) {
+            endBatch();
+        }
+        if (batch == null) {
+            if (pacing == Pacing.UNTIL_HUMAN) {
+                game.out().print("Press t to process turns until yours\n> ");
+                awaitTurnKey();
+            } else if (pacing == Pacing.DELAY) {
+                try {
+                    Thread.sleep(game.getPacingDelayMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batch = new TurnSummary();
+            batchOutput = game.getOutput();
+            game.addListener(batch);
+            game.setOutput(SILENT);
+        }
+    }
+
+    private void endBatch() {
+        if (batch == null) return;
+        game.setOutput(batchOutput);
+        game.removeListener(batch);
+        for (String line : batch.lines) {
+            game.out().println(line);
+        }
+        batch = null;
+        batchOutput = null;
+    }
+
+    /**
+     * One line per CPU turn: who played which character and what came of it.
+     */
+    private static final class TurnSummary implements GameListener {
+        final List<String> lines = new ArrayList<>();
+        private StringBuilder line;
+        private int gold;
+        private int cards;
+        private final List<String> built = new ArrayList<>();
+        private final List<String> other = new ArrayList<>();
+
+        @Override
+        public void turnStarted(Player player, CardsAndDecks.CharacterCard character) {
+            line = new StringBuilder(player.getName()).append(" (").append(character.getName()).append("): ");
+            gold = 0;
+            cards = 0;
+            built.clear();
+            other.clear();
+        }
+
+        @Override
+        public void turnSkipped(Player player) {
+            lines.add(line.append("assassinated, turn skipped").toString());
+        }
+
+        @Override
+        public void goldStolen(Player thief, Player victim, int amount) {
+            other.add("robbed of " + amount + " gold by " + thief.getName());
+        }
+
+        @Override
+        public void goldGained(Player player, int amount, GoldSource source, CardsAndDecks.DistrictColor colour) {
+            gold += amount;
+        }
+
+        @Override
+        public void cardsDrawn(Player player, int count, CardsAndDecks.DistrictCard discarded) {
+            cards += discarded != null ? count - 1 : count;
+        }
+
+        @Override
+        public void extraCardsDrawn(Player player, int count) {
+            cards += count;
+        }
+
+        @Override
+        public void assassinated(Player assassin, int rank, String characterName) {
+            other.add("assassinated the " + characterName);
+        }
+
+        @Override
+        public void robbed(Player thief, int rank, String characterName) {
+            other.add("robbed the " + characterName);
+        }
+
+        @Override
+        public void handsSwapped(Player player, Player target) {
+            other.add("swapped hands with " + target.getName());
+        }
+
+        @Override
+        public void cardsRedrawn(Player player, int count) {
+            other.add("redrew " + count + " cards");
+        }
+
+        @Override
+        public void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {
+            other.add("destroyed " + victim.getName() + "'s " + district.getName());
+        }
+
+        @Override
+        public void districtBuilt(Player player, CardsAndDecks.DistrictCard district) {
+            built.add(district.getName());
+        }
+
+        @Override
+        public void turnEnded(Player player) {
+            List<String> parts = new ArrayList<>();
+            if (gold > 0) parts.add("+" + gold + " gold");
+            if (cards > 0) parts.add("+" + cards + (cards == 1 ? " card" : " cards"));
+            parts.addAll(other);
+            parts.add(built.isEmpty() ? "built nothing" : "built " + String.join(", ", built));
+            lines.add(line.append(String.join(", ", parts)).toString());
+        }
+    }
+
+    // one pass over the players instead of a search per rank
+    private void indexCharacters() {
+        Arrays.fill(byRank, null);
+        List<Player> players = game.getPlayers();
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            CardsAndDecks.CharacterCard c = p.getCharacter();
+            if (c != null && c.getRank() >= 1 && c.getRank() <= 8 && byRank[c.getRank()] == null) {
+                byRank[c.getRank()] = p;
+            }
         }
     }
 
@@ -198,4 +423,23 @@ public class TurnManager {
         this.thiefPlayer = thief;
     }
 
+    int getAssassinatedCharacter() {
+        return assassinatedCharacter;
+    }
+
+    int getRobbedCharacter() {
+        return robbedCharacter;
+    }
+
+    Player getThiefPlayer() {
+        return thiefPlayer;
+    }
+
+    /**
+     * Ranks discarded face-up this round, as a bit mask (bit r for rank r).
+     */
+    int getFaceUpDiscards() {
+        return faceUpDiscards;
+    }
+
 }
\ No newline at end of file
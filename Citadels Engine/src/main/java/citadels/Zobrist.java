@@ -0,0 +1,68 @@
+package citadels;
+
+/**
+ * Fixed pseudo-random keys for hashing game positions (see Game.stateHash).
+ *
+ * Card containers keep a running sum of the keys of the cards they hold,
+ * updated on every add and remove; a sum rather than an XOR so that two
+ * copies of the same district do not cancel out. Game.stateHash mixes
+ * those sums with the seat and zone they belong to, together with keys
+ * for gold, characters, crown and round state. The keys are the same in
+ * every JVM, so hashes can be compared across processes.
+ */
+final class Zobrist {
+    static final int HAND = 1;
+    static final int CITY = 2;
+    static final int GOLD = 3;
+    static final int CHARACTER = 4;
+    static final int CROWN = 5;
+    static final int DECK = 6;
+    static final int CHARACTERS_LEFT = 7;
+    static final int ASSASSINATED = 8;
+    static final int ROBBED = 9;
+    static final int CURRENT = 10;
+
+    private static final long[] CARDS = new long[CardsAndDecks.CardCatalog.get().size()];
+
+    static {
+        for (int id = 0; id < CARDS.length; id++) {
+            CARDS[id] = mix(0x5DEECE66DL + id * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Key of a district card: by catalog ID, or by name for cards outside the catalog.
+     */
+    static long card(CardsAndDecks.DistrictCard card) {
+        int id = card.getId();
+        return id >= 0 && id < CARDS.length ? CARDS[id] : mix(0xC2B2AE3D27D4EB4FL ^ card.getName().hashCode());
+    }
+
+    static long card(int id) {
+        return CARDS[id];
+    }
+
+    /**
+     * Key of value in the given table for the given seat (0 where there is no seat).
+     */
+    static long key(int table, int seat, long value) {
+        return mix(value * 0xBF58476D1CE4E5B9L + ((long) table << 48) + ((long) seat << 40) + table);
+    }
+
+    /**
+     * Key of a container's running sum placed in the given table and seat.
+     */
+    static long zone(int table, int seat, long sum) {
+        return mix(sum ^ key(table, seat, 0));
+    }
+
+    // SplitMix64 finaliser
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
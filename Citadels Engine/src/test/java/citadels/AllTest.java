@@ -1,5 +1,6 @@
 package citadels;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
@@ -8,10 +9,14 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 //import org.junit.Test;
 
 public class AllTest {
 
+    @TempDir
+    Path dir;
+
     @Test
     public void testDistrictCardCreation() {
         CardsAndDecks.DistrictCard card = new CardsAndDecks.DistrictCard("Castle", 4, CardsAndDecks.DistrictColor.YELLOW, "A stronghold");
@@ -107,10 +112,11 @@ public class AllTest {
         CardsAndDecks.DistrictCard c = new CardsAndDecks.DistrictCard("Temple", 1, CardsAndDecks.DistrictColor.BLUE, "");
         p.getHand().add(c);
         game.getPlayers().add(p);
-        game.saveGame("testgame.json");
+        String filename = dir.resolve("testgame.json").toString();
+        game.saveGame(filename);
 
         Game loaded = new Game();
-        loaded.loadGame("testgame.json");
+        loaded.loadGame(filename);
 
         Player loadedP = loaded.getPlayers().get(0);
         assertEquals("Player 1", loadedP.getName());
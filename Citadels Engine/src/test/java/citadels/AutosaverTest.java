@@ -0,0 +1,106 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class AutosaverTest {
+
+    @TempDir
+    Path dir;
+
+    private static Game headless(long seed, int rounds) {
+        Game game = TestGames.headless(seed, 5, rounds);
+        game.setMetrics(new EngineMetrics());
+        return game;
+    }
+
+    // The last save holds the state at the end of the last round
+    @Test
+    public void testSavesEveryRoundBoundary() throws IOException {
+        Path file = dir.resolve("auto.sav");
+        Game game = headless(21L, 4);
+        try (Autosaver autosaver = Autosaver.attach(game, file)) {
+            game.play();
+            autosaver.sync();
+            assertEquals(4, autosaver.saves() + autosaver.coalesced());
+        }
+        assertEquals(4, game.metrics().phase(EngineMetrics.Phase.AUTOSAVE).count());
+
+        Game loaded = new Game(0L);
+        loaded.setListener(GameListener.NONE);
+        GameSnapshot.load(loaded, file);
+        assertEquals(4, loaded.getRounds());
+        assertEquals(game.stateHash(), loaded.stateHash());
+        assertFalse(Files.exists(dir.resolve("auto.sav.tmp")));
+    }
+
+    // Offers that arrive while the writer is busy collapse into the latest one
+    @Test
+    public void testWritesTheLatestOffer() throws IOException {
+        Path file = dir.resolve("latest.sav");
+        Game game = headless(5L, 1);
+        try (Autosaver autosaver = new Autosaver(file)) {
+            for (int round = 1; round <= 6; round++) {
+                game.setMaxRounds(round);
+                game.play();
+                autosaver.offer(game);
+            }
+            autosaver.sync();
+            assertEquals(6, autosaver.saves() + autosaver.coalesced());
+            assertTrue(autosaver.saves() >= 1);
+        }
+        assertArrayEquals(TestGames.bytes(game), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testOfferDoesNotShareStateWithTheGame() throws IOException {
+        Path file = dir.resolve("copy.sav");
+        Game game = headless(8L, 2);
+        game.play();
+        byte[] expected = TestGames.bytes(game);
+        try (Autosaver autosaver = new Autosaver(file)) {
+            autosaver.offer(game);
+            game.getPlayers().get(0).addGold(50);
+        }
+        assertArrayEquals(expected, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void testFailedWriteIsReported() throws IOException {
+        Autosaver autosaver = new Autosaver(dir.resolve("missing").resolve("x.sav"));
+        Game game = headless(3L, 1);
+        game.play();
+        autosaver.offer(game);
+        assertThrows(IOException.class, autosaver::sync);
+        assertEquals(0, autosaver.saves());
+        assertThrows(IOException.class, autosaver::close);
+    }
+
+    // A game the snapshot cannot encode fails that save without stopping the writer
+    @Test
+    public void testEncodingErrorDoesNotHangSync() throws IOException {
+        Path file = dir.resolve("game.sav");
+        Autosaver autosaver = new Autosaver(file);
+        Game broken = headless(3L, 1);
+        broken.getPlayers().set(0, new AIPlayer((String) null));
+        autosaver.offer(broken);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, autosaver::sync));
+
+        Game game = headless(3L, 1);
+        autosaver.offer(game);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), autosaver::close);
+        assertArrayEquals(TestGames.bytes(game), Files.readAllBytes(file));
+    }
+}
@@ -1,9 +1,13 @@
 package citadels;
 
+import java.util.ArrayList;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +23,21 @@ public class CardsAndDecksTest {
         characterDeck = new CardsAndDecks.CharacterDeck();
     }
 
+    // A hand-made card that keeps coming and going takes one slot, not one per visit
+    @Test
+    public void testRepeatedExtrasReuseTheirSlot() {
+        CardsAndDecks.DistrictCard shed = new CardsAndDecks.DistrictCard("Shed", 1, CardsAndDecks.DistrictColor.GREEN, "");
+        CardsAndDecks.CardList hand = new CardsAndDecks.CardList();
+        CardsAndDecks.DistrictDeck pile = new CardsAndDecks.DistrictDeck(new GameRandom(1L), new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            hand.add(shed);
+            pile.returnCard(hand.remove(0));
+            assertSame(shed, pile.draw());
+        }
+        assertEquals(1, hand.extraCount());
+        assertEquals(1, pile.extraCount());
+    }
+
     @Test
     public void testDistrictDeckNotEmptyAfterInit() {
         assertTrue(districtDeck.size() > 0, "District deck should be populated.");
@@ -103,5 +122,111 @@ public class CardsAndDecksTest {
         assertEquals(originalSize - 1, characterDeck.getAvailableCards().size());
     }
 
+    @Test
+    public void testCatalogIsSharedAndIndexedByName() {
+        CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+        assertTrue(catalog == CardsAndDecks.CardCatalog.get(), "Catalog should be loaded once per JVM.");
+
+        int id = catalog.idOf("temple");
+        assertTrue(id >= 0, "Lookup by name should ignore case.");
+        assertEquals("Temple", catalog.card(id).getName());
+        assertEquals(id, catalog.card(id).getId(), "A card's ID should be its catalog index.");
+        assertEquals(-1, catalog.idOf("Not A District"));
+    }
+
+    @Test
+    public void testDeckHoldsSharedCatalogCards() {
+        CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+        assertEquals(catalog.deckSize(), districtDeck.size(), "A new deck should hold every copy in the catalog.");
+
+        CardsAndDecks.DistrictCard drawn = districtDeck.draw();
+        assertTrue(drawn == catalog.card(drawn.getId()), "Decks should reference catalog cards rather than copies.");
+    }
+
+    @Test
+    public void testAdHocCardResolvesCatalogId() {
+        CardsAndDecks.DistrictCard card = new CardsAndDecks.DistrictCard("Castle", 4, CardsAndDecks.DistrictColor.YELLOW, "");
+        assertEquals(CardsAndDecks.CardCatalog.get().idOf("Castle"), card.getId());
+    }
 
+    @Test
+    public void testDrawingWholeDeckReturnsEveryCardOnce() {
+        CardsAndDecks.DistrictCard extra = new CardsAndDecks.DistrictCard("Folly", 9, CardsAndDecks.DistrictColor.PURPLE, "");
+        districtDeck.returnCard(extra);
+        int total = districtDeck.size();
+
+        int[] seen = new int[CardsAndDecks.CardCatalog.get().size()];
+        boolean extraSeen = false;
+        for (int i = 0; i < total; i++) {
+            CardsAndDecks.DistrictCard card = districtDeck.draw();
+            if (card == extra) extraSeen = true;
+            else seen[card.getId()]++;
+        }
+
+        assertTrue(extraSeen, "A returned card should come back out of the deck unchanged.");
+        for (int id = 0; id < seen.length; id++) {
+            assertEquals(CardsAndDecks.CardCatalog.get().quantity(id), seen[id], "Every copy should be drawn exactly once.");
+        }
+        assertEquals(0, districtDeck.size());
+        assertEquals(null, districtDeck.draw(), "An empty deck should draw nothing.");
+    }
+
+    @Test
+    public void testCardListKeepsIdsAndAdHocCards() {
+        CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+        CardsAndDecks.CardList list = new CardsAndDecks.CardList();
+        CardsAndDecks.DistrictCard castle = catalog.card(catalog.idOf("Castle"));
+        CardsAndDecks.DistrictCard dummy = new CardsAndDecks.DistrictCard("Dummy", 3, CardsAndDecks.DistrictColor.RED, "");
+        list.add(castle);
+        list.add(0, dummy);
+
+        assertTrue(list.get(0) == dummy, "Cards outside the catalog should come back as the same object.");
+        assertEquals(-1, list.idAt(0));
+        assertEquals(1, list.indexOfId(catalog.idOf("Castle")));
+        assertTrue(list.remove(1) == castle);
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    public void testFindByNameUsesRemainingCards() {
+        CardsAndDecks.DistrictCard found = districtDeck.findByName("castle");
+        assertEquals("Castle", found.getName());
+
+        int copies = CardsAndDecks.CardCatalog.get().quantity(found.getId());
+        int total = districtDeck.size();
+        int drawnCastles = 0;
+        for (int i = 0; i < total; i++) {
+            if (districtDeck.draw() == found) drawnCastles++;
+        }
+        assertEquals(copies, drawnCastles);
+        assertEquals(null, districtDeck.findByName("Castle"), "No copies are left once all are drawn.");
+    }
+
+    @Test
+    public void testCharacterDeckTracksRanksInAMask() {
+        assertEquals(0x1FE, characterDeck.availableMask());
+        characterDeck.removeCard(CardsAndDecks.CharacterDeck.byRank(4));
+        assertFalse(characterDeck.isAvailable(4));
+        assertEquals(7, characterDeck.size());
+        assertEquals(7, characterDeck.available().size());
+        assertEquals(5, characterDeck.available().get(3).getRank(), "view is in rank order");
+
+        characterDeck.reset();
+        assertEquals(8, characterDeck.size());
+    }
+
+    @Test
+    public void testAvailableIsALiveReadOnlyView() {
+        java.util.List<CardsAndDecks.CharacterCard> view = characterDeck.available();
+        characterDeck.drawForSelection();
+        assertEquals(7, view.size());
+        assertThrows(UnsupportedOperationException.class, () -> view.remove(0));
+    }
+
+    @Test
+    public void testNameByRankCoversPickedCharacters() {
+        characterDeck.removeCard(CardsAndDecks.CharacterDeck.byRank(8));
+        assertEquals("Warlord", characterDeck.getNameByRank(8));
+        assertEquals("Unknown", characterDeck.getNameByRank(9));
+    }
 }
@@ -0,0 +1,79 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import citadels.CardsAndDecks.DistrictCard;
+import citadels.CardsAndDecks.DistrictColor;
+
+public class CityTest {
+
+    // Totals follow every add and remove
+    @Test
+    public void testAggregatesFollowAddAndRemove() {
+        City city = new City();
+        DistrictCard tavern = new DistrictCard("Tavern", 1, DistrictColor.GREEN, "");
+        city.add(tavern);
+        city.add(new DistrictCard("Castle", 4, DistrictColor.YELLOW, ""));
+        city.add(new DistrictCard("Tavern", 1, DistrictColor.GREEN, ""));
+
+        assertEquals(2, city.colourCount(DistrictColor.GREEN));
+        assertEquals(6, city.baseScore());
+        assertEquals(2, city.count("tavern"));
+        assertTrue(city.containsName("CASTLE"));
+
+        city.remove(tavern);
+        city.remove(1);
+        assertEquals(1, city.colourCount(DistrictColor.YELLOW));
+        assertEquals(0, city.colourCount(DistrictColor.GREEN));
+        assertFalse(city.containsName("Tavern"));
+        assertEquals(1 << DistrictColor.YELLOW.ordinal(), city.colourMask());
+        assertEquals(4, city.baseScore());
+    }
+
+    // clear() leaves nothing behind
+    @Test
+    public void testClearResetsTotals() {
+        City city = new City();
+        city.add(new DistrictCard("Temple", 1, DistrictColor.BLUE, ""));
+        city.clear();
+        assertEquals(0, city.colourMask());
+        assertEquals(0, city.baseScore());
+        assertEquals(0, city.count("Temple"));
+    }
+
+    // The Haunted City fills the one colour the city is missing
+    @Test
+    public void testHauntedCityFillsMissingColour() {
+        Game game = new Game(1L);
+        game.setListener(GameListener.NONE);
+        Player p = new AIPlayer("P");
+        p.getCity().add(new DistrictCard("Tavern", 1, DistrictColor.GREEN, ""));
+        p.getCity().add(new DistrictCard("Castle", 4, DistrictColor.YELLOW, ""));
+        p.getCity().add(new DistrictCard("Temple", 1, DistrictColor.BLUE, ""));
+        p.getCity().add(new DistrictCard("Haunted City", 2, DistrictColor.PURPLE, ""));
+        assertEquals(8, game.currentScore(p));
+
+        p.getCity().add(new DistrictCard("Watchtower", 1, DistrictColor.RED, ""));
+        assertEquals(9 + 3, game.currentScore(p));
+    }
+
+    // Lookups by catalog ID agree with lookups by name
+    @Test
+    public void testIdBitsetTracksDistricts() {
+        City city = new City();
+        DistrictCard castle = new DistrictCard("Castle", 4, DistrictColor.YELLOW, "");
+        city.add(castle);
+        assertTrue(city.has(castle.getId()));
+        assertTrue(city.ids().get(castle.getId()));
+        assertTrue(city.hasDistrict(new DistrictCard("Castle", 4, DistrictColor.YELLOW, "")));
+        assertFalse(city.hasDistrict(new DistrictCard("Dummy", 1, DistrictColor.RED, "")));
+
+        city.remove(castle);
+        assertFalse(city.has(castle.getId()));
+        assertTrue(city.ids().isEmpty());
+    }
+}
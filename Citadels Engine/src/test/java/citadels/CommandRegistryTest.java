@@ -0,0 +1,125 @@
+package citadels;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import citadels.CardsAndDecks.DistrictCard;
+import citadels.CardsAndDecks.DistrictColor;
+import citadels.CommandRegistry.Command;
+import citadels.CommandRegistry.Verb;
+
+public class CommandRegistryTest {
+
+    private final CommandRegistry registry = new CommandRegistry();
+
+    @Test
+    public void testVerbsAreCaseInsensitiveAndTrimmed() {
+        assertEquals(Verb.HAND, registry.parse("  HaNd  ").verb);
+        assertEquals(Verb.TURN, registry.parse("t").verb);
+        assertEquals(Verb.CITY, registry.parse("citadel").verb);
+        assertEquals(Verb.UNKNOWN, registry.parse("fly").verb);
+        assertEquals(Verb.UNKNOWN, registry.parse("   ").verb);
+    }
+
+    @Test
+    public void testBareCommandsAreShared() {
+        assertSame(registry.parse("gold"), registry.parse(" GOLD "));
+        assertNull(registry.parse("gold").argument);
+    }
+
+    @Test
+    public void testArgumentsAndNumbers() {
+        Command build = registry.parse("build   Watchtower Keep ");
+        assertEquals(Verb.BUILD, build.verb);
+        assertEquals("Watchtower Keep", build.argument);
+        assertEquals("Watchtower", build.firstWord());
+        assertFalse(build.hasNumber);
+
+        Command city = registry.parse("city 3");
+        assertTrue(city.hasNumber);
+        assertEquals(3, city.number);
+
+        assertFalse(registry.parse("city 99999999999").hasNumber);
+        assertEquals(-2, registry.parse("build -2").number);
+    }
+
+    @Test
+    public void testActionKeepsTokens() {
+        Command action = registry.parse("action  swap 2");
+        assertArrayEquals(new String[] { "action", "swap", "2" }, action.tokens());
+        assertArrayEquals(new String[] { "action" }, registry.parse("action").tokens());
+    }
+
+    @Test
+    public void testBatchSplitsOnSemicolonsAndNewlines() {
+        List<Command> batch = registry.parseBatch("hand; gold;;\nbuild 1\r\n end ;");
+        assertEquals(4, batch.size());
+        assertEquals(Verb.HAND, batch.get(0).verb);
+        assertEquals(Verb.GOLD, batch.get(1).verb);
+        assertEquals(1, batch.get(2).number);
+        assertEquals(Verb.END, batch.get(3).verb);
+    }
+
+    @Test
+    public void testGameRecordsLatencyPerVerb() {
+        Game game = new Game(1L);
+        game.setCommandRegistry(registry);
+        game.setConsole(new Scanner(new ByteArrayInputStream(new byte[0])));
+        game.setOutput(new PrintStream(new ByteArrayOutputStream()));
+        HumanPlayer player = new HumanPlayer("Tester");
+        game.getPlayers().add(player);
+        game.setCurrentPlayer(player);
+
+        assertTrue(game.handleCommands("gold; hand; gold; end; hand"));
+        assertEquals(2, registry.count(Verb.GOLD));
+        assertEquals(1, registry.count(Verb.HAND), "commands after end are not run");
+        assertEquals(1, registry.count(Verb.END));
+        assertTrue(registry.totalNanos(Verb.GOLD) > 0);
+        assertTrue(registry.report().contains("gold"));
+        assertFalse(game.handleCommands("gold"));
+    }
+
+    @Test
+    public void testBatchedBuildByName() {
+        Game game = new Game(1L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        game.setOutput(new PrintStream(out));
+        HumanPlayer player = new HumanPlayer("Tester");
+        game.getPlayers().add(player);
+        game.setCurrentPlayer(player);
+        player.addGold(5);
+        player.getHand().add(CardsAndDecks.CardCatalog.get().card(CardsAndDecks.CardCatalog.get().idOf("Tavern")));
+        player.getHand().add(new DistrictCard("Shed", 1, DistrictColor.GREEN, ""));
+
+        game.handleCommands("build tavern; city");
+        assertEquals(1, player.getCity().size());
+        assertTrue(out.toString().contains("Tavern"));
+    }
+
+    @Test
+    public void testRedrawParsesCommaList() {
+        Game game = new Game(1L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        game.setOutput(new PrintStream(out));
+        HumanPlayer player = new HumanPlayer("Tester");
+        for (int i = 0; i < 3; i++) {
+            player.getHand().add(new DistrictCard("Shed " + i, 1, DistrictColor.GREEN, ""));
+        }
+
+        assertEquals(2, game.redrawCards(player, " 0 , x,2"));
+        assertEquals(3, player.getHand().size());
+        assertEquals("Shed 1", player.getHand().get(0).getName());
+        assertTrue(out.toString().contains("Invalid index:  x"));
+    }
+}
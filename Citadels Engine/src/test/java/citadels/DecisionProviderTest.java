@@ -0,0 +1,105 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import citadels.CardsAndDecks.Ability;
+import citadels.CardsAndDecks.CharacterCard;
+import citadels.CardsAndDecks.DistrictCard;
+import citadels.CardsAndDecks.DistrictColor;
+
+public class DecisionProviderTest {
+
+    // A console that fails the test if anything reads from it
+    private static Scanner forbiddenConsole() {
+        return new Scanner(new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("The engine read the console for an AI decision");
+            }
+        });
+    }
+
+    // AI tables never read the console, even with every character in play
+    @Test
+    public void testAITableNeverReadsConsole() {
+        for (long seed = 0; seed < 20; seed++) {
+            Game game = new Game(seed);
+            game.setListener(GameListener.NONE);
+            game.setConsole(forbiddenConsole());
+            game.setupHeadless(6);
+            game.setMaxRounds(50);
+            game.play();
+        }
+    }
+
+    // A Warlord controlled by the AI destroys without prompting anyone
+    @Test
+    public void testAIWarlordChoosesTarget() {
+        Game game = new Game(1L);
+        game.setListener(GameListener.NONE);
+        game.setConsole(forbiddenConsole());
+        AIPlayer warlord = new AIPlayer("W");
+        AIPlayer victim = new AIPlayer("V");
+        game.getPlayers().addAll(Arrays.asList(warlord, victim));
+        victim.getCity().add(new DistrictCard("Castle", 4, DistrictColor.YELLOW, ""));
+        victim.getCity().add(new DistrictCard("Tavern", 1, DistrictColor.GREEN, ""));
+        warlord.addGold(1);
+
+        game.handleWarlordAction(warlord);
+
+        assertEquals(1, victim.getCity().size());
+        assertEquals("Tavern", victim.getCity().get(0).getName(), "It should destroy the dearest district it can pay for");
+        assertEquals(0, warlord.getGold());
+    }
+
+    // Scripted answers drive a human seat's whole turn
+    @Test
+    public void testScriptedHumanTurn() {
+        Game game = new Game(2L);
+        game.setListener(GameListener.NONE);
+        game.setConsole(forbiddenConsole());
+        HumanPlayer human = new HumanPlayer("H");
+        human.setDecisions(new ScriptedDecisions("gold", "build 0", "end"));
+        game.getPlayers().add(human);
+        human.setCharacter(new CharacterCard("King", 4, Ability.KING));
+        human.getHand().add(new DistrictCard("Manor", 3, DistrictColor.YELLOW, ""));
+
+        human.takeTurn(game.getTurnManager());
+
+        assertEquals("Manor", human.getCity().get(0).getName());
+        assertEquals(1, human.getGold());
+    }
+
+    // Character selection asks each seat's provider, whatever kind of player it is
+    @Test
+    public void testSelectionAsksProvider() {
+        Game game = new Game(4L);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(4);
+        Player first = game.getPlayers().get(game.getCrownIndex());
+        CharacterCard[] offered = new CharacterCard[1];
+        first.setDecisions(new AIDecisions() {
+            @Override
+            public CharacterCard chooseCharacter(Game g, Player p, List<CharacterCard> available) {
+                offered[0] = available.get(available.size() - 1);
+                return offered[0];
+            }
+        });
+
+        game.getTurnManager().runSelectionPhase();
+
+        assertSame(offered[0], first.getCharacter());
+        for (Player p : game.getPlayers()) {
+            if (p != first) assertTrue(p.getCharacter() != offered[0], "A character can only be chosen once");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.Test;
+
+import citadels.EngineMetrics.Histogram;
+import citadels.EngineMetrics.Phase;
+
+public class EngineMetricsTest {
+
+    private static Game headless(EngineMetrics metrics) {
+        Game game = TestGames.headless(11L, 5, 3);
+        game.setMetrics(metrics);
+        return game;
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram h = new Histogram();
+        for (int i = 0; i < 99; i++) h.record(1000);
+        h.record(1_000_000);
+        assertEquals(100, h.count());
+        assertEquals(99 * 1000 + 1_000_000, h.totalNanos());
+        assertEquals(1_000_000, h.maxNanos());
+        // within a factor of two of the true value
+        assertEquals(1024, h.percentileNanos(0.5));
+        assertEquals(1024, h.percentileNanos(0.99));
+        assertEquals(1_000_000, h.percentileNanos(1.0));
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.percentileNanos(0.5));
+    }
+
+    @Test
+    public void testGameRecordsPhasesAndAbilities() {
+        EngineMetrics metrics = new EngineMetrics();
+        headless(metrics).play();
+
+        assertEquals(3, metrics.phase(Phase.SELECTION).count());
+        assertEquals(3, metrics.phase(Phase.TURNS).count());
+        assertTrue(metrics.phase(Phase.TAKE_TURN).count() >= 3 * 4, "one per character played");
+        long abilities = 0;
+        for (CardsAndDecks.Ability a : CardsAndDecks.Ability.values()) {
+            abilities += metrics.ability(a).count();
+        }
+        assertTrue(abilities > 0);
+        assertTrue(metrics.getReport().contains("selection"));
+        assertEquals(3L, metrics.getCounts().get("phase.selection"));
+    }
+
+    @Test
+    public void testCopiesRecordNothing() {
+        EngineMetrics metrics = new EngineMetrics();
+        Game game = headless(metrics);
+        game.copy().play();
+        assertEquals(0, metrics.phase(Phase.SELECTION).count());
+    }
+
+    @Test
+    public void testPublishedOverJmx() throws Exception {
+        EngineMetrics.registerMBean();
+        EngineMetrics.registerMBean();
+        ObjectName name = new ObjectName("citadels:type=EngineMetrics");
+        Object counts = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Counts");
+        assertTrue(counts instanceof TabularData);
+        assertTrue(((TabularData) counts).size() > 0);
+        Map<String, Long> direct = EngineMetrics.global().getCounts();
+        assertTrue(direct.containsKey("command.build"));
+    }
+}
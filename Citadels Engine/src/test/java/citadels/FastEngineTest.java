@@ -0,0 +1,94 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class FastEngineTest {
+
+    private static int[] ids(List<CardsAndDecks.DistrictCard> cards) {
+        int[] ids = new int[cards.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = cards.get(i).getId();
+        return ids;
+    }
+
+    private static void assertSameTable(Game game, FastEngine fast, String where) {
+        assertEquals(game.getRounds(), fast.getRounds(), where + " rounds");
+        assertEquals(game.getCrownIndex(), fast.getCrownIndex(), where + " crown");
+        assertEquals(game.getDistrictDeck().size(), fast.getDeckSize(), where + " deck");
+        for (int s = 0; s < game.getPlayers().size(); s++) {
+            Player p = game.getPlayers().get(s);
+            String seat = where + " seat " + s;
+            assertEquals(p.getGold(), fast.getGold(s), seat + " gold");
+            assertArrayEquals(ids(p.getHand()), fast.getHand(s), seat + " hand");
+            assertArrayEquals(ids(p.getCity()), fast.getCity(s), seat + " city");
+            assertEquals(p.getCharacter() == null ? 0 : p.getCharacter().getRank(), fast.getCharacterRank(s), seat + " character");
+        }
+    }
+
+    @Test
+    public void testDealMatchesGame() {
+        for (int players = 4; players <= 7; players++) {
+            Game game = TestGames.headless(5L, players, 0);
+            assertSameTable(game, new FastEngine(5L, players), "deal");
+        }
+    }
+
+    @Test
+    public void testSameOutcomesAsGame() {
+        for (int players = 4; players <= 7; players++) {
+            for (int i = 0; i < 250; i++) {
+                long seed = Simulator.gameSeed(players, i);
+                Game game = TestGames.headless(seed, players, 100);
+                game.play();
+                FastEngine fast = new FastEngine(seed, players);
+                fast.setMaxRounds(100);
+                fast.play();
+
+                String where = "seed " + seed + ", " + players + " players";
+                assertSameTable(game, fast, where);
+                assertArrayEquals(game.getFinalScores(), fast.getFinalScores(), where + " scores");
+                assertEquals(game.getPlayers().indexOf(game.getWinner()), fast.getWinnerSeat(), where + " winner");
+                assertEquals(game.getPlayers().indexOf(game.getFirstFinisher()), fast.getFirstFinisherSeat(), where + " first finisher");
+                assertEquals(game.isGameOver(), fast.isGameOver(), where);
+            }
+        }
+    }
+
+    @Test
+    public void testSameStateAfterEachRoundLimit() {
+        for (int rounds = 1; rounds <= 6; rounds++) {
+            Game game = TestGames.headless(42L, 5, rounds);
+            game.play();
+            FastEngine fast = new FastEngine(42L, 5);
+            fast.setMaxRounds(rounds);
+            fast.play();
+            assertSameTable(game, fast, "after " + rounds + " rounds");
+            assertArrayEquals(game.getFinalScores(), fast.getFinalScores());
+        }
+    }
+
+    @Test
+    public void testSimulatorFastModeGivesSameResults() {
+        Simulator.Report slow = new Simulator(60, 2, 6, 9L, 100).run();
+        Simulator fastSim = new Simulator(60, 2, 6, 9L, 100);
+        fastSim.setFastEngine(true);
+        SimulationStats stats = new SimulationStats();
+        fastSim.setStats(stats);
+        Simulator.Report fast = fastSim.run();
+
+        for (int i = 0; i < 60; i++) {
+            Simulator.GameResult a = slow.getResults()[i];
+            Simulator.GameResult b = fast.getResults()[i];
+            assertEquals(a.getWinnerSeat(), b.getWinnerSeat());
+            assertEquals(a.getRounds(), b.getRounds());
+            assertArrayEquals(a.getScores(), b.getScores());
+        }
+        assertEquals(60, stats.games());
+        assertTrue(stats.report().contains("Seat"));
+    }
+}
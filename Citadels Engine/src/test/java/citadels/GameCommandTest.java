@@ -101,5 +101,13 @@ public class GameCommandTest {
         assertTrue(output.toLowerCase().contains("swap") || output.toLowerCase().contains("redraw"),
             "Should provide Magician action instructions");
     }
-}
 
+    @Test
+    public void testBuildCommandAcceptsDistrictName() {
+        player.getHand().add(new DistrictCard("Tavern", 1, DistrictColor.GREEN, ""));
+        player.getHand().add(new DistrictCard("Watchtower", 1, DistrictColor.RED, ""));
+        captureOutput(() -> game.handleCommand("build watchtower"));
+        assertEquals("Watchtower", player.getCity().get(0).getName());
+        assertEquals(1, player.getHand().size());
+    }
+}
@@ -0,0 +1,171 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GameJournalTest {
+
+    // Tries every character, waits for the CPUs and takes gold, a few rounds over
+    private static final String SCRIPT;
+    static {
+        StringBuilder sb = new StringBuilder("4\n");
+        for (int round = 0; round < 3; round++) {
+            sb.append("Assassin\nThief\nMagician\nKing\nBishop\nMerchant\nArchitect\nWarlord\n");
+            sb.append("t\nt\nt\ngold\nbuild 0\nend\nt\nt\nt\n");
+        }
+        SCRIPT = sb.toString();
+    }
+
+    private File file;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        file = File.createTempFile("citadels-journal", ".log");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        file.delete();
+    }
+
+    private static InputStream input(String s) {
+        return new ByteArrayInputStream(s.getBytes());
+    }
+
+    // Plays until the console runs dry, like a game whose JVM died mid-turn
+    private static void playUntilInputEnds(Game game) {
+        try {
+            game.setup();
+            game.play();
+        } catch (NoSuchElementException e) {
+            // out of input
+        }
+    }
+
+    private static void playUntilInputEnds(GameJournal.Recovery recovery) {
+        try {
+            recovery.play();
+        } catch (NoSuchElementException e) {
+            // out of input
+        }
+    }
+
+    @Test
+    public void testRecoveryRebuildsSameState() throws IOException {
+        Game game = new Game(21L);
+        game.setListener(GameListener.NONE);
+        GameJournal journal = GameJournal.create(file.toPath(), game, input(SCRIPT));
+        playUntilInputEnds(game);
+        journal.close();
+
+        GameJournal.Recovery recovery = GameJournal.recover(file.toPath(), input(""));
+        playUntilInputEnds(recovery);
+        recovery.journal.close();
+
+        assertTrue(game.getPlayers().get(0).getCharacter() != null, "The script should get the game into play.");
+        assertEquals(game.getRounds(), recovery.game.getRounds());
+        assertTrue(recovery.actions > 0, "Game events should be logged alongside the input.");
+        assertArrayEquals(TestGames.bytes(game), TestGames.bytes(recovery.game));
+    }
+
+    @Test
+    public void testTornTailIsIgnored() throws IOException {
+        Game game = new Game(3L);
+        game.setListener(GameListener.NONE);
+        GameJournal journal = GameJournal.create(file.toPath(), game, input("4\n"));
+        playUntilInputEnds(game);
+        journal.close();
+
+        // a record header promising more bytes than were written
+        Files.write(file.toPath(), new byte[] { GameJournal.INPUT, 50, 'K' }, StandardOpenOption.APPEND);
+
+        GameJournal.Recovery recovery = GameJournal.recover(file.toPath(), input(""));
+        playUntilInputEnds(recovery);
+        recovery.journal.close();
+        assertArrayEquals(TestGames.bytes(game), TestGames.bytes(recovery.game));
+    }
+
+    // Replay mutes the recovered game only, and gives it its output back after
+    @Test
+    public void testReplayMutesOnlyTheRecoveredGame() throws IOException {
+        Game game = new Game(21L);
+        game.setListener(GameListener.NONE);
+        GameJournal journal = GameJournal.create(file.toPath(), game, input(SCRIPT));
+        playUntilInputEnds(game);
+        journal.close();
+
+        PrintStream console = System.out;
+        GameJournal.Recovery recovery = GameJournal.recover(file.toPath(), input(""));
+        Game recovered = recovery.game;
+        List<PrintStream> printedTo = new ArrayList<>();
+        recovered.addListener(new GameListener() {
+            @Override
+            public void selectionPhaseStarted() {
+                printedTo.add(recovered.out());
+            }
+        });
+        playUntilInputEnds(recovery);
+        recovery.journal.close();
+
+        assertFalse(printedTo.isEmpty());
+        for (PrintStream out : printedTo) {
+            assertNotSame(console, out, "The replayed part is not shown again.");
+        }
+        assertSame(console, System.out);
+        assertNull(recovered.getOutput());
+    }
+
+    // A replay that plays out differently from the log stops at the first difference
+    @Test
+    public void testDivergentReplayFails() throws IOException {
+        Game game = new Game(21L);
+        game.setListener(GameListener.NONE);
+        GameJournal journal = GameJournal.create(file.toPath(), game, input(SCRIPT));
+        playUntilInputEnds(game);
+        journal.close();
+
+        byte[] log = Files.readAllBytes(file.toPath());
+        // the first logged build action: [ACTION][length]"build ..."
+        byte[] action = "build ".getBytes();
+        int at = 2;
+        while (log[at - 2] != GameJournal.ACTION || !Arrays.equals(log, at, at + action.length, action, 0, action.length)) at++;
+        log[at] = 'B';
+        Files.write(file.toPath(), log);
+
+        PrintStream console = System.out;
+        GameJournal.Recovery recovery = GameJournal.recover(file.toPath(), input(""));
+        IllegalStateException e = assertThrows(IllegalStateException.class, recovery::play);
+        recovery.journal.close();
+        assertTrue(e.getMessage().contains("logged 'Build "), e.getMessage());
+        assertSame(console, System.out);
+        assertNull(recovery.game.getOutput(), "The game prints to the console again.");
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Files.write(file.toPath(), "not a journal".getBytes());
+        assertThrows(IOException.class, () -> GameJournal.recover(file.toPath(), input("")));
+    }
+}
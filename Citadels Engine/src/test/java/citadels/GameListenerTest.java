@@ -0,0 +1,111 @@
+package citadels;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class GameListenerTest {
+
+    private static class BuildCounter implements GameListener {
+        int built;
+        int destroyed;
+        int scored;
+
+        @Override
+        public void districtBuilt(Player player, CardsAndDecks.DistrictCard district) {
+            built++;
+        }
+
+        @Override
+        public void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {
+            destroyed++;
+        }
+
+        @Override
+        public void scoreComputed(Player player, int score) {
+            scored++;
+        }
+    }
+
+    // Every district in every city was reported as it was built (less any the Warlord destroyed)
+    @Test
+    public void testSubscriberSeesEveryBuild() {
+        Game game = new Game(3L);
+        game.setListener(GameListener.NONE);
+        BuildCounter counter = new BuildCounter();
+        game.addListener(counter);
+        game.setupHeadless(4);
+        game.setMaxRounds(100);
+        game.play();
+
+        int districts = 0;
+        for (Player p : game.getPlayers()) districts += p.getCity().size();
+        assertEquals(districts, counter.built - counter.destroyed);
+        assertEquals(4, counter.scored, "Each player should be scored once");
+    }
+
+    // A headless game with the no-op sink writes nothing to the console
+    @Test
+    public void testNoOpSinkIsSilent() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(out));
+        try {
+            Simulator.playOne(5, 11L, 100);
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertEquals("", out.toString());
+    }
+
+    // The console renderer keeps the familiar build message
+    @Test
+    public void testConsoleRendererPrintsBuild() {
+        Game game = new Game();
+        Player p = new HumanPlayer("Tester");
+        p.getHand().add(new CardsAndDecks.DistrictCard("Temple", 1, CardsAndDecks.DistrictColor.BLUE, ""));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(out));
+        try {
+            p.build(0, game);
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertTrue(out.toString().contains("You built Temple [blue1]"));
+    }
+
+    // The selection phase reads as it always has, final face-down discard included
+    @Test
+    public void testConsoleRendererPrintsSelectionDiscards() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Game game = new Game(6L);
+        game.setupHeadless(5);
+        game.setOutput(new PrintStream(out));
+        game.getTurnManager().runSelectionPhase();
+
+        String text = out.toString();
+        assertEquals(1, text.split("A mystery character was removed.", -1).length - 1);
+        assertEquals(1, text.split("was removed and placed face-up.", -1).length - 1);
+        assertTrue(text.indexOf("One final character was discarded face-down.") > text.lastIndexOf("chose a character."));
+    }
+
+    // Adding and removing listeners never wraps the no-op sink
+    @Test
+    public void testMulticastAddAndRemove() {
+        BuildCounter a = new BuildCounter();
+        BuildCounter b = new BuildCounter();
+        GameListener both = GameListener.Multicast.of(GameListener.Multicast.of(GameListener.NONE, a), b);
+        both.districtBuilt(null, null);
+        assertEquals(1, a.built);
+        assertEquals(1, b.built);
+
+        assertSame(a, GameListener.Multicast.without(both, b));
+        assertSame(GameListener.NONE, GameListener.Multicast.without(a, a));
+    }
+}
@@ -0,0 +1,61 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class GameRandomTest {
+
+    // The same seed always produces the same sequence
+    @Test
+    public void testSameSeedSameSequence() {
+        GameRandom a = new GameRandom(99L);
+        GameRandom b = new GameRandom(99L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.nextLong(), b.nextLong());
+        }
+    }
+
+    // Saved state resumes the stream exactly where it left off
+    @Test
+    public void testRestoreFromState() {
+        GameRandom a = new GameRandom(5L);
+        a.nextInt(10);
+        GameRandom b = GameRandom.restore(a.getState(), a.getGamma());
+        assertEquals(a.nextLong(), b.nextLong());
+        assertEquals(a.copy().nextInt(1000), a.nextInt(1000));
+    }
+
+    // A split generator does not simply repeat its parent
+    @Test
+    public void testSplitIsIndependent() {
+        GameRandom parent = new GameRandom(5L);
+        GameRandom child = parent.split();
+        assertNotEquals(parent.nextLong(), child.nextLong());
+    }
+
+    // Bounded values stay in range and cover every value
+    @Test
+    public void testNextIntRange() {
+        GameRandom r = new GameRandom(1L);
+        boolean[] seen = new boolean[7];
+        for (int i = 0; i < 1000; i++) {
+            int v = r.nextInt(2, 9);
+            assertTrue(v >= 2 && v < 9);
+            seen[v - 2] = true;
+        }
+        for (boolean s : seen) assertTrue(s);
+    }
+
+    // A seed fully reproduces a headless game
+    @Test
+    public void testSeedReproducesGame() {
+        Simulator.GameResult first = Simulator.playOne(6, 1234L, 100);
+        Simulator.GameResult second = Simulator.playOne(6, 1234L, 100);
+        assertEquals(first.getRounds(), second.getRounds());
+        assertEquals(first.getWinnerSeat(), second.getWinnerSeat());
+        assertArrayEquals(first.getScores(), second.getScores());
+    }
+}
@@ -0,0 +1,134 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class GameSnapshotTest {
+
+    // Decoding and re-encoding gives back the same bytes
+    @Test
+    public void testRoundTripIsExact() throws IOException {
+        Game game = TestGames.midGame(11L);
+        game.getTurnManager().markAssassinated(4);
+        game.getTurnManager().markRobbed(6, game.getPlayers().get(2));
+        game.getPlayers().get(1).getHand().add(
+                new CardsAndDecks.DistrictCard("Folly", 9, CardsAndDecks.DistrictColor.PURPLE, "Not in the catalog"));
+
+        byte[] saved = TestGames.bytes(game);
+        Game loaded = new Game(0L);
+        GameSnapshot.decode(ByteBuffer.wrap(saved), loaded);
+
+        assertArrayEquals(saved, TestGames.bytes(loaded));
+        assertTrue(loaded.getTurnManager().isAssassinated(4));
+        assertEquals("Folly", loaded.getPlayers().get(1).getHand().get(loaded.getPlayers().get(1).getHand().size() - 1).getName());
+    }
+
+    // A loaded game plays on exactly as the original would have
+    @Test
+    public void testLoadedGameContinuesIdentically() throws IOException {
+        Game original = TestGames.midGame(42L);
+        Game loaded = new Game(0L);
+        loaded.setListener(GameListener.NONE);
+        GameSnapshot.decode(GameSnapshot.encode(original), loaded);
+
+        original.play();
+        loaded.play();
+        assertArrayEquals(original.getFinalScores(), loaded.getFinalScores());
+        assertEquals(original.getRounds(), loaded.getRounds());
+    }
+
+    @Test
+    public void testSaveGameWritesBinaryUnlessJson() throws IOException {
+        Game game = TestGames.midGame(7L);
+        File bin = File.createTempFile("citadels-test", ".sav");
+        try {
+            game.saveGame(bin.getPath());
+            assertTrue(GameSnapshot.isSnapshot(bin.toPath()));
+
+            Game loaded = new Game(0L);
+            loaded.loadGame(bin.getPath());
+            assertEquals(game.getPlayers().get(0).getGold(), loaded.getPlayers().get(0).getGold());
+            assertEquals(game.getDistrictDeck().size(), loaded.getDistrictDeck().size());
+        } finally {
+            bin.delete();
+        }
+    }
+
+    @Test
+    public void testRejectsCorruptSnapshot() {
+        byte[] truncated = new byte[] { 'C', 'T', 'D', 'S', 1, 5 };
+        assertThrows(IOException.class, () -> GameSnapshot.decode(ByteBuffer.wrap(truncated), new Game(0L)));
+    }
+
+    // The length before the first player's name replaced by a corrupt varint
+    private static byte[] withNameLength(byte[] saved, byte[] length) {
+        byte[] name = "CPU 1".getBytes();
+        int at = 0;
+        while (saved[at] != 5 || !Arrays.equals(saved, at + 1, at + 6, name, 0, 5)) at++;
+        byte[] corrupt = new byte[saved.length - 1 + length.length];
+        System.arraycopy(saved, 0, corrupt, 0, at);
+        System.arraycopy(length, 0, corrupt, at, length.length);
+        System.arraycopy(saved, at + 1, corrupt, at + length.length, saved.length - at - 1);
+        return corrupt;
+    }
+
+    @Test
+    public void testRejectsCorruptLength() {
+        byte[] saved = TestGames.bytes(TestGames.midGame(3L));
+        byte[] negative = withNameLength(saved, new byte[] { -1, -1, -1, -1, 0x0f });
+        byte[] huge = withNameLength(saved, new byte[] { -1, -1, -1, -1, 0x07 });
+        assertThrows(IOException.class, () -> GameSnapshot.decode(ByteBuffer.wrap(negative), new Game(0L)));
+        assertThrows(IOException.class, () -> GameSnapshot.decode(ByteBuffer.wrap(huge), new Game(0L)));
+    }
+
+    // Characters come back as the deck's own cards, and impossible ones or seats are rejected
+    @Test
+    public void testRejectsBadCharactersAndSeats() throws IOException {
+        Game game = TestGames.midGame(5L);
+        Game loaded = new Game(0L);
+        GameSnapshot.decode(GameSnapshot.encode(game), loaded);
+        CardsAndDecks.CharacterCard held = loaded.getPlayers().get(0).getCharacter();
+        assertSame(CardsAndDecks.CharacterDeck.byRank(held.getRank()), held);
+
+        Player seat = game.getPlayers().get(0);
+        seat.setCharacter(new CardsAndDecks.CharacterCard("Jester", 9, CardsAndDecks.Ability.KING));
+        ByteBuffer outOfRange = GameSnapshot.encode(game);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(outOfRange, new Game(0L)));
+        seat.setCharacter(new CardsAndDecks.CharacterCard("King", 3, CardsAndDecks.Ability.KING));
+        ByteBuffer mismatched = GameSnapshot.encode(game);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(mismatched, new Game(0L)));
+        seat.setCharacter(held);
+
+        game.setCrownIndex(5);
+        ByteBuffer badCrown = GameSnapshot.encode(game);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(badCrown, new Game(0L)));
+        game.setCrownIndex(0);
+        game.setNumPlayers(4);
+        ByteBuffer badCount = GameSnapshot.encode(game);
+        assertThrows(IOException.class, () -> GameSnapshot.decode(badCount, new Game(0L)));
+    }
+
+    // Loading into a live game keeps each seat's own decision provider
+    @Test
+    public void testDecodeKeepsDecisionProviders() throws IOException {
+        Game game = TestGames.midGame(9L);
+        Game live = TestGames.midGame(10L);
+        DecisionProvider search = MctsDecisions.iterations(10);
+        live.getPlayers().get(2).setDecisions(search);
+        DecisionProvider rules = live.getPlayers().get(1).getDecisions();
+
+        GameSnapshot.decode(GameSnapshot.encode(game), live);
+        assertSame(search, live.getPlayers().get(2).getDecisions());
+        assertSame(rules, live.getPlayers().get(1).getDecisions());
+    }
+}
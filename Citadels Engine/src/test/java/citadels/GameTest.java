@@ -1,19 +1,30 @@
 package citadels;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import citadels.CardsAndDecks.DistrictCard;
 import citadels.CardsAndDecks.DistrictColor;
 
 public class GameTest {
 
+    @TempDir
+    Path dir;
+
     private Game game;
     private HumanPlayer player1;
     private AIPlayer player2;
@@ -61,7 +72,7 @@ public class GameTest {
         player1.addGold(5);
         player1.getCity().add(new DistrictCard("Market", 2, DistrictColor.GREEN, ""));
 
-        String filename = "test-save.json";
+        String filename = dir.resolve("test-save.json").toString();
         game.saveGame(filename);
 
         File f = new File(filename);
@@ -73,8 +84,6 @@ public class GameTest {
         Player loadedPlayer = loadedGame.getPlayers().get(0);
         assertEquals(5, loadedPlayer.getGold());
         assertEquals("Market", loadedPlayer.getCity().get(0).getName());
-
-        f.delete(); // cleanup
     }
 
     @Test
@@ -87,6 +96,229 @@ public class GameTest {
     }
 
     
-}
+    // A copy taken mid-game finishes exactly as the original does
+    @Test
+    public void testCopyPlaysOnIdentically() {
+        Game original = new Game(5L);
+        original.setListener(GameListener.NONE);
+        original.setupHeadless(5);
+        original.setMaxRounds(3);
+        original.play();
+
+        Game copy = original.copy();
+        original.setMaxRounds(100);
+        copy.setMaxRounds(100);
+        original.play();
+        copy.play();
+
+        assertEquals(original.getRounds(), copy.getRounds());
+        assertTrue(Arrays.equals(original.getFinalScores(), copy.getFinalScores()));
+        assertEquals(original.getPlayers().indexOf(original.getWinner()), copy.getPlayers().indexOf(copy.getWinner()));
+    }
 
+    @Test
+    public void testCopyIsIndependent() {
+        player1.getHand().add(new DistrictCard("Tavern", 1, DistrictColor.GREEN, ""));
+        player2.getCity().add(new DistrictCard("Church", 2, DistrictColor.BLUE, ""));
+        game.getTurnManager().markRobbed(4, player1);
+
+        Game copy = game.copy();
+        Player copy1 = copy.getPlayers().get(0);
+        Player copy2 = copy.getPlayers().get(1);
+        assertTrue(copy1 instanceof HumanPlayer);
+        assertEquals(copy1, copy.getTurnManager().getThiefPlayer());
+        assertEquals(copy1, copy.getCurrentPlayer());
+
+        copy1.getHand().clear();
+        copy1.addGold(5);
+        copy2.getCity().clear();
+        copy.getDistrictDeck().draw();
 
+        assertEquals(1, player1.getHand().size());
+        assertEquals(2, player1.getGold());
+        assertEquals(1, player2.getCity().size());
+        assertEquals(2, player2.getCity().baseScore());
+        assertEquals(0, copy2.getCity().baseScore());
+        assertEquals(game.getDistrictDeck().size() - 1, copy.getDistrictDeck().size());
+    }
+
+    @Test
+    public void testStateHashFollowsThePosition() {
+        long start = game.stateHash();
+        player1.addGold(3);
+        assertNotEquals(start, game.stateHash());
+        player1.addGold(-3);
+        assertEquals(start, game.stateHash());
+
+        DistrictCard tavern = CardsAndDecks.CardCatalog.get().card(CardsAndDecks.CardCatalog.get().idOf("Tavern"));
+        DistrictCard temple = CardsAndDecks.CardCatalog.get().card(CardsAndDecks.CardCatalog.get().idOf("Temple"));
+        player1.getHand().add(tavern);
+        player1.getHand().add(temple);
+        long tavernThenTemple = game.stateHash();
+        player1.getHand().clear();
+        player1.getHand().add(temple);
+        player1.getHand().add(tavern);
+        assertEquals(tavernThenTemple, game.stateHash(), "card order does not matter");
+
+        // the same cards in another player's hand, or built, are another position
+        player1.getHand().clear();
+        player2.getHand().add(temple);
+        player2.getHand().add(tavern);
+        assertNotEquals(tavernThenTemple, game.stateHash());
+        player2.getHand().clear();
+        player1.getCity().add(temple);
+        player1.getCity().add(tavern);
+        assertNotEquals(tavernThenTemple, game.stateHash());
+    }
+
+    @Test
+    public void testStateHashCountsDuplicates() {
+        DistrictCard temple = CardsAndDecks.CardCatalog.get().card(CardsAndDecks.CardCatalog.get().idOf("Temple"));
+        long empty = game.stateHash();
+        player1.getHand().add(temple);
+        long one = game.stateHash();
+        player1.getHand().add(temple);
+        assertNotEquals(empty, game.stateHash());
+        assertNotEquals(one, game.stateHash());
+    }
+
+    @Test
+    public void testStateHashSurvivesCopyAndSnapshot() throws Exception {
+        Game original = new Game(9L);
+        original.setListener(GameListener.NONE);
+        original.setupHeadless(5);
+        original.setMaxRounds(3);
+        original.play();
+
+        Game copy = original.copy();
+        assertEquals(original.stateHash(), copy.stateHash());
+        copy.getDistrictDeck().returnCard(copy.getDistrictDeck().draw());
+        assertEquals(original.stateHash(), copy.stateHash(), "drawing and returning a card restores the pile");
+        copy.getDistrictDeck().draw();
+        assertNotEquals(original.stateHash(), copy.stateHash());
+
+        Game loaded = new Game(1L);
+        GameSnapshot.decode(GameSnapshot.encode(original), loaded);
+        assertEquals(original.stateHash(), loaded.stateHash());
+    }
+
+    private static int cardsInPlay(Game g) {
+        int n = g.getDistrictDeck().size();
+        for (Player p : g.getPlayers()) n += p.getHand().size() + p.getCity().size();
+        return n;
+    }
+
+    // A JSON export restores the pile, characters and turn state, with no card twice
+    @Test
+    public void testJsonLoadRestoresWholeState() throws Exception {
+        Game original = new Game(13L);
+        original.setListener(GameListener.NONE);
+        original.setupHeadless(5);
+        original.setMaxRounds(3);
+        original.play();
+
+        File f = File.createTempFile("citadels-test", ".json");
+        try {
+            original.saveGame(f.getPath());
+            Game loaded = new Game(1L);
+            loaded.setMetrics(new EngineMetrics());
+            loaded.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            loaded.loadGame(f.getPath());
+
+            assertEquals(original.stateHash(), loaded.stateHash());
+            assertEquals(3, loaded.getRounds());
+            assertEquals(CardsAndDecks.CardCatalog.get().deckSize(), cardsInPlay(loaded));
+            assertEquals(1, loaded.metrics().phase(EngineMetrics.Phase.LOAD).count());
+        } finally {
+            f.delete();
+        }
+    }
+
+    // Older exports have no pile or characters: they are rebuilt from what the players hold
+    @Test
+    public void testJsonLoadWithoutDeckRemovesHeldCards() throws Exception {
+        File f = File.createTempFile("citadels-test", ".json");
+        try {
+            Files.writeString(f.toPath(), "{\"crownIndex\":1,\"players\":["
+                    + "{\"name\":\"Player 1\",\"gold\":3,\"character\":\"KING\",\"hand\":[\"Temple\",\"Temple\"],\"city\":[\"Palace\"]},"
+                    + "{\"name\":\"CPU 2\",\"gold\":1,\"character\":\"\",\"hand\":[\"Temple\"],\"city\":[]}]}");
+            game.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            game.loadGame(f.getPath());
+
+            CardsAndDecks.CardCatalog catalog = CardsAndDecks.CardCatalog.get();
+            assertEquals(catalog.deckSize(), cardsInPlay(game));
+            int temple = catalog.idOf("Temple");
+            int templesLeft = 0;
+            for (int i = 0; i < game.getDistrictDeck().size(); i++) {
+                if (game.getDistrictDeck().cardAtIndex(i).getId() == temple) templesLeft++;
+            }
+            assertEquals(catalog.quantity(temple) - 3, templesLeft);
+            assertTrue(game.getPlayers().get(0) instanceof HumanPlayer);
+            assertEquals(3, game.getPlayers().get(0).getGold());
+            assertEquals(7, game.getCharacterDeck().size());
+            assertFalse(game.getCharacterDeck().isAvailable(4));
+            assertEquals(1, game.getCrownIndex());
+        } finally {
+            f.delete();
+        }
+    }
+
+    // A human who loads a save on their second turn, then just takes income and ends,
+    // counting the districts destroyed (and so out of the game) since the load
+    private static final class LoadsMidTurn extends AIDecisions implements GameListener {
+        private final String file;
+        private int turns;
+        private boolean loaded;
+        private int destroyed;
+
+        LoadsMidTurn(String file) {
+            this.file = file;
+        }
+
+        @Override
+        public String nextCommand(Game game, Player player) {
+            if (!loaded && game.getCurrentPlayer() == player && ++turns == 2) {
+                loaded = true;
+                destroyed = 0;
+                return "load " + file;
+            }
+            return "end";
+        }
+
+        @Override
+        public void districtDestroyed(Player warlord, Player victim, CardsAndDecks.DistrictCard district, int paid) {
+            destroyed++;
+        }
+    }
+
+    // Loading during a turn swaps the state in at the round's end, so no card is lost or doubled
+    @Test
+    public void testLoadDuringTurnKeepsEveryCard() throws Exception {
+        for (String suffix : new String[] { ".bin", ".json" }) {
+            File f = File.createTempFile("citadels-test", suffix);
+            try {
+                Game game = TestGames.headless(17L, 4, 4);
+                game.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+                game.setPacing(TurnManager.Pacing.INSTANT, 0);
+                List<Player> players = game.getPlayers();
+                HumanPlayer human = new HumanPlayer("You");
+                human.getHand().addAll(players.get(0).getHand());
+                players.set(0, human);
+                game.saveGame(f.getPath());
+
+                LoadsMidTurn decisions = new LoadsMidTurn(f.getPath());
+                human.setDecisions(decisions);
+                game.setListener(decisions);
+                game.play();
+
+                assertTrue(decisions.loaded, suffix);
+                assertEquals(4, game.getRounds(), suffix);
+                assertEquals(CardsAndDecks.CardCatalog.get().deckSize(), cardsInPlay(game) + decisions.destroyed, suffix);
+                assertTrue(game.getPlayers().get(0) instanceof HumanPlayer, suffix);
+                assertSame(decisions, game.getPlayers().get(0).getDecisions(), suffix + " seat keeps its provider");
+            } finally {
+                f.delete();
+            }
+        }
+    }
+}
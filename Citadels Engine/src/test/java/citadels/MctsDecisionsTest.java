@@ -0,0 +1,156 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import citadels.CardsAndDecks.CharacterCard;
+import citadels.CardsAndDecks.DistrictCard;
+import citadels.CardsAndDecks.DistrictColor;
+
+public class MctsDecisionsTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(2);
+
+    @AfterAll
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    private static CharacterCard character(int rank) {
+        for (CharacterCard c : new CardsAndDecks.CharacterDeck(new GameRandom(1L)).getAvailableCards()) {
+            if (c.getRank() == rank) return c;
+        }
+        throw new IllegalArgumentException("No rank " + rank);
+    }
+
+    private static int[] play(long seed) {
+        Game game = new Game(seed);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(4);
+        game.setMaxRounds(4);
+        game.getPlayers().get(0).setDecisions(new MctsDecisions(24, 0, POOL));
+        game.play();
+        return game.getFinalScores();
+    }
+
+    // With a playout budget the search is seeded from the game, so games repeat
+    @Test
+    public void testSeededGamesRepeat() {
+        assertArrayEquals(play(3L), play(3L));
+    }
+
+    // Building the eighth district now ends the game in our favour; waiting lets the others finish first
+    @Test
+    public void testBuildsTheWinningDistrict() {
+        Game game = new Game(7L);
+        game.setListener(GameListener.NONE);
+        AIPlayer me = new AIPlayer("Me");
+        game.getPlayers().add(me);
+        for (int i = 1; i <= 3; i++) {
+            AIPlayer other = new AIPlayer("CPU " + i);
+            for (int d = 0; d < 7; d++) {
+                other.getCity().add(new DistrictCard(other.getName() + " Shop " + d, 3, DistrictColor.GREEN, ""));
+            }
+            other.getHand().add(new DistrictCard(other.getName() + " Stall", 1, DistrictColor.GREEN, ""));
+            other.addGold(8);
+            game.getPlayers().add(other);
+        }
+        for (int d = 0; d < 7; d++) {
+            me.getCity().add(new DistrictCard("Hut " + d, 2, DistrictColor.GREEN, ""));
+        }
+        me.getHand().add(new DistrictCard("Market Hall", 5, DistrictColor.GREEN, ""));
+        me.addGold(3);
+
+        List<Player> players = game.getPlayers();
+        int[] ranks = { 8, 2, 3, 5 };
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).setCharacter(character(ranks[i]));
+        }
+        game.setCurrentPlayer(me);
+
+        MctsDecisions search = new MctsDecisions(40, 0, POOL);
+        assertEquals(0, search.chooseBuild(game, me));
+    }
+
+    // In the turn phase a player yet to be called holds a later rank, and never a face-up discard
+    @Test
+    public void testTurnPhaseRedealsOnlyLaterRanks() {
+        Game game = new Game(12L);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(4);
+        game.getTurnManager().runSelectionPhase();
+        int faceUp = game.getTurnManager().getFaceUpDiscards();
+        assertEquals(2, Integer.bitCount(faceUp));
+
+        List<Player> players = game.getPlayers();
+        // the second to be called: one player has acted, two are still hidden
+        int[] order = new int[players.size()];
+        for (int s = 0; s < order.length; s++) order[s] = players.get(s).getCharacter().getRank() * 10 + s;
+        Arrays.sort(order);
+        int seat = order[1] % 10;
+        int mine = players.get(seat).getCharacter().getRank();
+
+        GameRandom rng = new GameRandom(1L);
+        for (int i = 0; i < 200; i++) {
+            Game copy = game.copy();
+            MctsDecisions.determinize(copy, copy.getPlayers().get(seat), MctsDecisions.Root.INCOME, rng);
+            for (int s = 0; s < players.size(); s++) {
+                int before = players.get(s).getCharacter().getRank();
+                int after = copy.getPlayers().get(s).getCharacter().getRank();
+                if (before <= mine) {
+                    assertEquals(before, after, "seat " + s + " has already been called");
+                } else {
+                    assertTrue(after > mine, "seat " + s + " was dealt rank " + after);
+                    assertEquals(0, faceUp & 1 << after, "seat " + s + " was dealt a face-up discard");
+                }
+            }
+        }
+    }
+
+    // Earlier pickers in selection are never dealt a face-up discard or a character still on offer
+    @Test
+    public void testSelectionRedealsNoVisibleCharacter() {
+        Game game = new Game(4L);
+        game.setListener(GameListener.NONE);
+        game.setupHeadless(4);
+        List<Player> players = game.getPlayers();
+        int last = (game.getCrownIndex() + 3) % 4;
+        boolean[] checked = new boolean[1];
+        players.get(last).setDecisions(new AIDecisions() {
+            @Override
+            public CharacterCard chooseCharacter(Game g, Player player, List<CharacterCard> available) {
+                int faceUp = g.getTurnManager().getFaceUpDiscards();
+                GameRandom rng = new GameRandom(2L);
+                for (int i = 0; i < 200; i++) {
+                    Game copy = g.copy();
+                    MctsDecisions.determinize(copy, copy.getPlayers().get(last), MctsDecisions.Root.SELECTION, rng);
+                    for (int s = 0; s < 4; s++) {
+                        if (s == last) continue;
+                        int rank = copy.getPlayers().get(s).getCharacter().getRank();
+                        assertEquals(0, faceUp & 1 << rank, "seat " + s + " was dealt a face-up discard");
+                        assertFalse(g.getCharacterDeck().isAvailable(rank), "seat " + s + " was dealt rank " + rank);
+                    }
+                }
+                checked[0] = true;
+                return available.get(0);
+            }
+        });
+        game.getTurnManager().runSelectionPhase();
+        assertTrue(checked[0]);
+    }
+
+    @Test
+    public void testNeedsABudget() {
+        assertThrows(IllegalArgumentException.class, () -> new MctsDecisions(0, 0, POOL));
+    }
+}
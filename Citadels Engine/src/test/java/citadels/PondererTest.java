@@ -0,0 +1,89 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+public class PondererTest {
+
+    // A human who takes a while to make up their mind, and like a real one
+    // picks a character without touching the game's random generator
+    private static final class SlowHuman extends AIDecisions {
+        @Override
+        public CardsAndDecks.CharacterCard chooseCharacter(Game game, Player player, List<CardsAndDecks.CharacterCard> available) {
+            think();
+            return available.get(0);
+        }
+
+        @Override
+        public String nextCommand(Game game, Player player) {
+            think();
+            return "end";
+        }
+
+        private static void think() {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static Game table(long seed) {
+        Game game = TestGames.headless(seed, 4, 3);
+        game.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        game.setPacing(TurnManager.Pacing.INSTANT, 0);
+
+        List<Player> players = game.getPlayers();
+        Player seat = players.get(0);
+        HumanPlayer human = new HumanPlayer("You");
+        human.setDecisions(new SlowHuman());
+        human.getHand().addAll(seat.getHand());
+        human.addGold(seat.getGold() - human.getGold());
+        players.set(0, human);
+        for (int s = 1; s < players.size(); s++) {
+            players.get(s).setDecisions(new MctsDecisions(60, 0, new ForkJoinPool(1)));
+        }
+        return game;
+    }
+
+    // Reused answers are the ones the players would have worked out themselves
+    @Test
+    public void testPonderingDoesNotChangeTheGame() {
+        Game plain = table(31L);
+        plain.play();
+
+        Game pondered = table(31L);
+        try (Ponderer ponderer = Ponderer.attach(pondered, 2)) {
+            pondered.play();
+            assertTrue(ponderer.hits() > 0, "some decisions were ready when asked");
+        }
+
+        assertEquals(plain.getRounds(), pondered.getRounds());
+        assertEquals(plain.stateHash(), pondered.stateHash());
+        assertEquals(plain.getRandom().getState(), pondered.getRandom().getState());
+        assertArrayEquals(plain.getFinalScores(), pondered.getFinalScores());
+    }
+
+    @Test
+    public void testWithoutHumansNothingIsPondered() {
+        Game game = TestGames.headless(4L, 5, 2);
+        try (Ponderer ponderer = Ponderer.attach(game, 1)) {
+            game.play();
+            assertEquals(0, ponderer.hits());
+            assertTrue(ponderer.misses() > 0);
+        }
+
+        Game plain = TestGames.headless(4L, 5, 2);
+        plain.play();
+        assertEquals(plain.stateHash(), game.stateHash());
+    }
+}
@@ -0,0 +1,60 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class SessionManagerTest {
+
+    // Many tables run at once, each with its own input and output
+    @Test
+    public void testSessionsAreIndependent() throws InterruptedException {
+        try (SessionManager manager = new SessionManager()) {
+            List<SessionManager.GameSession> sessions = new ArrayList<>();
+            List<ByteArrayOutputStream> outputs = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                outputs.add(out);
+                sessions.add(manager.open(5L, out));
+            }
+            for (int i = 0; i < sessions.size(); i++) {
+                sessions.get(i).send(String.valueOf(4 + i % 4));
+                sessions.get(i).closeInput();
+            }
+            for (SessionManager.GameSession s : sessions) {
+                assertTrue(s.awaitFinished(30, TimeUnit.SECONDS), "Every session should end once its input closes.");
+            }
+
+            assertEquals(0, manager.activeSessions());
+            for (int i = 0; i < outputs.size(); i++) {
+                int players = 4 + i % 4;
+                assertTrue(outputs.get(i).toString().contains("Starting Citadels with " + players + " players"));
+                assertEquals(players, sessions.get(i).getGame().getPlayers().size());
+            }
+            // same seed and same input give the same table
+            assertEquals(outputs.get(0).toString(), outputs.get(4).toString());
+        }
+    }
+
+    // A session waits for input rather than ending when none is queued yet
+    @Test
+    public void testSessionWaitsForInput() throws InterruptedException {
+        try (SessionManager manager = new SessionManager()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SessionManager.GameSession session = manager.open(9L, out);
+            assertTrue(!session.awaitFinished(100, TimeUnit.MILLISECONDS));
+            assertEquals(1, manager.activeSessions());
+
+            session.send("5");
+            session.closeInput();
+            assertTrue(session.awaitFinished(30, TimeUnit.SECONDS));
+            assertEquals(5, session.getGame().getPlayers().size());
+        }
+    }
+}
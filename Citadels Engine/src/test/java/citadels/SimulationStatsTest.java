@@ -0,0 +1,84 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import citadels.SimulationStats.QuantileSketch;
+
+public class SimulationStatsTest {
+
+    @Test
+    public void testSketchIsExactForSmallValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int v = 1; v <= 100; v++) sketch.add(v);
+        assertEquals(100, sketch.count());
+        assertEquals(1, sketch.quantile(0));
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(90, sketch.quantile(0.9));
+        assertEquals(100, sketch.quantile(1));
+    }
+
+    @Test
+    public void testSketchLargeValuesWithinOnePercent() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(10_000);
+        sketch.add(1_000_000);
+        assertEquals(10_000, sketch.quantile(0.5), 100);
+        assertEquals(1_000_000, sketch.quantile(1), 10_000);
+    }
+
+    @Test
+    public void testSketchesMerge() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int i = 0; i < 10; i++) {
+            low.add(5);
+            high.add(500);
+        }
+        low.merge(high);
+        assertEquals(20, low.count());
+        assertEquals(5, low.quantile(0.5));
+        assertEquals(500, low.quantile(0.75), 5);
+    }
+
+    @Test
+    public void testSimulatorFeedsEveryGame() {
+        SimulationStats stats = new SimulationStats();
+        Simulator simulator = new Simulator(40, 2, 5, 3L, 100);
+        simulator.setStats(stats);
+        Simulator.Report report = simulator.run();
+
+        assertEquals(40, stats.games());
+        assertEquals(200, stats.scores().count());
+        double seatWins = 0;
+        for (int s = 0; s < 5; s++) seatWins += stats.seatWinRate(s);
+        assertEquals(1.0, seatWins, 1e-9, "one winner per game");
+
+        long seatZeroWins = 0;
+        for (Simulator.GameResult r : report.getResults()) {
+            if (r.getWinnerSeat() == 0) seatZeroWins++;
+        }
+        assertEquals(seatZeroWins / 40.0, stats.seatWinRate(0), 1e-9);
+        assertTrue(stats.report().contains("Seat"));
+    }
+
+    @Test
+    public void testMergeAddsRuns() {
+        SimulationStats a = new SimulationStats();
+        SimulationStats b = new SimulationStats();
+        Simulator first = new Simulator(10, 1, 4, 1L, 100);
+        first.setStats(a);
+        first.run();
+        Simulator second = new Simulator(15, 1, 4, 2L, 100);
+        second.setStats(b);
+        second.run();
+
+        double avgA = a.averageScore(0);
+        double avgB = b.averageScore(0);
+        a.merge(b);
+        assertEquals(25, a.games());
+        assertEquals((avgA * 10 + avgB * 15) / 25, a.averageScore(0), 1e-9);
+    }
+}
@@ -0,0 +1,39 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class SimulatorTest {
+
+    // A single headless game runs to completion without touching the console
+    @Test
+    public void testPlayOneFinishesWithScoresForEverySeat() {
+        Simulator.GameResult result = Simulator.playOne(5, 42L, 100);
+
+        assertEquals(5, result.getScores().length);
+        assertTrue(result.getRounds() > 0, "At least one round should be played");
+        assertTrue(result.getWinnerSeat() >= 0 && result.getWinnerSeat() < 5);
+    }
+
+    // A batch spread over several threads fills in a result for every game
+    @Test
+    public void testRunProducesResultForEveryGame() {
+        Simulator simulator = new Simulator(40, 4, 4, 7L, 100);
+        Simulator.Report report = simulator.run();
+
+        assertEquals(40, report.getResults().length);
+        for (Simulator.GameResult r : report.getResults()) {
+            assertNotNull(r, "Every game should report a result");
+        }
+        assertTrue(report.gamesPerSecond() > 0);
+    }
+
+    // Per-game seeds are stable and distinct
+    @Test
+    public void testGameSeedsAreDistinct() {
+        assertEquals(Simulator.gameSeed(1L, 3), Simulator.gameSeed(1L, 3));
+        assertTrue(Simulator.gameSeed(1L, 3) != Simulator.gameSeed(1L, 4));
+    }
+}
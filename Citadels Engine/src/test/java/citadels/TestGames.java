@@ -0,0 +1,37 @@
+package citadels;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Games set up for tests: seeded, all-AI and quiet.
+ */
+final class TestGames {
+
+    private TestGames() {
+    }
+
+    // An AI table that plays at most rounds rounds (0 for no limit) with no listener or metrics
+    static Game headless(long seed, int players, int rounds) {
+        Game game = new Game(seed);
+        game.setListener(GameListener.NONE);
+        game.setMetrics(EngineMetrics.NONE);
+        game.setupHeadless(players);
+        game.setMaxRounds(rounds);
+        return game;
+    }
+
+    // A five-player table three rounds in, with the round limit lifted
+    static Game midGame(long seed) {
+        Game game = headless(seed, 5, 3);
+        game.play();
+        game.setMaxRounds(0);
+        return game;
+    }
+
+    static byte[] bytes(Game game) {
+        ByteBuffer buf = GameSnapshot.encode(game);
+        byte[] b = new byte[buf.remaining()];
+        buf.get(b);
+        return b;
+    }
+}
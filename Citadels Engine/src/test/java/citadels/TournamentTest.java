@@ -0,0 +1,102 @@
+package citadels;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TournamentTest {
+
+    @TempDir
+    Path dir;
+
+    private static Tournament twoAIs(int threads) {
+        List<Tournament.Entrant> entrants = Arrays.asList(
+                new Tournament.Entrant("a", AIDecisions::new),
+                new Tournament.Entrant("b", AIDecisions::new));
+        return new Tournament(entrants, 4, 5L, threads, 100);
+    }
+
+    @Test
+    public void testScheduleCoversEverySeating() {
+        // two entrants at four seats: every arrangement of a, a, b, b
+        List<int[]> few = Tournament.buildSchedule(2, 4);
+        assertEquals(6, few.size());
+        Set<String> distinct = new HashSet<>();
+        for (int[] seats : few) {
+            assertEquals(2, Arrays.stream(seats).filter(e -> e == 0).count());
+            distinct.add(Arrays.toString(seats));
+        }
+        assertEquals(6, distinct.size());
+
+        // five entrants at four seats: every choice of four, in every order
+        List<int[]> many = Tournament.buildSchedule(5, 4);
+        assertEquals(5 * 24, many.size());
+        for (int[] seats : many) {
+            assertEquals(4, Arrays.stream(seats).distinct().count());
+        }
+    }
+
+    @Test
+    public void testWilsonInterval() {
+        double[] ci = Tournament.wilson(5, 10);
+        assertEquals(0.237, ci[0], 0.001);
+        assertEquals(0.763, ci[1], 0.001);
+        assertArrayEquals(new double[] { 0, 1 }, Tournament.wilson(0, 0));
+    }
+
+    @Test
+    public void testRatingsAreZeroSum() throws Exception {
+        Tournament.Standings s = twoAIs(2).run(12, null, null, 0);
+        assertEquals(12, s.games());
+        assertEquals(48, s.played(0) + s.played(1));
+        assertEquals(2 * Tournament.INITIAL_RATING, s.rating(0) + s.rating(1), 1e-6);
+    }
+
+    // Elo depends on the order results are counted in, which must not be the order games finish in
+    @Test
+    public void testRatingsDoNotDependOnThreads() throws Exception {
+        Tournament.Standings one = twoAIs(1).run(16, null, null, 0);
+        Tournament.Standings four = twoAIs(4).run(16, null, null, 0);
+        assertEquals(one.rating(0), four.rating(0), 1e-9);
+        assertEquals(one.rating(1), four.rating(1), 1e-9);
+    }
+
+    @Test
+    public void testResumesFromLog() throws Exception {
+        Path log = dir.resolve("results.log");
+        twoAIs(2).run(6, log, null, 0);
+        // a crash mid-write leaves half a line behind
+        Files.write(log, "7,1,0:3".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        Tournament.Standings resumed = twoAIs(2).run(12, log, null, 0);
+        Tournament.Standings fresh = twoAIs(1).run(12, null, null, 0);
+        assertEquals(12, resumed.games());
+        assertEquals(fresh.wins(0), resumed.wins(0));
+        assertEquals(fresh.wins(1), resumed.wins(1));
+        assertEquals(fresh.rating(0), resumed.rating(0), 1e-9);
+        assertEquals(fresh.rating(1), resumed.rating(1), 1e-9);
+        assertEquals(13, Files.readAllLines(log).size(), "header plus one line per game");
+    }
+
+    @Test
+    public void testRejectsAnotherTournamentsLog() throws Exception {
+        Path log = dir.resolve("results.log");
+        twoAIs(1).run(2, log, null, 0);
+        Tournament other = new Tournament(Arrays.asList(Tournament.Entrant.parse("ai"), Tournament.Entrant.parse("mcts:10")),
+                4, 5L, 1, 100);
+        assertThrows(IOException.class, () -> other.run(2, log, null, 0));
+    }
+}
@@ -1,6 +1,8 @@
 package citadels;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.Scanner;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -102,4 +104,100 @@ public class TurnManagerTest {
             assertNotNull(p.getCharacter(), "Each player should have selected a character");
         }
     }
+
+    @Test
+    public void testSelectionDealsDistinctCharactersAndTakesThemFromTheDeck() {
+        Game table = new Game(3L);
+        table.setListener(GameListener.NONE);
+        table.setupHeadless(6);
+        table.getTurnManager().runSelectionPhase();
+
+        int mask = 0;
+        for (Player p : table.getPlayers()) {
+            int bit = 1 << p.getCharacter().getRank();
+            assertEquals(0, mask & bit, "each character goes to one player");
+            mask |= bit;
+        }
+        assertEquals(0, mask & table.getCharacterDeck().availableMask());
+        assertEquals(0, table.getCharacterDeck().size(), "six picks and two discards use all eight");
+    }
+
+    @Test
+    public void testSelectionDoesNotAllocate() {
+        Game table = new Game(3L);
+        table.setListener(GameListener.NONE);
+        table.setMetrics(EngineMetrics.NONE);
+        table.setupHeadless(5);
+        TurnManager tm = table.getTurnManager();
+        for (int i = 0; i < 20_000; i++) tm.runSelectionPhase();
+
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 1000; i++) tm.runSelectionPhase();
+        long bytes = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue(bytes < 1000, "allocated " + bytes + " bytes over 1000 rounds");
+    }
+
+    // Seat 0 is a human holding the Warlord, assassinated so its turn needs no input;
+    // the CPUs hold the Thief, Bishop and Merchant
+    private static Game pacedTable(TurnManager.Pacing pacing, String input, ByteArrayOutputStream out) {
+        Game table = new Game(17L);
+        table.setConsole(new Scanner(new ByteArrayInputStream(input.getBytes())));
+        table.setOutput(new PrintStream(out, true));
+        table.setPacing(pacing, 0);
+        String[] names = { "Player 1", "CPU 2", "CPU 3", "CPU 4" };
+        int[] ranks = { 8, 2, 5, 6 };
+        for (int i = 0; i < names.length; i++) {
+            Player p = i == 0 ? new HumanPlayer(names[i]) : new AIPlayer(names[i]);
+            p.setCharacter(CardsAndDecks.CharacterDeck.byRank(ranks[i]));
+            table.getPlayers().add(p);
+        }
+        table.getTurnManager().markAssassinated(8);
+        return table;
+    }
+
+    @Test
+    public void testUntilHumanPlaysCpuTurnsOnOneKeypress() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Game table = pacedTable(TurnManager.Pacing.UNTIL_HUMAN, "t\n", out);
+        table.getTurnManager().runTurnPhase();
+
+        String text = out.toString();
+        assertEquals(1, text.split("Press t", -1).length - 1, "one prompt for the whole batch");
+        assertTrue(text.contains("CPU 2 (Thief): "));
+        assertTrue(text.contains("CPU 3 (Bishop): +1 card"));
+        assertTrue(text.contains("CPU 4 (Merchant): +1 gold, +1 card"));
+        assertFalse(text.contains("drew cards"), "per-event output is condensed");
+        assertTrue(text.contains("Player 1 was assassinated"));
+    }
+
+    @Test
+    public void testInstantNeedsNoInput() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Game table = pacedTable(TurnManager.Pacing.INSTANT, "", out);
+        table.getTurnManager().runTurnPhase();
+
+        String text = out.toString();
+        assertFalse(text.contains("Press t"));
+        assertEquals(3, text.split("\\(Thief\\): |\\(Bishop\\): |\\(Merchant\\): ", -1).length - 1);
+        assertEquals(table.getOutput(), table.out(), "output is restored after the batch");
+    }
+
+    @Test
+    public void testPromptAsksBeforeEveryCpuTurn() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Game table = pacedTable(TurnManager.Pacing.PROMPT, "t\nt\nt\n", out);
+        table.getTurnManager().runTurnPhase();
+        assertEquals(3, out.toString().split("Press t", -1).length - 1);
+        assertTrue(out.toString().contains("drew cards"));
+    }
+
+    @Test
+    public void testPacingParse() {
+        assertEquals(TurnManager.Pacing.UNTIL_HUMAN, TurnManager.Pacing.parse("until-human"));
+        assertEquals(TurnManager.Pacing.DELAY, TurnManager.Pacing.parse(" Delay"));
+    }
 }